@@ -0,0 +1,67 @@
+package bench;
+
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of popping a batch of batch items: deleteMinBatch against batch
+ * separate deleteMin calls. Scores are per batch, so divide by batch for
+ * the cost per popped item. The popped items are re-inserted afterwards
+ * (hold model), which costs the same in both variants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPopBenchmark {
+    @Param({ "64", "256", "1024" })
+    public int batch;
+
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "false" })
+    public boolean lazyDecreaseKeys;
+
+    Heap heap;
+    Heap.HeapItem[] out;
+    KeyDistribution.Keys keys;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        this.heap = new Heap(false, this.lazyDecreaseKeys);
+        this.keys = KeyDistribution.UNIFORM.keys(42);
+        for (int i = 0; i < this.size; i++) {
+            this.heap.insert(this.keys.next(), null);
+        }
+        this.heap.deleteMin();
+        this.out = new Heap.HeapItem[this.batch];
+    }
+
+    @Benchmark
+    public Heap.HeapItem loopedDeleteMin() {
+        for (int i = 0; i < this.batch; i++) {
+            this.out[i] = this.heap.findMin();
+            this.heap.deleteMin();
+        }
+        return refill();
+    }
+
+    @Benchmark
+    public Heap.HeapItem deleteMinBatch() {
+        this.heap.deleteMinBatch(this.batch, this.out);
+        return refill();
+    }
+
+    private Heap.HeapItem refill() {
+        Heap.HeapItem last = this.out[this.batch - 1];
+        for (int i = 0; i < this.batch; i++) {
+            this.heap.insert(this.keys.next(), null);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load size keys into an empty heap: looped insert against
+ * insertAll, with and without pre-linking. loadAndPop adds the first
+ * deleteMin, which pays for the consolidation that pre-linking did early.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class BulkInsertBenchmark {
+    @Param({ "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "loop", "insertAll", "insertAll-prelinked" })
+    public String load;
+
+    @Param({ "UNIFORM" })
+    public KeyDistribution distribution;
+
+    int[] keys;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        KeyDistribution.Keys stream = this.distribution.keys(42);
+        this.keys = new int[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = stream.next();
+        }
+    }
+
+    @Benchmark
+    public Heap load() {
+        return build();
+    }
+
+    @Benchmark
+    public Heap loadAndPop() {
+        Heap heap = build();
+        heap.deleteMin();
+        return heap;
+    }
+
+    private Heap build() {
+        Heap heap = new Heap(false, false);
+        switch (this.load) {
+        case "loop":
+            for (int key : this.keys) {
+                heap.insert(key, null);
+            }
+            break;
+        case "insertAll":
+            heap.insertAll(this.keys, null);
+            break;
+        default:
+            heap.insertAll(this.keys, null, true);
+            break;
+        }
+        return heap;
+    }
+}
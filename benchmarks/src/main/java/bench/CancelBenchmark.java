@@ -0,0 +1,95 @@
+package bench;
+
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timer queue under cancellation-heavy traffic. Every round cancels
+ * cancelPercent of the timers scheduled lag rounds earlier, schedules batch
+ * new ones and lets the rest expire through deleteMin, so the heap stays
+ * near size items. Deadlines are the current minimum plus a random timeout,
+ * so a timer that is still pending always has a key above the minimum.
+ * With lag=0 the timers are cancelled in the round that schedules them,
+ * while they are still singleton roots; larger lags cancel them from inside
+ * the trees. purgeFraction=0 deletes eagerly, anything above turns on lazy
+ * deletes that purge once that fraction of the nodes is dead. Scores are
+ * per round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class CancelBenchmark {
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "1000" })
+    public int batch;
+
+    @Param({ "50", "90" })
+    public int cancelPercent;
+
+    @Param({ "0", "32" })
+    public int lag;
+
+    @Param({ "false", "true" })
+    public boolean lazyDecreaseKeys;
+
+    @Param({ "0", "0.25", "0.5" })
+    public double purgeFraction;
+
+    Heap heap;
+    Heap.HeapItem[][] scheduled; // the batches of the last lag + 1 rounds
+    KeyDistribution.Keys keys;
+    int round;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        this.heap = new Heap(false, this.lazyDecreaseKeys, Heap.ConsolidationTrigger.NEVER, this.purgeFraction);
+        this.keys = KeyDistribution.UNIFORM.keys(42);
+        for (int i = 0; i < this.size; i++) {
+            this.heap.insert(timeout(), null);
+        }
+        this.heap.deleteMin();
+        this.scheduled = new Heap.HeapItem[this.lag + 1][this.batch];
+        this.round = 0;
+    }
+
+    @Benchmark
+    public Heap.HeapItem round() {
+        int cancelled = this.batch * this.cancelPercent / 100;
+        Heap.HeapItem[] timers = this.scheduled[this.round % this.scheduled.length];
+        if (this.lag > 0 && this.round >= this.lag) {
+            cancel(this.scheduled[(this.round - this.lag) % this.scheduled.length], cancelled);
+        }
+        int now = this.heap.findMin().key;
+        for (int i = 0; i < this.batch; i++) {
+            timers[i] = this.heap.insert(now + timeout(), null);
+        }
+        if (this.lag == 0) {
+            cancel(timers, cancelled);
+        }
+        for (int i = cancelled; i < this.batch; i++) {
+            this.heap.deleteMin();
+        }
+        this.round++;
+        return this.heap.findMin();
+    }
+
+    // Cancel the first n timers that have not fired yet, timeouts are random so that is a random subset
+    private void cancel(Heap.HeapItem[] timers, int n) {
+        for (int i = 0; i < n; i++) {
+            if (timers[i].key > this.heap.findMin().key) {
+                this.heap.delete(timers[i]);
+            }
+        }
+    }
+
+    private int timeout() {
+        return 1 + (this.keys.next() & ((1 << 24) - 1));
+    }
+}
@@ -0,0 +1,102 @@
+package bench;
+
+import heap.FlatCombiningHeap;
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent throughput of one shared Heap made thread-safe three ways:
+ * FlatCombiningHeap, a synchronized block and a ReentrantLock, each
+ * taken once per heap operation. Every benchmark operation is a deleteMin
+ * followed by an insert (the hold model), so the size stays put. Sweep
+ * the threads with JMH's -t option, e.g. -t 1, 2, 4, 8, 16, 32, 64.
+ * Unlike MultiQueueBenchmark all three return the exact minimum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombiningBenchmark {
+    @Param({ "flat-combining", "synchronized", "reentrant-lock" })
+    public String wrapper;
+
+    @Param({ "1000000" })
+    public int size;
+
+    FlatCombiningHeap combining;
+    Heap heap;
+    final ReentrantLock lock = new ReentrantLock();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        KeyDistribution.Keys keys = KeyDistribution.UNIFORM.keys(7);
+        this.heap = new Heap(false, false);
+        for (int i = 0; i < this.size; i++) {
+            this.heap.insert(keys.next(), null);
+        }
+        this.combining = new FlatCombiningHeap(this.heap);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        KeyDistribution.Keys keys;
+
+        @Setup(Level.Trial)
+        public void seed() {
+            this.keys = KeyDistribution.UNIFORM.keys(Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    public Object deleteMinInsert(ThreadKeys keys) {
+        Heap.HeapItem item = deleteMin();
+        insert(keys.keys.next());
+        return item;
+    }
+
+    // each operation takes the lock on its own, as a thread-safe wrapper would
+    private Heap.HeapItem deleteMin() {
+        switch (this.wrapper) {
+            case "flat-combining":
+                return this.combining.deleteMin();
+            case "synchronized":
+                synchronized (this.heap) {
+                    Heap.HeapItem item = this.heap.findMin();
+                    this.heap.deleteMin();
+                    return item;
+                }
+            default:
+                this.lock.lock();
+                try {
+                    Heap.HeapItem item = this.heap.findMin();
+                    this.heap.deleteMin();
+                    return item;
+                } finally {
+                    this.lock.unlock();
+                }
+        }
+    }
+
+    private Heap.HeapItem insert(int key) {
+        switch (this.wrapper) {
+            case "flat-combining":
+                return this.combining.insert(key, null);
+            case "synchronized":
+                synchronized (this.heap) {
+                    return this.heap.insert(key, null);
+                }
+            default:
+                this.lock.lock();
+                try {
+                    return this.heap.insert(key, null);
+                } finally {
+                    this.lock.unlock();
+                }
+        }
+    }
+}
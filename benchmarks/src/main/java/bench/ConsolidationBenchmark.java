@@ -0,0 +1,63 @@
+package bench;
+
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first deleteMin after size inserts, which consolidates a root list
+ * of size singleton trees. parallelism=0 consolidates serially, anything
+ * else on a ForkJoinPool of that many threads, so the scores give the
+ * speedup against the core count. Each measurement pops a freshly filled
+ * heap once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class ConsolidationBenchmark {
+    @Param({ "10000000" })
+    public int size;
+
+    @Param({ "0", "1", "2", "4", "8", "16" })
+    public int parallelism;
+
+    ForkJoinPool pool;
+    Heap heap;
+
+    @Setup(Level.Trial)
+    public void start() {
+        if (this.parallelism > 0) {
+            this.pool = new ForkJoinPool(this.parallelism);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        this.heap = new Heap(false, false);
+        if (this.pool != null) {
+            this.heap.parallelConsolidation(this.pool, 1 << 16);
+        }
+        KeyDistribution.Keys keys = KeyDistribution.UNIFORM.keys(42);
+        for (int i = 0; i < this.size; i++) {
+            this.heap.insert(keys.next(), null);
+        }
+    }
+
+    @Benchmark
+    public Heap.HeapItem consolidate() {
+        this.heap.deleteMin();
+        return this.heap.findMin();
+    }
+}
@@ -0,0 +1,104 @@
+package bench;
+
+import heap.DispatcherHeap;
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Producer-side insert latency under contention: three producer threads
+ * and one dispatcher thread that pops the minimum whenever the heap holds
+ * more than size items. dispatcher appends through a DispatcherHeap with
+ * the given number of stripes, locked takes one ReentrantLock per insert
+ * and per pop. Look at the producer percentiles (dispatcher:insert,
+ * locked:lockedInsert). A producer that finds its stripe full fails the offer
+ * rather than waiting, so a stuck dispatcher cannot hang the iteration.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class DispatchBenchmark {
+    @Param({ "100000" })
+    public int size;
+
+    @Param({ "1", "4" })
+    public int stripes;
+
+    @Param({ "1024" })
+    public int capacity;
+
+    DispatcherHeap dispatcher;
+    Heap heap;
+    final ReentrantLock lock = new ReentrantLock();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        KeyDistribution.Keys keys = KeyDistribution.UNIFORM.keys(7);
+        this.heap = new Heap(false, false);
+        for (int i = 0; i < this.size; i++) {
+            this.heap.insert(keys.next(), null);
+        }
+        this.dispatcher = new DispatcherHeap(this.heap, this.stripes, this.capacity);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        KeyDistribution.Keys keys;
+
+        @Setup(Level.Trial)
+        public void seed() {
+            this.keys = KeyDistribution.UNIFORM.keys(Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    @Group("dispatcher")
+    @GroupThreads(3)
+    public boolean insert(ThreadKeys keys) {
+        return this.dispatcher.offer(keys.keys.next(), null);
+    }
+
+    @Benchmark
+    @Group("dispatcher")
+    @GroupThreads(1)
+    public Heap.HeapItem dispatch() {
+        Heap.HeapItem min = this.dispatcher.findMin();
+        if (this.dispatcher.size() > this.size) {
+            this.dispatcher.deleteMin();
+        }
+        return min;
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public Heap.HeapItem lockedInsert(ThreadKeys keys) {
+        this.lock.lock();
+        try {
+            return this.heap.insert(keys.keys.next(), null);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public Heap.HeapItem lockedDispatch() {
+        this.lock.lock();
+        try {
+            Heap.HeapItem min = this.heap.findMin();
+            if (this.heap.size() > this.size) {
+                this.heap.deleteMin();
+            }
+            return min;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package bench;
+
+import heap.Heap;
+
+import java.util.PriorityQueue;
+
+/**
+ * The operations the benchmarks drive, implemented once by Heap in each
+ * (lazyMelds, lazyDecreaseKeys) configuration and once by PriorityQueue
+ * as a baseline. Each fork only loads one implementation, so the calls
+ * stay monomorphic.
+ */
+interface Engine {
+    String[] NAMES = { "heap-eager-eager", "heap-eager-lazy", "heap-lazy-eager", "heap-lazy-lazy",
+            "heap-lazy-eager-deferred", "heap-lazy-lazy-deferred", "priority-queue" };
+
+    Object insert(int key);
+
+    void deleteMin();
+
+    void decreaseKey(Object item, int diff);
+
+    void delete(Object item);
+
+    void meld(Engine other);
+
+    int key(Object item);
+
+    /** Return the diff that takes item strictly below its parent, or 1 if it has none. */
+    int cutDiff(Object item);
+
+    int size();
+
+    /**
+     * Create an engine by name: "heap-" followed by the meld and decrease-key
+     * modes (eager or lazy), optionally followed by "-deferred" for lazy melds
+     * that consolidate once the root list exceeds 2 log_phi(n) trees, or
+     * "priority-queue".
+     */
+    static Engine create(String name) {
+        switch (name) {
+        case "heap-eager-eager":
+            return new HeapEngine(false, false);
+        case "heap-eager-lazy":
+            return new HeapEngine(false, true);
+        case "heap-lazy-eager":
+            return new HeapEngine(true, false);
+        case "heap-lazy-lazy":
+            return new HeapEngine(true, true);
+        case "heap-lazy-eager-deferred":
+            return new HeapEngine(true, false, Heap.ConsolidationTrigger.ratioToLogSize(2));
+        case "heap-lazy-lazy-deferred":
+            return new HeapEngine(true, true, Heap.ConsolidationTrigger.ratioToLogSize(2));
+        case "priority-queue":
+            return new PriorityQueueEngine();
+        default:
+            throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    final class HeapEngine implements Engine {
+        final Heap heap;
+
+        HeapEngine(boolean lazyMelds, boolean lazyDecreaseKeys) {
+            this.heap = new Heap(lazyMelds, lazyDecreaseKeys);
+        }
+
+        HeapEngine(boolean lazyMelds, boolean lazyDecreaseKeys, Heap.ConsolidationTrigger trigger) {
+            this.heap = new Heap(lazyMelds, lazyDecreaseKeys, trigger);
+        }
+
+        public Object insert(int key) {
+            return this.heap.insert(key, null);
+        }
+
+        public void deleteMin() {
+            this.heap.deleteMin();
+        }
+
+        public void decreaseKey(Object item, int diff) {
+            this.heap.decreaseKey((Heap.HeapItem) item, diff);
+        }
+
+        public void delete(Object item) {
+            this.heap.delete((Heap.HeapItem) item);
+        }
+
+        public void meld(Engine other) {
+            this.heap.meld(((HeapEngine) other).heap);
+        }
+
+        public int key(Object item) {
+            return ((Heap.HeapItem) item).key;
+        }
+
+        public int cutDiff(Object item) {
+            Heap.HeapItem x = (Heap.HeapItem) item;
+            Heap.HeapNode parent = x.node.parent;
+            return parent == null ? 1 : x.key - parent.item.key + 1;
+        }
+
+        public int size() {
+            return this.heap.size();
+        }
+    }
+
+    final class PriorityQueueEngine implements Engine {
+        static final class Entry {
+            int key;
+
+            Entry(int key) {
+                this.key = key;
+            }
+        }
+
+        final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> Integer.compare(a.key, b.key));
+
+        public Object insert(int key) {
+            Entry e = new Entry(key);
+            this.queue.add(e);
+            return e;
+        }
+
+        public void deleteMin() {
+            this.queue.poll();
+        }
+
+        public void decreaseKey(Object item, int diff) {
+            // PriorityQueue has no decrease-key, the O(n) remove is what callers pay today
+            Entry e = (Entry) item;
+            this.queue.remove(e);
+            e.key -= diff;
+            this.queue.add(e);
+        }
+
+        public void delete(Object item) {
+            this.queue.remove(item);
+        }
+
+        public void meld(Engine other) {
+            PriorityQueue<Entry> q = ((PriorityQueueEngine) other).queue;
+            this.queue.addAll(q);
+            q.clear();
+        }
+
+        public int key(Object item) {
+            return ((Entry) item).key;
+        }
+
+        public int cutDiff(Object item) {
+            return 1;
+        }
+
+        public int size() {
+            return this.queue.size();
+        }
+    }
+}
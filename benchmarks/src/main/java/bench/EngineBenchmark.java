@@ -0,0 +1,67 @@
+package bench;
+
+import heap.AddressableHeap;
+import heap.OperationTrace;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every AddressableHeap engine replaying the same operation trace: a
+ * prefill of inserts followed by a mix of inserts, deleteMins,
+ * decreaseKeys, deletes and small melds. Scores are per trace replay.
+ * replayFile replays the same trace from a memory-mapped file, or the trace
+ * file given as traceFile instead, e.g. one captured with a Recorder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class EngineBenchmark {
+    @Param({ "FIBONACCI", "FIBONACCI_LAZY_DECREASE_KEYS", "FIBONACCI_LAZY_MELDS", "FIBONACCI_LAZY", "FIBONACCI_LAZY_DELETES",
+            "FIBONACCI_COMPACT", "FIBONACCI_COMPACT_LAZY_DECREASE_KEYS", "PAIRING", "RANK_PAIRING", "BINARY",
+            "QUATERNARY", "OCTONARY" })
+    public AddressableHeap.Engine engine;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int prefill;
+
+    @Param({ "" })
+    public String traceFile;
+
+    OperationTrace trace;
+    Path file;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        this.trace = OperationTrace.random(42, 2 * this.prefill, this.prefill);
+        if (this.traceFile.isEmpty()) {
+            this.file = Files.createTempFile("heap", ".trace");
+            this.trace.write(this.file);
+        } else {
+            this.file = Path.of(this.traceFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        if (this.traceFile.isEmpty()) {
+            Files.deleteIfExists(this.file);
+        }
+    }
+
+    @Benchmark
+    public long replay() {
+        return this.trace.replay(this.engine, false);
+    }
+
+    @Benchmark
+    public long replayFile() throws IOException {
+        return OperationTrace.replay(this.file, this.engine, false);
+    }
+}
@@ -0,0 +1,78 @@
+package bench;
+
+import heap.ExternalSort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reports the MB/s of run generation and of the merge of ExternalSort for
+ * a range of k. The input holds records of uniform random keys and
+ * payloadBytes of payload, cut into 256 runs, so k = 256 merges in one pass
+ * and k = 2 in eight. The merge figure counts the input once, whatever the
+ * number of passes. The files go to dir, the default temp directory unless
+ * given; they are as large as the input, times two for the sorted output.
+ *
+ * Usage: java -cp benchmarks.jar bench.ExternalSortReport [records] [payloadBytes] [dir]
+ */
+public class ExternalSortReport {
+    private static final int RUNS = 256;
+    private static final int[] FAN_INS = { 2, 4, 16, 64, 256 };
+
+    public static void main(String[] args) throws IOException {
+        long records = args.length > 0 ? Long.parseLong(args[0]) : 1L << 28;
+        int payloadBytes = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        Path dir = args.length > 2 ? Path.of(args[2]) : Path.of(System.getProperty("java.io.tmpdir"));
+        Path input = Files.createTempFile(dir, "input", ".bin");
+        Path output = Files.createTempFile(dir, "output", ".bin");
+        try {
+            generate(input, records, payloadBytes);
+            int runRecords = (int) ((records + RUNS - 1) / RUNS);
+            System.out.printf("%d records of %d bytes, %d MB, %d runs%n", records, 4 + payloadBytes,
+                    Files.size(input) / 1000000, RUNS);
+            System.out.printf("%6s %8s %14s %14s%n", "k", "passes", "runs MB/s", "merge MB/s");
+            new ExternalSort(payloadBytes, runRecords, 16, dir).sort(input, output); // warm-up
+            for (int k : FAN_INS) {
+                ExternalSort sorter = new ExternalSort(payloadBytes, runRecords, k, dir);
+                sorter.sort(input, output);
+                System.out.printf("%6d %8d %14.0f %14.0f%n", k, sorter.passes(), sorter.runMBPerSecond(),
+                        sorter.mergeMBPerSecond());
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private static void generate(Path file, long records, int payloadBytes) throws IOException {
+        KeyDistribution.Keys keys = KeyDistribution.UNIFORM.keys(42);
+        ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long i = 0; i < records; i++) {
+                if (buf.remaining() < 4 + payloadBytes) {
+                    write(channel, buf);
+                }
+                int key = keys.next();
+                buf.putInt(key);
+                for (int b = 0; b < payloadBytes; b++) {
+                    buf.put((byte) (key >>> (8 * (b & 3))));
+                }
+            }
+            write(channel, buf);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -0,0 +1,129 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of the single-item operations for every
+ * (lazyMelds, lazyDecreaseKeys) configuration of Heap, with PriorityQueue
+ * as a baseline.
+ *
+ * The heap is rebuilt with size keys before every iteration. Operations
+ * that would drain the heap are measured in the hold model: deleteMin and
+ * delete are each followed by an insert, so the size stays at size.
+ * insert is O(1) and measured on its own, so it can be subtracted.
+ * meld takes a fresh source heap of MELD_SIZE keys per call, all built
+ * before the iteration, and is timed as a batch of MELDS calls, so its
+ * score divided by MELDS is the cost of one meld.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+    static final int MELD_SIZE = 64;
+    static final int MELDS = 1024; // melds per measured batch
+
+    @Param({ "heap-eager-eager", "heap-eager-lazy", "heap-lazy-eager", "heap-lazy-lazy", "heap-lazy-eager-deferred",
+            "heap-lazy-lazy-deferred", "priority-queue" })
+    public String engine;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "UNIFORM", "SORTED", "REVERSE_SORTED", "DECREASE_KEY_CHAIN" })
+    public KeyDistribution distribution;
+
+    Engine heap;
+    Object[] items;
+    KeyDistribution.Keys keys;
+    int cursor;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        this.heap = Engine.create(this.engine);
+        this.keys = this.distribution.keys(42);
+        this.items = new Object[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.items[i] = this.heap.insert(this.keys.next());
+        }
+        // one deleteMin turns the root list into a consolidated forest (unless melds are lazy);
+        // 1 is below every generated key and still a valid one
+        Object removed = this.heap.insert(1);
+        this.heap.deleteMin();
+        if (this.heap.size() != this.size || removed == null) {
+            throw new IllegalStateException("setup left " + this.heap.size() + " items");
+        }
+        this.cursor = 0;
+    }
+
+    @Benchmark
+    @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS) // the heap grows during the iteration
+    public Object insert() {
+        return this.heap.insert(this.keys.next());
+    }
+
+    @Benchmark
+    public void deleteMin() {
+        this.heap.deleteMin();
+        this.heap.insert(this.keys.next());
+    }
+
+    @Benchmark
+    public void decreaseKey() {
+        Object item = nextItem();
+        int diff = this.distribution == KeyDistribution.DECREASE_KEY_CHAIN ? this.heap.cutDiff(item) : 1;
+        if (diff < this.heap.key(item)) {
+            this.heap.decreaseKey(item, diff);
+        }
+    }
+
+    @Benchmark
+    public void delete() {
+        int i = this.cursor;
+        this.heap.delete(nextItem());
+        this.items[i] = this.heap.insert(this.keys.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = MELDS)
+    @Measurement(iterations = 5, batchSize = MELDS) // the heap grows by MELDS * MELD_SIZE keys per iteration
+    public void meld(MeldSource source) {
+        this.heap.meld(source.next());
+    }
+
+    private Object nextItem() {
+        Object item = this.items[this.cursor];
+        if (++this.cursor == this.items.length) {
+            this.cursor = 0;
+        }
+        return item;
+    }
+
+    /** The small heaps of the same engine that one batch of melds consumes, built before the iteration. */
+    @State(Scope.Thread)
+    public static class MeldSource {
+        Engine[] others;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void build(HeapBenchmark benchmark) {
+            this.others = new Engine[MELDS];
+            for (int m = 0; m < MELDS; m++) {
+                this.others[m] = Engine.create(benchmark.engine);
+                for (int i = 0; i < MELD_SIZE; i++) {
+                    this.others[m].insert(benchmark.keys.next());
+                }
+            }
+            this.next = 0;
+        }
+
+        Engine next() {
+            return this.others[this.next++];
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+/**
+ * Key distributions for the benchmarks. Every stream keeps its keys well
+ * inside the positive int range, so decreaseKey by small diffs never
+ * reaches the precondition boundary during a run.
+ */
+public enum KeyDistribution {
+    /** Uniform random keys in [2^20, 2^30). */
+    UNIFORM,
+    /** Increasing keys starting at 2^20. */
+    SORTED,
+    /** Decreasing keys starting at 2^30, every insert becomes the new minimum. */
+    REVERSE_SORTED,
+    /** Sorted keys, and decreaseKey always moves the item below its parent to force (cascading) cuts. */
+    DECREASE_KEY_CHAIN;
+
+    private static final int LOW = 1 << 20;
+    private static final int HIGH = 1 << 30;
+
+    /** A cheap key stream, so generation does not dominate the measured operations. */
+    public final class Keys {
+        private long state;
+        private int counter;
+
+        Keys(long seed) {
+            this.state = seed * 0x9E3779B97F4A7C15L + 1;
+            this.counter = KeyDistribution.this == REVERSE_SORTED ? HIGH : LOW;
+        }
+
+        public int next() {
+            switch (KeyDistribution.this) {
+            case UNIFORM:
+                this.state ^= this.state << 13;
+                this.state ^= this.state >>> 7;
+                this.state ^= this.state << 17;
+                return LOW + (int) ((this.state >>> 33) % (HIGH - LOW));
+            case REVERSE_SORTED:
+                return this.counter--;
+            default:
+                return this.counter++;
+            }
+        }
+    }
+
+    public Keys keys(long seed) {
+        return new Keys(seed);
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import heap.Heap;
+import heap.LoggedHeap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput cost of the write-ahead log, to size the commit intervals.
+ * Every round inserts an item, halves its key and pops the minimum, so a
+ * logged round appends three records. plain runs the same rounds on an
+ * unlogged Heap and ignores the log parameters. fsyncMillis=-1 leaves the
+ * flushing to the operating system, 0 forces the log after every group
+ * commit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class LogBenchmark {
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "1", "16", "256" })
+    public int groupCommit;
+
+    @Param({ "-1", "0", "10" })
+    public long fsyncMillis;
+
+    Heap plain;
+    LoggedHeap logged;
+    Path file;
+    KeyDistribution.Keys keys;
+
+    @Setup(Level.Iteration)
+    public void fill() throws IOException {
+        this.keys = KeyDistribution.UNIFORM.keys(42);
+        this.plain = new Heap(false, false);
+        this.file = Files.createTempFile("heap", ".log");
+        this.logged = LoggedHeap.create(this.file, new Heap(false, false), this.groupCommit, this.fsyncMillis);
+        for (int i = 0; i < this.size; i++) {
+            int key = this.keys.next();
+            this.plain.insert(key, null);
+            this.logged.insert(key, null);
+        }
+        this.logged.sync();
+    }
+
+    @TearDown(Level.Iteration)
+    public void delete() throws IOException {
+        this.logged.close();
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public Heap.HeapItem plain() {
+        Heap.HeapItem x = this.plain.insert(this.keys.next(), null);
+        this.plain.decreaseKey(x, x.key >> 1);
+        this.plain.deleteMin();
+        return this.plain.findMin();
+    }
+
+    @Benchmark
+    public Heap.HeapItem logged() throws IOException {
+        int id = this.logged.insert(this.keys.next(), null);
+        this.logged.decreaseKey(id, this.logged.item(id).key >> 1);
+        this.logged.deleteMin();
+        return this.logged.findMin();
+    }
+}
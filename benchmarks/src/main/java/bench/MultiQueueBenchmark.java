@@ -0,0 +1,85 @@
+package bench;
+
+import heap.Heap;
+import heap.MultiQueue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent throughput of MultiQueue against a single Heap behind one
+ * ReentrantLock, in the hold model (deleteMin followed by insert).
+ * The shard count scales with the thread count, so sweep the threads with
+ * JMH's -t option, e.g. -t 1, -t 8, -t 32. RankErrorReport gives the
+ * matching rank errors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiQueueBenchmark {
+    @Param({ "multiqueue", "locked-heap" })
+    public String queue;
+
+    @Param({ "2", "4" })
+    public int shardsPerThread;
+
+    @Param({ "2" })
+    public int choices;
+
+    @Param({ "1000000" })
+    public int size;
+
+    MultiQueue multiQueue;
+    Heap heap;
+    final ReentrantLock lock = new ReentrantLock();
+
+    @Setup(Level.Trial)
+    public void fill(BenchmarkParams params) {
+        KeyDistribution.Keys keys = KeyDistribution.UNIFORM.keys(7);
+        if (this.queue.equals("multiqueue")) {
+            int shards = Math.max(this.choices, this.shardsPerThread * params.getThreads());
+            this.multiQueue = new MultiQueue(shards, this.choices, 1024, false, false);
+            for (int i = 0; i < this.size; i++) {
+                this.multiQueue.insert(keys.next(), null);
+            }
+        } else {
+            this.heap = new Heap(false, false);
+            for (int i = 0; i < this.size; i++) {
+                this.heap.insert(keys.next(), null);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        KeyDistribution.Keys keys;
+
+        @Setup(Level.Trial)
+        public void seed() {
+            this.keys = KeyDistribution.UNIFORM.keys(Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    public Object deleteMinInsert(ThreadKeys keys) {
+        if (this.multiQueue != null) {
+            Heap.HeapItem item = this.multiQueue.deleteMin();
+            this.multiQueue.insert(keys.keys.next(), null);
+            return item;
+        }
+        this.lock.lock();
+        try {
+            Heap.HeapItem item = this.heap.findMin();
+            this.heap.deleteMin();
+            this.heap.insert(keys.keys.next(), null);
+            return item;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
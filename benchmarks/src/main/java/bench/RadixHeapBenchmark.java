@@ -0,0 +1,40 @@
+package bench;
+
+import heap.AddressableHeap;
+import heap.OperationTrace;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RadixHeap against the Fibonacci configurations and the array heaps on
+ * the same monotone trace, the shape of a Dijkstra run: nothing is
+ * inserted or decreased below the last deleted minimum. Scores are per
+ * trace replay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class RadixHeapBenchmark {
+    @Param({ "RADIX", "FIBONACCI", "FIBONACCI_LAZY_DECREASE_KEYS", "FIBONACCI_LAZY", "PAIRING", "BINARY",
+            "QUATERNARY" })
+    public AddressableHeap.Engine engine;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int prefill;
+
+    OperationTrace trace;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        this.trace = OperationTrace.monotone(42, 2 * this.prefill, this.prefill);
+    }
+
+    @Benchmark
+    public long replay() {
+        return this.trace.replay(this.engine, false);
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import heap.Heap;
+import heap.MultiQueue;
+
+/**
+ * Reports the rank error of MultiQueue.deleteMin for several shard and
+ * choice counts: the number of queued keys strictly smaller than the key
+ * that was returned. 0 means an exact priority queue.
+ *
+ * Usage: java -cp benchmarks.jar bench.RankErrorReport [size] [ops]
+ */
+public class RankErrorReport {
+    private static final int KEY_BITS = 20;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int[] shardCounts = { 4, 8, 16, 32, 64, 128 };
+        int[] choiceCounts = { 1, 2, 3, 4 };
+
+        System.out.printf("%8s %8s %14s %12s%n", "shards", "choices", "mean rank err", "max rank err");
+        for (int shards : shardCounts) {
+            for (int choices : choiceCounts) {
+                MultiQueue queue = new MultiQueue(shards, choices, 1024, false, false);
+                Fenwick present = new Fenwick(1 << KEY_BITS);
+                java.util.Random rand = new java.util.Random(shards * 31 + choices);
+                for (int i = 0; i < size; i++) {
+                    int key = rand.nextInt((1 << KEY_BITS) - 1) + 1;
+                    queue.insert(key, null);
+                    present.add(key, 1);
+                }
+                long total = 0;
+                long max = 0;
+                for (int i = 0; i < ops; i++) {
+                    Heap.HeapItem item = queue.deleteMin();
+                    long rank = present.prefix(item.key - 1);
+                    present.add(item.key, -1);
+                    total += rank;
+                    max = Math.max(max, rank);
+                    int key = rand.nextInt((1 << KEY_BITS) - 1) + 1;
+                    queue.insert(key, null);
+                    present.add(key, 1);
+                }
+                System.out.printf("%8d %8d %14.2f %12d%n", shards, choices, (double) total / ops, max);
+            }
+        }
+    }
+
+    /** Counts of present keys, with prefix sums in O(log range). */
+    private static final class Fenwick {
+        private final long[] tree;
+
+        Fenwick(int range) {
+            this.tree = new long[range + 1];
+        }
+
+        void add(int key, long delta) {
+            for (int i = key; i < this.tree.length; i += i & -i) {
+                this.tree[i] += delta;
+            }
+        }
+
+        long prefix(int key) {
+            long sum = 0;
+            for (int i = key; i > 0; i -= i & -i) {
+                sum += this.tree[i];
+            }
+            return sum;
+        }
+    }
+}
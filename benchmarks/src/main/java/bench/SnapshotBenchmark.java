@@ -0,0 +1,85 @@
+package bench;
+
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of a heap of size items: readSnapshot of a consolidated heap
+ * against inserting the same keys one by one. The AndPop variants add the
+ * first deleteMin, which the re-inserted heap pays a full consolidation for
+ * while the restored one already has its forest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class SnapshotBenchmark {
+    @Param({ "1000000", "10000000" })
+    public int size;
+
+    @Param({ "UNIFORM" })
+    public KeyDistribution distribution;
+
+    int[] keys;
+    Path file;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        KeyDistribution.Keys stream = this.distribution.keys(42);
+        this.keys = new int[this.size];
+        Heap heap = new Heap(false, false);
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = stream.next();
+            heap.insert(this.keys[i], null);
+        }
+        // pop one extra item, so the snapshot holds a consolidated forest
+        heap.insert(Integer.MIN_VALUE, null);
+        heap.deleteMin();
+        this.file = Files.createTempFile("heap", ".snapshot");
+        heap.writeSnapshot(this.file);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public Heap restore() throws IOException {
+        return Heap.readSnapshot(this.file);
+    }
+
+    @Benchmark
+    public Heap restoreAndPop() throws IOException {
+        Heap heap = Heap.readSnapshot(this.file);
+        heap.deleteMin();
+        return heap;
+    }
+
+    @Benchmark
+    public Heap reinsert() {
+        return reinsertAll();
+    }
+
+    @Benchmark
+    public Heap reinsertAndPop() {
+        Heap heap = reinsertAll();
+        heap.deleteMin();
+        return heap;
+    }
+
+    private Heap reinsertAll() {
+        Heap heap = new Heap(false, false);
+        for (int key : this.keys) {
+            heap.insert(key, null);
+        }
+        return heap;
+    }
+}
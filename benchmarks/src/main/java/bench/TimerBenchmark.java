@@ -0,0 +1,96 @@
+package bench;
+
+import heap.DelayScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule/cancel throughput of DelayScheduler against a
+ * ScheduledThreadPoolExecutor with the remove-on-cancel policy, both
+ * holding pending timers that are due in one to two hours. scheduleCancel
+ * cancels the oldest of them and schedules a replacement, so the count
+ * stays put. reschedule moves one of them; the executor has no such
+ * operation and pays a cancel and a schedule. TimerJitterReport gives the
+ * matching fire-time jitter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class TimerBenchmark {
+    private static final Runnable NOTHING = () -> { };
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Param({ "delay-scheduler", "scheduled-executor" })
+    public String scheduler;
+
+    @Param({ "1000000" })
+    public int pending;
+
+    DelayScheduler delayScheduler;
+    ScheduledThreadPoolExecutor executor;
+    DelayScheduler.Timer[] timers;
+    ScheduledFuture<?>[] futures;
+    SplittableRandom rand;
+    int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        this.rand = new SplittableRandom(42);
+        if (this.scheduler.equals("delay-scheduler")) {
+            this.delayScheduler = new DelayScheduler();
+            this.timers = new DelayScheduler.Timer[this.pending];
+            for (int i = 0; i < this.pending; i++) {
+                this.timers[i] = this.delayScheduler.schedule(NOTHING, delay(), TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.executor = new ScheduledThreadPoolExecutor(1);
+            this.executor.setRemoveOnCancelPolicy(true);
+            this.futures = new ScheduledFuture<?>[this.pending];
+            for (int i = 0; i < this.pending; i++) {
+                this.futures[i] = this.executor.schedule(NOTHING, delay(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (this.delayScheduler != null) {
+            this.delayScheduler.close();
+        } else {
+            this.executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public Object scheduleCancel() {
+        int i = this.next;
+        this.next = i + 1 == this.pending ? 0 : i + 1;
+        if (this.delayScheduler != null) {
+            this.delayScheduler.cancel(this.timers[i]);
+            return this.timers[i] = this.delayScheduler.schedule(NOTHING, delay(), TimeUnit.MILLISECONDS);
+        }
+        this.futures[i].cancel(false);
+        return this.futures[i] = this.executor.schedule(NOTHING, delay(), TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public Object reschedule() {
+        int i = this.rand.nextInt(this.pending);
+        if (this.delayScheduler != null) {
+            return this.delayScheduler.reschedule(this.timers[i], delay(), TimeUnit.MILLISECONDS);
+        }
+        this.futures[i].cancel(false);
+        return this.futures[i] = this.executor.schedule(NOTHING, delay(), TimeUnit.MILLISECONDS);
+    }
+
+    private long delay() {
+        return HOUR + this.rand.nextLong(HOUR);
+    }
+}
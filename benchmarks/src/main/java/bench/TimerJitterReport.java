@@ -0,0 +1,90 @@
+package bench;
+
+import heap.DelayScheduler;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports how late timers fire, in microseconds past their deadline, for
+ * DelayScheduler and ScheduledThreadPoolExecutor. Each run schedules
+ * timers due uniformly over two seconds on top of background timers due
+ * in an hour, which only make the queues deep, and records the lateness of
+ * every timer as seen by its task.
+ *
+ * Usage: java -cp benchmarks.jar bench.TimerJitterReport [timers] [background]
+ */
+public class TimerJitterReport {
+    private static final long SPREAD = TimeUnit.SECONDS.toNanos(2);
+
+    public static void main(String[] args) throws InterruptedException {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int background = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        System.out.printf("%-20s %10s %10s %10s %10s %10s%n", "scheduler", "p50 us", "p99 us", "p99.9 us", "max us",
+                "late > 1ms");
+        for (int run = 0; run < 2; run++) { // the first run of each only warms up
+            report("delay-scheduler", delayScheduler(timers, background), run == 1);
+            report("scheduled-executor", scheduledExecutor(timers, background), run == 1);
+        }
+    }
+
+    private static long[] delayScheduler(int timers, int background) throws InterruptedException {
+        long[] lateness = new long[timers];
+        CountDownLatch done = new CountDownLatch(timers);
+        try (DelayScheduler scheduler = new DelayScheduler()) {
+            for (int i = 0; i < background; i++) {
+                scheduler.schedule(() -> { }, 1, TimeUnit.HOURS);
+            }
+            SplittableRandom rand = new SplittableRandom(42);
+            for (int i = 0; i < timers; i++) {
+                int id = i;
+                long delay = rand.nextLong(SPREAD);
+                long deadline = System.nanoTime() + delay;
+                scheduler.schedule(() -> {
+                    lateness[id] = System.nanoTime() - deadline;
+                    done.countDown();
+                }, delay, TimeUnit.NANOSECONDS);
+            }
+            done.await();
+        }
+        return lateness;
+    }
+
+    private static long[] scheduledExecutor(int timers, int background) throws InterruptedException {
+        long[] lateness = new long[timers];
+        CountDownLatch done = new CountDownLatch(timers);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        for (int i = 0; i < background; i++) {
+            executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+        }
+        SplittableRandom rand = new SplittableRandom(42);
+        for (int i = 0; i < timers; i++) {
+            int id = i;
+            long delay = rand.nextLong(SPREAD);
+            long deadline = System.nanoTime() + delay;
+            executor.schedule(() -> {
+                lateness[id] = System.nanoTime() - deadline;
+                done.countDown();
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        done.await();
+        executor.shutdownNow();
+        return lateness;
+    }
+
+    private static void report(String name, long[] lateness, boolean print) {
+        if (!print) {
+            return;
+        }
+        Arrays.sort(lateness);
+        int n = lateness.length;
+        long late = Arrays.stream(lateness).filter(l -> l > TimeUnit.MILLISECONDS.toNanos(1)).count();
+        System.out.printf("%-20s %10.1f %10.1f %10.1f %10.1f %9.2f%%%n", name, lateness[n / 2] / 1e3,
+                lateness[(int) (n * 0.99)] / 1e3, lateness[(int) (n * 0.999)] / 1e3, lateness[n - 1] / 1e3,
+                100.0 * late / n);
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import heap.TopK;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeping the k largest keys of a stream: TopK against the
+ * usual PriorityQueue top-k, which checks each key against peek() and
+ * evicts by poll() and add(). Each measurement streams records keys, in
+ * batches of BATCH generated on the fly, through a fresh operator, so the
+ * score is the time for the whole stream and records / score is the
+ * throughput. Generation costs the same in both. UNIFORM keys rarely
+ * enter once the top k has filled; SORTED keys all enter, the worst case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TopKBenchmark {
+    private static final int BATCH = 4096;
+
+    @Param({ "top-k", "priority-queue" })
+    public String operator;
+
+    @Param({ "10", "1000", "100000" })
+    public int k;
+
+    @Param({ "1000000000" })
+    public long records;
+
+    @Param({ "UNIFORM" })
+    public KeyDistribution distribution;
+
+    final int[] batch = new int[BATCH];
+
+    @Benchmark
+    public int stream() {
+        KeyDistribution.Keys keys = this.distribution.keys(42);
+        TopK top = new TopK(this.k);
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, this.k));
+        boolean heap = this.operator.equals("top-k");
+        for (long done = 0; done < this.records; done += BATCH) {
+            for (int i = 0; i < BATCH; i++) {
+                this.batch[i] = keys.next();
+            }
+            if (heap) {
+                top.offerAll(this.batch);
+            } else {
+                offerAll(queue, this.batch);
+            }
+        }
+        return heap ? top.boundary() : queue.peek();
+    }
+
+    private void offerAll(PriorityQueue<Integer> queue, int[] batch) {
+        for (int key : batch) {
+            if (queue.size() < this.k) {
+                queue.add(key);
+            } else if (key > queue.peek()) {
+                queue.poll();
+                queue.add(key);
+            }
+        }
+    }
+}
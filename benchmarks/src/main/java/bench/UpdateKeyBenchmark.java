@@ -0,0 +1,75 @@
+package bench;
+
+import heap.Heap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of moving one item to a new key: updateKey against delete followed
+ * by insert. With change=increase every key grows by up to 1024, with
+ * change=random the new key is drawn afresh, so about half the updates are
+ * decreases. Nothing is popped, so every handle stays in the heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateKeyBenchmark {
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean lazyDecreaseKeys;
+
+    @Param({ "increase", "random" })
+    public String change;
+
+    Heap heap;
+    Heap.HeapItem[] items;
+    KeyDistribution.Keys keys;
+    int cursor;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        this.heap = new Heap(false, this.lazyDecreaseKeys);
+        this.keys = KeyDistribution.UNIFORM.keys(42);
+        this.items = new Heap.HeapItem[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.items[i] = this.heap.insert(this.keys.next(), null);
+        }
+        // one extra item to pop, so the forest is consolidated before measuring
+        this.heap.insert(1, null);
+        this.heap.deleteMin();
+    }
+
+    @Benchmark
+    public Heap.HeapItem updateKey() {
+        Heap.HeapItem x = this.items[next()];
+        this.heap.updateKey(x, newKey(x));
+        return x;
+    }
+
+    @Benchmark
+    public Heap.HeapItem deleteInsert() {
+        int i = next();
+        Heap.HeapItem x = this.items[i];
+        int key = newKey(x);
+        this.heap.delete(x);
+        this.items[i] = this.heap.insert(key, null);
+        return this.items[i];
+    }
+
+    // Visit the items in a scrambled but fixed order
+    private int next() {
+        this.cursor = (this.cursor + 0x9E3779B9) & Integer.MAX_VALUE;
+        return this.cursor % this.size;
+    }
+
+    private int newKey(Heap.HeapItem x) {
+        int key = this.keys.next();
+        return this.change.equals("increase") ? x.key + (key & 1023) : key;
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.function.Supplier;
+
+/**
+ * AddressableHeap
+ *
+ * The operations of an addressable priority queue over positive integers,
+ * as offered by Heap. insert returns a handle of type H through which the
+ * item can later be decreased or deleted. A handle stays valid until its
+ * item leaves the heap.
+ *
+ */
+public interface AddressableHeap<H> {
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return its handle.
+     *
+     */
+    H insert(int key, String info);
+
+    /**
+     *
+     * Return the handle of the minimal item, null if empty.
+     *
+     */
+    H findMin();
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    void deleteMin();
+
+    /**
+     *
+     * pre: 0<=diff<=key(x)
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    void decreaseKey(H x, int diff);
+
+    /**
+     *
+     * Delete x from the heap.
+     *
+     */
+    void delete(H x);
+
+    /**
+     *
+     * Meld the heap with heap2, leaving heap2 empty.
+     * pre: heap2 is the same engine in the same configuration
+     *
+     */
+    void meld(AddressableHeap<H> heap2);
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    int size();
+
+    /**
+     *
+     * Return the key of x.
+     *
+     */
+    int key(H x);
+
+    /**
+     *
+     * Return the info of x.
+     *
+     */
+    String info(H x);
+
+    /**
+     * The available engines, so callers can pick one per workload at construction.
+     *
+     */
+    enum Engine {
+        FIBONACCI(() -> new Heap(false, false)),
+        FIBONACCI_LAZY_DECREASE_KEYS(() -> new Heap(false, true)),
+        FIBONACCI_LAZY_MELDS(() -> new Heap(true, false, Heap.ConsolidationTrigger.ratioToLogSize(2))),
+        FIBONACCI_LAZY(() -> new Heap(true, true, Heap.ConsolidationTrigger.ratioToLogSize(2))),
+        FIBONACCI_LAZY_DELETES(() -> new Heap(false, true, Heap.ConsolidationTrigger.NEVER, 0.5)),
+        FIBONACCI_COMPACT(() -> new CompactHeap(false, false)),
+        FIBONACCI_COMPACT_LAZY_DECREASE_KEYS(() -> new CompactHeap(false, true)),
+        PAIRING(PairingHeap::new),
+        RANK_PAIRING(RankPairingHeap::new),
+        BINARY(() -> new DAryHeap(2)),
+        QUATERNARY(() -> new DAryHeap(4)),
+        OCTONARY(() -> new DAryHeap(8)),
+        RADIX(RadixHeap::new, true);
+
+        private final Supplier<AddressableHeap<?>> factory;
+        private final boolean monotone;
+
+        Engine(Supplier<AddressableHeap<?>> factory) {
+            this(factory, false);
+        }
+
+        Engine(Supplier<AddressableHeap<?>> factory, boolean monotone) {
+            this.factory = factory;
+            this.monotone = monotone;
+        }
+
+        /**
+         *
+         * Return a new empty heap of this engine.
+         *
+         */
+        public AddressableHeap<?> create() {
+            return this.factory.get();
+        }
+
+        /**
+         *
+         * Return true if the engine only accepts keys at or above its last minimum.
+         *
+         */
+        public boolean monotone() {
+            return this.monotone;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.util.*;
+
+/**
+ * AddressableHeapTest - Replays a random trace and a monotone trace on every
+ * AddressableHeap engine, checking each minimum against a shadow queue.
+ * Monotone engines only replay the monotone trace.
+ */
+public class AddressableHeapTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        Random rand = new Random(2009);
+        OperationTrace trace = OperationTrace.random(rand.nextLong(), 20000, 2000);
+        OperationTrace monotoneTrace = OperationTrace.monotone(rand.nextLong(), 20000, 2000);
+        for (AddressableHeap.Engine engine : AddressableHeap.Engine.values()) {
+            try {
+                if (!engine.monotone()) {
+                    trace.replay(engine, true);
+                }
+                monotoneTrace.replay(engine, true);
+            } catch (RuntimeException e) {
+                failures++;
+                System.out.println("FAILED: " + engine + " - " + e);
+            }
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * AllocationBenchmark - Measures the bytes allocated per deleteMin on a
+ * populated heap, for all 4 configurations.
+ *
+ * Inserting allocates the node and item by design, so the heap is filled
+ * first and only the pop phase is measured. The rank table is created on
+ * the first consolidation, which the warm-up round covers.
+ */
+public class AllocationBenchmark {
+    private static final int SIZE = 200000;
+    private static final int POPS = 100000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+
+        System.out.printf("%-22s %14s %14s%n", "config", "bytes/pop", "ns/pop");
+        for (boolean[] cfg : configs) {
+            // lazy melds never consolidate and rescan the whole root list, so keep that run short
+            int pops = cfg[0] ? POPS / 100 : POPS;
+            double bytesPerPop = 0;
+            double nsPerPop = 0;
+            for (int round = 0; round <= ROUNDS; round++) {
+                Heap heap = fill(cfg[0], cfg[1], new Random(round));
+                heap.deleteMin(); // first consolidation sizes the rank table
+
+                long bytes = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                for (int i = 0; i < pops; i++) {
+                    heap.deleteMin();
+                }
+                long elapsed = System.nanoTime() - start;
+                bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+                if (round > 0) { // round 0 is warm-up
+                    bytesPerPop += (double) bytes / pops / ROUNDS;
+                    nsPerPop += (double) elapsed / pops / ROUNDS;
+                }
+            }
+            System.out.printf("%-22s %14.3f %14.1f%n", "LM=" + cfg[0] + "_LD=" + cfg[1], bytesPerPop, nsPerPop);
+        }
+    }
+
+    // Populate a heap and run decreaseKeys so deleteMin has trees and marks to deal with
+    private static Heap fill(boolean lazyMelds, boolean lazyDecreaseKeys, Random rand) {
+        Heap heap = new Heap(lazyMelds, lazyDecreaseKeys);
+        Heap.HeapItem[] items = new Heap.HeapItem[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            items[i] = heap.insert(rand.nextInt(1000000) + 1000, null);
+        }
+        Heap.HeapItem removed = heap.findMin();
+        heap.deleteMin();
+        for (int i = 0; i < SIZE / 10; i++) {
+            Heap.HeapItem item = items[rand.nextInt(SIZE)];
+            if (item != removed && item.key > 1) {
+                heap.decreaseKey(item, rand.nextInt(item.key - 1));
+            }
+        }
+        return heap;
+    }
+}
@@ -0,0 +1,664 @@
+import java.util.Arrays;
+
+/**
+ * ArrayHeap
+ *
+ * A Fibonacci heap over positive integers that keeps its nodes in parallel
+ * primitive arrays instead of HeapNode/HeapItem objects.
+ * Items are identified by int handles, which stay valid until the item
+ * is removed from the heap (handles of removed items are reused).
+ *
+ * The engine performs exactly the same sequence of links, cuts and
+ * heapify swaps as Heap for the same sequence of operations.
+ *
+ */
+public class ArrayHeap {
+    public static final int NIL = -1;
+    private static final int MAX_RANK = 64; // ranks are bounded by log_phi(Integer.MAX_VALUE) < 45
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public final boolean lazyMelds;
+    public final boolean lazyDecreaseKeys;
+
+    // node table, indexed by node slot
+    private int[] key;
+    private int[] parent;
+    private int[] child;
+    private int[] next;
+    private int[] prev;
+    private int[] rank;
+    private int[] mark;
+    private int[] item; // handle currently stored in the node
+
+    // handle table, indexed by handle
+    private int[] node; // node slot holding the handle, or a free-list link (< 0) when unused
+    private String[] info;
+
+    private final int[] buckets = new int[MAX_RANK];
+    private int used; // slots [0, used) have been handed out at least once
+    private int freeNodes = NIL; // free node slots, chained through next[]
+    private int freeHandles = NIL; // free handles, chained through node[]
+
+    private int min = NIL;
+    private int first = NIL;
+    private int size;
+    private int totalMarks = 0;
+    private int totalLinks = 0;
+    private int totalCuts = 0;
+    private int totalHeapifyOps = 0;
+
+    /**
+     *
+     * Constructor to initialize an empty heap.
+     *
+     */
+    public ArrayHeap(boolean lazyMelds, boolean lazyDecreaseKeys) {
+        this(lazyMelds, lazyDecreaseKeys, DEFAULT_CAPACITY);
+    }
+
+    /**
+     *
+     * Constructor to initialize an empty heap with room for capacity items
+     * before the arrays have to grow.
+     *
+     */
+    public ArrayHeap(boolean lazyMelds, boolean lazyDecreaseKeys, int capacity) {
+        this.lazyMelds = lazyMelds;
+        this.lazyDecreaseKeys = lazyDecreaseKeys;
+        allocate(Math.max(capacity, 1));
+        Arrays.fill(this.buckets, NIL);
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return the handle of the new item.
+     *
+     */
+    public int insert(int key, String info) {
+        int x = newNode();
+        int h = newHandle();
+        this.key[x] = key;
+        this.item[x] = h;
+        this.node[h] = x;
+        if (info != null) {
+            ensureInfo();
+            this.info[h] = info;
+        } else if (this.info != null) {
+            this.info[h] = null;
+        }
+
+        if (this.size == 0) {
+            this.min = h;
+            this.first = x;
+            this.next[x] = x;
+            this.prev[x] = x;
+        } else {
+            // add to the root list (circular) before first
+            int last = this.prev[this.first];
+            this.next[last] = x;
+            this.prev[x] = last;
+            this.next[x] = this.first;
+            this.prev[this.first] = x;
+            if (key < this.key[this.node[this.min]]) {
+                this.min = h;
+            }
+        }
+
+        this.size++;
+        return h;
+    }
+
+    /**
+     *
+     * Insert key without an info string and return its handle.
+     *
+     */
+    public int insert(int key) {
+        return insert(key, null);
+    }
+
+    /**
+     *
+     * Return the handle of the minimal item, NIL if empty.
+     *
+     */
+    public int findMin() {
+        return this.min;
+    }
+
+    /**
+     *
+     * Return the key of the item with handle h.
+     *
+     */
+    public int key(int h) {
+        return this.key[this.node[h]];
+    }
+
+    /**
+     *
+     * Return the info of the item with handle h.
+     *
+     */
+    public String info(int h) {
+        return this.info == null ? null : this.info[h];
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        if (this.min == NIL) {
+            return;
+        }
+
+        removeRoot(this.node[this.min]);
+
+        if (this.size == 0) {
+            this.min = NIL;
+        } else {
+            if (!this.lazyMelds) {
+                this.first = consolidate(this.first);
+            }
+
+            // Find minimum in root list
+            int current = this.first;
+            int newMin = current;
+            current = this.next[current];
+            while (current != this.first) {
+                if (this.key[current] < this.key[newMin]) {
+                    newMin = current;
+                }
+                current = this.next[current];
+            }
+            this.min = this.item[newMin];
+        }
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=key(h)
+     *
+     * Decrease the key of h by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(int h, int diff) {
+        if (h == NIL) {
+            return;
+        }
+
+        int x = this.node[h];
+        this.key[x] -= diff;
+        if (this.key[x] < this.key[this.node[this.min]]) {
+            this.min = h;
+        }
+
+        if (!this.lazyDecreaseKeys) {
+            heapifyUp(x);
+        } else {
+            int p = this.parent[x];
+            if (p != NIL && this.key[x] < this.key[p]) {
+                if (this.mark[x] != 0) {
+                    this.totalMarks--; // cut clears the mark of the new root
+                }
+                cascadingCut(x, p);
+            }
+        }
+    }
+
+    /**
+     *
+     * Delete the item h from the heap. As in Heap, h is cut out (or swapped
+     * up to its root) and only deleting the minimum consolidates.
+     *
+     */
+    public void delete(int h) {
+        if (h == NIL) {
+            return;
+        }
+        if (h == this.min) {
+            deleteMin();
+            return;
+        }
+
+        int x = this.node[h];
+        if (this.mark[x] != 0) {
+            this.totalMarks--;
+            this.mark[x] = 0;
+        }
+        int p = this.parent[x];
+        if (p != NIL) {
+            if (this.lazyDecreaseKeys) {
+                cascadingCut(x, p);
+            } else {
+                // the swaps a decrease to -1 would make, without touching min
+                do {
+                    this.totalHeapifyOps++;
+                    this.key[x] = this.key[p];
+                    this.item[x] = this.item[p];
+                    this.node[this.item[x]] = x;
+                    x = p;
+                } while ((p = this.parent[x]) != NIL);
+                this.item[x] = h;
+                this.node[h] = x;
+            }
+        }
+        removeRoot(x);
+    }
+
+    /**
+     *
+     * Meld the heap with heap2 and return the offset to add to every handle
+     * of heap2 to obtain its handle in this heap.
+     * The node table of heap2 is copied, so this costs O(heap2 capacity).
+     * pre: heap2.lazyMelds = this.lazyMelds AND heap2.lazyDecreaseKeys =
+     * this.lazyDecreaseKeys
+     *
+     */
+    public int meld(ArrayHeap heap2) {
+        if (heap2 == null || heap2 == this) {
+            return 0;
+        }
+        if (!(heap2.lazyMelds == this.lazyMelds && heap2.lazyDecreaseKeys == this.lazyDecreaseKeys)) {
+            return 0;
+        }
+        if (heap2.size == 0) {
+            return 0;
+        }
+
+        int offset = this.used;
+        copyFrom(heap2, offset);
+        int first2 = heap2.first + offset;
+        int min2 = heap2.min + offset;
+
+        if (this.size == 0) {
+            this.first = first2;
+            this.min = min2;
+        } else {
+            // concatenate root lists (both circular)
+            int aLast = this.prev[this.first];
+            int bLast = this.prev[first2];
+
+            this.next[aLast] = first2;
+            this.prev[first2] = aLast;
+
+            this.next[bLast] = this.first;
+            this.prev[this.first] = bLast;
+
+            if (this.key[this.node[min2]] < this.key[this.node[this.min]]) {
+                this.min = min2;
+            }
+        }
+        this.size += heap2.size;
+        this.totalMarks += heap2.totalMarks;
+
+        heap2.clear();
+        return offset;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     *
+     * Return the number of trees in the heap.
+     *
+     */
+    public int numTrees() // O(number of trees)
+    {
+        if (this.first == NIL) {
+            return 0;
+        }
+        int count = 1;
+        for (int x = this.next[this.first]; x != this.first; x = this.next[x]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     *
+     * Return the number of marked nodes in the heap.
+     *
+     */
+    public int numMarkedNodes() {
+        if (this.lazyDecreaseKeys)
+            return this.totalMarks;
+        return 0;
+    }
+
+    /**
+     *
+     * Return the total number of links.
+     *
+     */
+    public int totalLinks() {
+        return this.totalLinks;
+    }
+
+    /**
+     *
+     * Return the total number of cuts.
+     *
+     */
+    public int totalCuts() {
+        return this.totalCuts;
+    }
+
+    /**
+     *
+     * Return the total heapify costs.
+     *
+     */
+    public int totalHeapifyCosts() {
+        return this.totalHeapifyOps;
+    }
+
+    private void heapifyUp(int x) {
+        int p;
+        while ((p = this.parent[x]) != NIL && this.key[x] < this.key[p]) {
+            this.totalHeapifyOps++;
+            // swap only the items (key and handle) between the nodes
+            int k = this.key[p];
+            int h = this.item[p];
+            this.key[p] = this.key[x];
+            this.item[p] = this.item[x];
+            this.node[this.item[p]] = p;
+            this.key[x] = k;
+            this.item[x] = h;
+            this.node[h] = x;
+            if (this.min == NIL || this.key[p] < this.key[this.node[this.min]]) {
+                this.min = this.item[p];
+            }
+            x = p;
+        }
+    }
+
+    // Replace the root x by its children in the root list and free x, first moves to the root after x
+    private void removeRoot(int x) {
+        int c = this.child[x];
+        if (c != NIL) {
+            int y = c;
+            do {
+                this.parent[y] = NIL;
+                y = this.next[y];
+            } while (y != c);
+        }
+
+        int xNext = this.next[x];
+        int xPrev = this.prev[x];
+        if (xNext == x) {
+            this.first = c;
+        } else if (c == NIL) {
+            this.next[xPrev] = xNext;
+            this.prev[xNext] = xPrev;
+            this.first = xNext;
+        } else {
+            int childLast = this.prev[c];
+            this.next[xPrev] = c;
+            this.prev[c] = xPrev;
+            this.next[childLast] = xNext;
+            this.prev[xNext] = childLast;
+            this.first = xNext;
+        }
+
+        if (this.mark[x] != 0) {
+            this.totalMarks--;
+        }
+        free(x, this.item[x]);
+        this.size--;
+    }
+
+    private void cut(int x, int y) {
+        this.totalCuts++;
+        this.parent[x] = NIL;
+        this.mark[x] = 0;
+        this.rank[y]--;
+        if (this.next[x] == x) {
+            this.child[y] = NIL;
+        } else {
+            this.child[y] = this.next[x];
+            this.next[this.prev[x]] = this.next[x];
+            this.prev[this.next[x]] = this.prev[x];
+        }
+
+        // Add to root list
+        int last = this.prev[this.first];
+        this.next[last] = x;
+        this.prev[x] = last;
+        this.next[x] = this.first;
+        this.prev[this.first] = x;
+    }
+
+    private void cascadingCut(int x, int y) {
+        cut(x, y);
+        while (this.parent[y] != NIL) {
+            if (this.mark[y] == 0) {
+                this.mark[y] = 1;
+                this.totalMarks++;
+                return;
+            }
+            this.totalMarks--;
+            x = y;
+            y = this.parent[y];
+            cut(x, y);
+        }
+    }
+
+    // Successive linking of the root list starting at x, returns the new min root
+    private int consolidate(int x) {
+        int[] buckets = this.buckets;
+        int maxRank = 0;
+        this.next[this.prev[x]] = NIL; // break circularity
+        int current = x;
+        while (current != NIL) {
+            int y = current;
+            current = this.next[current];
+            while (buckets[this.rank[y]] != NIL) {
+                y = link(y, buckets[this.rank[y]]);
+                buckets[this.rank[y] - 1] = NIL;
+            }
+            buckets[this.rank[y]] = y;
+            if (this.rank[y] > maxRank) {
+                maxRank = this.rank[y];
+            }
+        }
+
+        // rebuild the root list in rank order, inserting after the running min
+        int m = NIL;
+        for (int i = 0; i <= maxRank; i++) {
+            int b = buckets[i];
+            if (b == NIL) {
+                continue;
+            }
+            buckets[i] = NIL;
+            if (m == NIL) {
+                m = b;
+                this.next[b] = b;
+                this.prev[b] = b;
+            } else {
+                insertAfter(m, b);
+                if (this.key[b] < this.key[m]) {
+                    m = b;
+                }
+            }
+        }
+        return m;
+    }
+
+    private int link(int x, int y) {
+        this.totalLinks++;
+        if (this.key[x] < this.key[y]) {
+            addChild(x, y);
+            return x;
+        } else {
+            addChild(y, x);
+            return y;
+        }
+    }
+
+    // Make c the last child of p
+    private void addChild(int p, int c) {
+        int pc = this.child[p];
+        if (pc == NIL) {
+            this.child[p] = c;
+            this.next[c] = c;
+            this.prev[c] = c;
+        } else {
+            insertAfter(this.prev[pc], c);
+        }
+        this.parent[c] = p;
+        this.rank[p]++;
+    }
+
+    private void insertAfter(int x, int y) {
+        this.next[y] = this.next[x];
+        this.prev[this.next[x]] = y;
+        this.next[x] = y;
+        this.prev[y] = x;
+    }
+
+    private int newNode() {
+        int x = this.freeNodes;
+        if (x != NIL) {
+            this.freeNodes = this.next[x];
+        } else {
+            if (this.used == this.key.length) {
+                grow(this.key.length * 2);
+            }
+            x = this.used++;
+        }
+        this.parent[x] = NIL;
+        this.child[x] = NIL;
+        this.rank[x] = 0;
+        this.mark[x] = 0;
+        return x;
+    }
+
+    // Every live handle owns exactly one node, so handle slots are recycled alongside node slots
+    private int newHandle() {
+        int h = this.freeHandles;
+        if (h != NIL) {
+            this.freeHandles = -2 - this.node[h];
+            return h;
+        }
+        return this.used - 1;
+    }
+
+    private void free(int x, int h) {
+        this.next[x] = this.freeNodes;
+        this.freeNodes = x;
+        this.node[h] = -2 - this.freeHandles;
+        this.freeHandles = h;
+        if (this.info != null) {
+            this.info[h] = null;
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.key = new int[capacity];
+        this.parent = new int[capacity];
+        this.child = new int[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.rank = new int[capacity];
+        this.mark = new int[capacity];
+        this.item = new int[capacity];
+        this.node = new int[capacity];
+    }
+
+    private void grow(int capacity) {
+        this.key = Arrays.copyOf(this.key, capacity);
+        this.parent = Arrays.copyOf(this.parent, capacity);
+        this.child = Arrays.copyOf(this.child, capacity);
+        this.next = Arrays.copyOf(this.next, capacity);
+        this.prev = Arrays.copyOf(this.prev, capacity);
+        this.rank = Arrays.copyOf(this.rank, capacity);
+        this.mark = Arrays.copyOf(this.mark, capacity);
+        this.item = Arrays.copyOf(this.item, capacity);
+        this.node = Arrays.copyOf(this.node, capacity);
+        if (this.info != null) {
+            this.info = Arrays.copyOf(this.info, capacity);
+        }
+    }
+
+    private void ensureInfo() {
+        if (this.info == null) {
+            this.info = new String[this.key.length];
+        }
+    }
+
+    // Append the node and handle tables of heap2 at slot offset, shifting every link by offset
+    private void copyFrom(ArrayHeap heap2, int offset) {
+        int n = heap2.used;
+        if (offset + n > this.key.length) {
+            grow(Math.max(this.key.length * 2, offset + n));
+        }
+        System.arraycopy(heap2.key, 0, this.key, offset, n);
+        System.arraycopy(heap2.rank, 0, this.rank, offset, n);
+        System.arraycopy(heap2.mark, 0, this.mark, offset, n);
+        shiftCopy(heap2.parent, this.parent, offset, n);
+        shiftCopy(heap2.child, this.child, offset, n);
+        shiftCopy(heap2.next, this.next, offset, n);
+        shiftCopy(heap2.prev, this.prev, offset, n);
+        shiftCopy(heap2.item, this.item, offset, n);
+        for (int i = 0; i < n; i++) {
+            int x = heap2.node[i];
+            // free-list links are stored as -2 - next, so shift them the other way
+            this.node[offset + i] = x >= 0 ? x + offset : (x == NIL ? NIL : x - offset);
+        }
+        if (heap2.info != null) {
+            ensureInfo();
+            System.arraycopy(heap2.info, 0, this.info, offset, n);
+        }
+        this.used = offset + n;
+
+        // splice the free lists of heap2 in front of ours
+        if (heap2.freeNodes != NIL) {
+            int x = heap2.freeNodes + offset;
+            while (this.next[x] != NIL) {
+                x = this.next[x];
+            }
+            this.next[x] = this.freeNodes;
+            this.freeNodes = heap2.freeNodes + offset;
+        }
+        if (heap2.freeHandles != NIL) {
+            int h = heap2.freeHandles + offset;
+            while (this.node[h] != NIL) {
+                h = -2 - this.node[h];
+            }
+            this.node[h] = -2 - this.freeHandles;
+            this.freeHandles = heap2.freeHandles + offset;
+        }
+    }
+
+    private static void shiftCopy(int[] src, int[] dst, int offset, int n) {
+        for (int i = 0; i < n; i++) {
+            int v = src[i];
+            dst[offset + i] = v == NIL ? NIL : v + offset;
+        }
+    }
+
+    private void clear() {
+        this.used = 0;
+        this.freeNodes = NIL;
+        this.freeHandles = NIL;
+        this.first = NIL;
+        this.min = NIL;
+        this.size = 0;
+        this.totalMarks = 0;
+        if (this.info != null) {
+            Arrays.fill(this.info, null);
+        }
+    }
+}
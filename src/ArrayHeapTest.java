@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * ArrayHeapTest - Runs identical random operation sequences on Heap,
+ * ArrayHeap, OffHeapHeap and CompactHeap in all 4 configurations and checks
+ * that min, size, tree count and the link/cut/heapify/mark counters agree
+ * after every operation.
+ */
+public class ArrayHeapTest {
+    private static final int OPS = 20000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        for (boolean[] cfg : configs) {
+            try (OffHeapHeap offHeap = new OffHeapHeap(cfg[0], cfg[1], 4)) {
+                run(cfg[0], cfg[1], offHeap, new Random(2024));
+            }
+        }
+
+        // same trace with the off-heap table mapped from a file
+        Path file = Files.createTempFile("offheap", ".bin");
+        try (OffHeapHeap mapped = new OffHeapHeap(false, true, file, 4)) {
+            run(false, true, mapped, new Random(2024));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, OffHeapHeap offHeap, Random rand)
+            throws IOException {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys;
+        Heap heap = new Heap(lazyMelds, lazyDecreaseKeys);
+        ArrayHeap arrayHeap = new ArrayHeap(lazyMelds, lazyDecreaseKeys, 4);
+        CompactHeap compact = new CompactHeap(lazyMelds, lazyDecreaseKeys);
+        List<Heap.HeapItem> items = new ArrayList<>();
+        List<Integer> handles = new ArrayList<>();
+        List<CompactHeap.Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < OPS; i++) {
+            int op = rand.nextInt(100);
+            if (op < 35 || items.isEmpty()) {
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                items.add(heap.insert(key, "V" + key));
+                handles.add(arrayHeap.insert(key, "V" + key));
+                nodes.add(compact.insert(key, "V" + key));
+                offHeap.insert(key);
+            } else if (op < 55) {
+                Heap.HeapItem minItem = heap.findMin();
+                int idx = items.indexOf(minItem);
+                heap.deleteMin();
+                arrayHeap.deleteMin();
+                offHeap.deleteMin();
+                compact.deleteMin();
+                items.remove(idx);
+                handles.remove(idx);
+                nodes.remove(idx);
+            } else if (op < 80) {
+                int idx = rand.nextInt(items.size());
+                int diff = rand.nextInt(items.get(idx).key);
+                heap.decreaseKey(items.get(idx), diff);
+                arrayHeap.decreaseKey(handles.get(idx), diff);
+                offHeap.decreaseKey(handles.get(idx), diff);
+                compact.decreaseKey(nodes.get(idx), diff);
+            } else if (op < 92) {
+                int idx = rand.nextInt(items.size());
+                heap.delete(items.remove(idx));
+                offHeap.delete(handles.get(idx));
+                arrayHeap.delete(handles.remove(idx));
+                compact.delete(nodes.remove(idx));
+            } else {
+                Heap other = new Heap(lazyMelds, lazyDecreaseKeys);
+                ArrayHeap otherArray = new ArrayHeap(lazyMelds, lazyDecreaseKeys);
+                OffHeapHeap otherOffHeap = new OffHeapHeap(lazyMelds, lazyDecreaseKeys, 16);
+                CompactHeap otherCompact = new CompactHeap(lazyMelds, lazyDecreaseKeys);
+                List<Heap.HeapItem> otherItems = new ArrayList<>();
+                List<Integer> otherHandles = new ArrayList<>();
+                List<CompactHeap.Node> otherNodes = new ArrayList<>();
+                int n = rand.nextInt(50);
+                for (int j = 0; j < n; j++) {
+                    int key = rand.nextInt(KEY_RANGE) + 1;
+                    otherItems.add(other.insert(key, null));
+                    otherHandles.add(otherArray.insert(key));
+                    otherOffHeap.insert(key);
+                    otherNodes.add(otherCompact.insert(key, null));
+                }
+                if (n > 0) {
+                    // leave a hole in the other table so meld also has to splice its free lists
+                    int j = rand.nextInt(n);
+                    other.delete(otherItems.remove(j));
+                    otherOffHeap.delete(otherHandles.get(j));
+                    otherArray.delete(otherHandles.remove(j));
+                    otherCompact.delete(otherNodes.remove(j));
+                }
+                if (otherItems.size() > 1) {
+                    // link the other heaps and decrease some of their items, so that meld also moves marked nodes
+                    int j = otherItems.indexOf(other.findMin());
+                    other.deleteMin();
+                    otherArray.deleteMin();
+                    otherOffHeap.deleteMin();
+                    otherCompact.deleteMin();
+                    otherItems.remove(j);
+                    otherHandles.remove(j);
+                    otherNodes.remove(j);
+                    for (int d = 0; d < otherItems.size(); d++) {
+                        int k = rand.nextInt(otherItems.size());
+                        int diff = rand.nextInt(otherItems.get(k).key);
+                        other.decreaseKey(otherItems.get(k), diff);
+                        otherArray.decreaseKey(otherHandles.get(k), diff);
+                        otherOffHeap.decreaseKey(otherHandles.get(k), diff);
+                        otherCompact.decreaseKey(otherNodes.get(k), diff);
+                    }
+                }
+                heap.meld(other);
+                compact.meld(otherCompact);
+                int offset = arrayHeap.meld(otherArray);
+                if (offHeap.meld(otherOffHeap) != offset) {
+                    failures++;
+                    System.out.println(name + ": op " + i + " - meld offsets differ");
+                    return;
+                }
+                otherOffHeap.close();
+                for (int j = 0; j < otherHandles.size(); j++) {
+                    otherHandles.set(j, otherHandles.get(j) + offset);
+                }
+                items.addAll(otherItems);
+                handles.addAll(otherHandles);
+                nodes.addAll(otherNodes);
+            }
+            if (!check(name, i, heap, arrayHeap, items, handles) || !check(name, i, arrayHeap, offHeap, handles)
+                    || !check(name, i, heap, compact, items, nodes)) {
+                return;
+            }
+        }
+        System.out.println(name + ": links=" + heap.totalLinks() + " cuts=" + heap.totalCuts()
+                + " heapify=" + heap.totalHeapifyCosts() + " trees=" + heap.numTrees() + " - OK");
+    }
+
+    private static boolean check(String name, int op, Heap heap, ArrayHeap arrayHeap,
+            List<Heap.HeapItem> items, List<Integer> handles) {
+        String error = null;
+        if (heap.size() != arrayHeap.size()) {
+            error = "size " + heap.size() + " vs " + arrayHeap.size();
+        } else if (heap.size() > 0 && arrayHeap.findMin() < 0) {
+            error = "NIL min";
+        } else if (heap.size() > 0 && heap.findMin().key != arrayHeap.key(arrayHeap.findMin())) {
+            error = "min " + heap.findMin().key + " vs " + arrayHeap.key(arrayHeap.findMin());
+        } else if (heap.numTrees() != arrayHeap.numTrees()) {
+            error = "numTrees " + heap.numTrees() + " vs " + arrayHeap.numTrees();
+        } else if (heap.totalLinks() != arrayHeap.totalLinks()) {
+            error = "totalLinks " + heap.totalLinks() + " vs " + arrayHeap.totalLinks();
+        } else if (heap.totalCuts() != arrayHeap.totalCuts()) {
+            error = "totalCuts " + heap.totalCuts() + " vs " + arrayHeap.totalCuts();
+        } else if (heap.totalHeapifyCosts() != arrayHeap.totalHeapifyCosts()) {
+            error = "totalHeapifyCosts " + heap.totalHeapifyCosts() + " vs " + arrayHeap.totalHeapifyCosts();
+        } else if (heap.numMarkedNodes() != arrayHeap.numMarkedNodes()) {
+            error = "numMarkedNodes " + heap.numMarkedNodes() + " vs " + arrayHeap.numMarkedNodes();
+        } else {
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i).key != arrayHeap.key(handles.get(i))) {
+                    error = "key of item " + i + ": " + items.get(i).key + " vs " + arrayHeap.key(handles.get(i));
+                    break;
+                }
+            }
+        }
+        if (error != null) {
+            failures++;
+            System.out.println(name + ": op " + op + " - " + error);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean check(String name, int op, Heap heap, CompactHeap compact, List<Heap.HeapItem> items,
+            List<CompactHeap.Node> nodes) {
+        String error = null;
+        if (heap.size() != compact.size() || (heap.size() > 0 && heap.findMin().key != compact.findMin().key)) {
+            error = "compact size/min differ";
+        } else if (heap.numTrees() != compact.numTrees()
+                || heap.totalLinks() != compact.totalLinks()
+                || heap.totalCuts() != compact.totalCuts()
+                || heap.totalHeapifyCosts() != compact.totalHeapifyCosts()
+                || heap.numMarkedNodes() != compact.numMarkedNodes()) {
+            error = "compact counters differ";
+        } else {
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i).key != nodes.get(i).key) {
+                    error = "compact key of item " + i + ": " + items.get(i).key + " vs " + nodes.get(i).key;
+                    break;
+                }
+            }
+        }
+        if (error != null) {
+            failures++;
+            System.out.println(name + ": op " + op + " - " + error);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean check(String name, int op, ArrayHeap arrayHeap, OffHeapHeap offHeap,
+            List<Integer> handles) {
+        String error = null;
+        if (arrayHeap.size() != offHeap.size() || arrayHeap.findMin() != offHeap.findMin()) {
+            error = "off-heap size/min differ";
+        } else if (arrayHeap.numTrees() != offHeap.numTrees()
+                || arrayHeap.totalLinks() != offHeap.totalLinks()
+                || arrayHeap.totalCuts() != offHeap.totalCuts()
+                || arrayHeap.totalHeapifyCosts() != offHeap.totalHeapifyCosts()
+                || arrayHeap.numMarkedNodes() != offHeap.numMarkedNodes()) {
+            error = "off-heap counters differ";
+        } else {
+            for (int h : handles) {
+                if (arrayHeap.key(h) != offHeap.key(h)) {
+                    error = "off-heap key of handle " + h + ": " + arrayHeap.key(h) + " vs " + offHeap.key(h);
+                    break;
+                }
+            }
+        }
+        if (error != null) {
+            failures++;
+            System.out.println(name + ": op " + op + " - " + error);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.*;
+
+/**
+ * BatchPopTest - Pops the same heap with deleteMinBatch and with repeated
+ * deleteMin, in all 4 configurations, with and without decreaseKeys first,
+ * and once more after melding in a second such heap. It checks after
+ * every batch that both return the same keys and keep the same size,
+ * minimum and mark count, and that the mark count matches the marked nodes
+ * of the forest.
+ */
+public class BatchPopTest {
+    private static final int SIZE = 3000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2007);
+        for (boolean[] cfg : configs) {
+            for (int decreases : new int[] { 0, 3000 }) {
+                run(cfg[0], cfg[1], decreases, rand);
+            }
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, int decreases, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys + "_decreases=" + decreases;
+        Heap oneByOne = new Heap(lazyMelds, lazyDecreaseKeys);
+        Heap batched = new Heap(lazyMelds, lazyDecreaseKeys);
+        Set<Integer> used = new HashSet<>();
+        fill(oneByOne, batched, decreases, used, rand);
+        check(name, oneByOne, batched, rand);
+
+        // the same on heaps that took in the marked nodes of another heap by a meld
+        oneByOne = new Heap(lazyMelds, lazyDecreaseKeys);
+        batched = new Heap(lazyMelds, lazyDecreaseKeys);
+        Heap looseAside = new Heap(lazyMelds, lazyDecreaseKeys);
+        Heap batchAside = new Heap(lazyMelds, lazyDecreaseKeys);
+        used.clear();
+        fill(oneByOne, batched, decreases, used, rand);
+        fill(looseAside, batchAside, decreases, used, rand);
+        oneByOne.meld(looseAside);
+        batched.meld(batchAside);
+        check(name + "_melded", oneByOne, batched, rand);
+    }
+
+    // Insert the same keys into both heaps, consolidate them and decrease the same items in both. Keys stay
+    // distinct, so that both heaps pop the very same items and end up with the same marks
+    private static void fill(Heap oneByOne, Heap batched, int decreases, Set<Integer> used, Random rand) {
+        List<Heap.HeapItem> looseItems = new ArrayList<>();
+        List<Heap.HeapItem> batchItems = new ArrayList<>();
+        while (looseItems.size() < SIZE) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            if (!used.add(key)) {
+                continue;
+            }
+            looseItems.add(oneByOne.insert(key, "S"));
+            batchItems.add(batched.insert(key, "S"));
+        }
+        int first = looseItems.indexOf(oneByOne.findMin());
+        oneByOne.deleteMin();
+        batched.deleteMin();
+        oneByOne.consolidate(); // lazy melds do not consolidate on deleteMin under the default trigger
+        batched.consolidate();
+        // with lazy decrease keys the cuts leave marked nodes for the batch to pop
+        for (int d = 0; d < decreases; d++) {
+            int i = rand.nextInt(looseItems.size());
+            Heap.HeapItem x = looseItems.get(i);
+            if (i == first || x.key < 2) {
+                continue;
+            }
+            int diff = rand.nextInt(x.key - 1);
+            if (!used.add(x.key - diff)) {
+                continue;
+            }
+            used.remove(x.key);
+            oneByOne.decreaseKey(x, diff);
+            batched.decreaseKey(batchItems.get(i), diff);
+        }
+    }
+
+    // Pop both heaps, a large batch first and then small ones, and compare them after every batch
+    private static void check(String name, Heap oneByOne, Heap batched, Random rand) {
+        Heap.HeapItem[] out = new Heap.HeapItem[2000];
+        boolean ok = true;
+        for (int round = 0; ok && oneByOne.size() > 0; round++) {
+            int n = batched.deleteMinBatch(round == 0 ? out.length : 1 + rand.nextInt(100), out);
+            for (int i = 0; i < n && ok; i++) {
+                ok = out[i].key == oneByOne.findMin().key;
+                oneByOne.deleteMin();
+            }
+            ok = ok && batched.size() == oneByOne.size()
+                    && (oneByOne.size() == 0 || batched.findMin().key == oneByOne.findMin().key)
+                    && batched.numMarkedNodes() == oneByOne.numMarkedNodes()
+                    && batched.numMarkedNodes() == countMarks(batched);
+        }
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name + " deleteMinBatch differs from repeated deleteMin");
+        }
+    }
+
+    // Count the marked nodes of every tree, walking from the minimum
+    private static int countMarks(Heap heap) {
+        if (heap.findMin() == null || !heap.lazyDecreaseKeys) {
+            return 0;
+        }
+        int count = 0;
+        Deque<Heap.HeapNode> stack = new ArrayDeque<>();
+        Heap.HeapNode start = heap.findMin().node;
+        Heap.HeapNode x = start;
+        do {
+            stack.push(x);
+            x = x.next;
+        } while (x != start);
+        while (!stack.isEmpty()) {
+            Heap.HeapNode node = stack.pop();
+            count += node.mark;
+            if (node.child != null) {
+                Heap.HeapNode c = node.child;
+                do {
+                    stack.push(c);
+                    c = c.next;
+                } while (c != node.child);
+            }
+        }
+        return count;
+    }
+}
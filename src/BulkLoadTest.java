@@ -0,0 +1,57 @@
+import java.util.*;
+
+/**
+ * BulkLoadTest - Loads the same keys into a heap one by one, with insertAll
+ * and with a prelinked insertAll, and checks that the bulk loads keep the
+ * size, tree count and links of the looped inserts and pop the same keys.
+ */
+public class BulkLoadTest {
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        Random rand = new Random(2006);
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = rand.nextInt(KEY_RANGE) + 1;
+        }
+        Heap looped = new Heap(false, true);
+        Heap bulk = new Heap(false, true);
+        Heap prelinked = new Heap(false, true);
+        looped.insert(KEY_RANGE, "X");
+        bulk.insert(KEY_RANGE, "X");
+        prelinked.insert(KEY_RANGE, "X");
+        for (int key : keys) {
+            looped.insert(key, "B" + key);
+        }
+        Heap.HeapItem[] items = bulk.insertAll(keys, null);
+        prelinked.insertAll(keys, null, true);
+        check("insertAll keeps size and trees", items.length == keys.length && bulk.size() == looped.size()
+                && bulk.numTrees() == looped.numTrees());
+        check("prelinked insertAll leaves few trees", prelinked.numTrees() <= 12);
+
+        boolean ok = true;
+        while (ok && looped.size() > 0) {
+            ok = bulk.findMin().key == looped.findMin().key && prelinked.findMin().key == looped.findMin().key;
+            looped.deleteMin();
+            bulk.deleteMin();
+            prelinked.deleteMin();
+        }
+        check("same keys in order", ok && prelinked.size() == 0);
+        check("same links as looped inserts", bulk.totalLinks() == looped.totalLinks());
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/**
+ * CompactHeap
+ *
+ * The Fibonacci heap of Heap with one object per element: the Node is both
+ * the tree node and the handle returned to the user. Heap needs a separate
+ * HeapItem because its eager decreaseKey swaps items between nodes. Here
+ * the eager decreaseKey swaps the nodes themselves with their parents, so
+ * a handle stays attached to its element. The resulting tree shapes, and
+ * so all the counters, are exactly those of Heap.
+ *
+ * Swapping a node with its parent re-parents both child lists, so an eager
+ * decreaseKey costs O(rank) per level instead of O(1).
+ *
+ */
+public class CompactHeap implements AddressableHeap<CompactHeap.Node> {
+    public final boolean lazyMelds;
+    public final boolean lazyDecreaseKeys;
+    private final Heap.ConsolidationTrigger trigger;
+    private Node min;
+    private Node first;
+    private int size;
+    private int totalMarks = 0;
+    private int totalLinks = 0;
+    private int totalCuts = 0;
+    private int totalHeapifyOps = 0;
+    private int numRoots = 0;
+    private boolean meldPending = false;
+    private Node[] buckets = new Node[0];
+
+    /**
+     *
+     * Constructor to initialize an empty heap.
+     *
+     */
+    public CompactHeap(boolean lazyMelds, boolean lazyDecreaseKeys) {
+        this(lazyMelds, lazyDecreaseKeys, Heap.ConsolidationTrigger.NEVER);
+    }
+
+    /**
+     *
+     * Constructor to initialize an empty heap whose deleteMin, when melds are
+     * lazy, consolidates the root list whenever trigger asks for it.
+     *
+     */
+    public CompactHeap(boolean lazyMelds, boolean lazyDecreaseKeys, Heap.ConsolidationTrigger trigger) {
+        this.lazyMelds = lazyMelds;
+        this.lazyDecreaseKeys = lazyDecreaseKeys;
+        this.trigger = trigger;
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return the new Node.
+     *
+     */
+    public Node insert(int key, String info) {
+        Node node = new Node();
+        node.key = key;
+        node.info = info;
+        if (this.size == 0) {
+            this.min = node;
+            this.first = node;
+            node.next = node;
+            node.prev = node;
+        } else {
+            insertAfter(this.first.prev, node);
+            if (key < this.min.key) {
+                this.min = node;
+            }
+        }
+        this.size++;
+        this.numRoots++;
+        return node;
+    }
+
+    /**
+     *
+     * Return the minimal Node, null if empty.
+     *
+     */
+    public Node findMin() {
+        return this.min;
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        Node minNode = this.min;
+        if (minNode == null) {
+            return;
+        }
+
+        removeRoot(minNode);
+        if (this.size == 0) {
+            this.min = null;
+        } else if (!this.lazyMelds || this.trigger.shouldConsolidate(this.numRoots, this.size, this.meldPending)) {
+            this.first = consolidate(this.first);
+            this.min = this.first;
+            this.meldPending = false;
+        } else {
+            this.min = scanMin();
+        }
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Node x, int diff) {
+        if (x == null) {
+            return;
+        }
+        x.key -= diff;
+        if (x.key < this.min.key) {
+            this.min = x;
+        }
+        if (!this.lazyDecreaseKeys) {
+            while (x.parent != null && x.key < x.parent.key) {
+                this.totalHeapifyOps++;
+                swapWithParent(x);
+            }
+        } else if (x.parent != null && x.key < x.parent.key) {
+            if (x.mark) {
+                this.totalMarks--; // cut clears the mark of the new root
+            }
+            cascadingCut(x, x.parent);
+        }
+    }
+
+    /**
+     *
+     * Delete x from the heap. As in Heap, x is cut out (or swapped up to its
+     * root) and only deleting the minimum consolidates.
+     *
+     */
+    public void delete(Node x) {
+        if (x == null) {
+            return;
+        }
+        if (x == this.min) {
+            deleteMin();
+            return;
+        }
+        if (x.mark) {
+            this.totalMarks--;
+            x.mark = false;
+        }
+        if (x.parent != null) {
+            if (this.lazyDecreaseKeys) {
+                cascadingCut(x, x.parent);
+            } else {
+                while (x.parent != null) {
+                    this.totalHeapifyOps++;
+                    swapWithParent(x);
+                }
+            }
+        }
+        removeRoot(x);
+    }
+
+    /**
+     *
+     * Meld the heap with heap2
+     * pre: heap2 is a CompactHeap with the same lazyMelds and lazyDecreaseKeys
+     *
+     */
+    public void meld(AddressableHeap<Node> heap2) {
+        if (heap2 == null || heap2 == this) {
+            return;
+        }
+        if (!(heap2 instanceof CompactHeap)) {
+            throw new IllegalArgumentException("Cannot meld a " + heap2.getClass().getSimpleName() + " into a CompactHeap");
+        }
+        CompactHeap other = (CompactHeap) heap2;
+        if (other.lazyMelds != this.lazyMelds || other.lazyDecreaseKeys != this.lazyDecreaseKeys || other.size == 0) {
+            return;
+        }
+        if (this.size == 0) {
+            this.first = other.first;
+            this.min = other.min;
+        } else {
+            Node aLast = this.first.prev;
+            Node bLast = other.first.prev;
+            aLast.next = other.first;
+            other.first.prev = aLast;
+            bLast.next = this.first;
+            this.first.prev = bLast;
+            if (other.min.key < this.min.key) {
+                this.min = other.min;
+            }
+        }
+        this.size += other.size;
+        this.numRoots += other.numRoots;
+        this.totalMarks += other.totalMarks;
+        this.meldPending = true;
+        other.first = null;
+        other.min = null;
+        other.size = 0;
+        other.numRoots = 0;
+        other.totalMarks = 0;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int key(Node x) {
+        return x.key;
+    }
+
+    public String info(Node x) {
+        return x.info;
+    }
+
+    /**
+     *
+     * Return the number of trees in the heap.
+     *
+     */
+    public int numTrees() {
+        return this.numRoots;
+    }
+
+    /**
+     *
+     * Return the number of marked nodes in the heap.
+     *
+     */
+    public int numMarkedNodes() {
+        return this.lazyDecreaseKeys ? this.totalMarks : 0;
+    }
+
+    /**
+     *
+     * Return the total number of links.
+     *
+     */
+    public int totalLinks() {
+        return this.totalLinks;
+    }
+
+    /**
+     *
+     * Return the total number of cuts.
+     *
+     */
+    public int totalCuts() {
+        return this.totalCuts;
+    }
+
+    /**
+     *
+     * Return the total heapify costs.
+     *
+     */
+    public int totalHeapifyCosts() {
+        return this.totalHeapifyOps;
+    }
+
+    /*
+     * Exchange the positions of x and its parent p: x takes p's place in p's
+     * sibling list (or the root list) with p's rank and mark, and p takes x's
+     * place among the children, with x's old children, rank and mark. This is
+     * the shape Heap gets by swapping the two items.
+     */
+    private void swapWithParent(Node x) {
+        Node p = x.parent;
+        Node gp = p.parent;
+        Node xNext = x.next;
+        Node xPrev = x.prev;
+        Node xChild = x.child;
+        Node pNext = p.next;
+        Node pPrev = p.prev;
+        Node pChild = p.child;
+
+        if (pNext == p) {
+            x.next = x;
+            x.prev = x;
+        } else {
+            x.next = pNext;
+            x.prev = pPrev;
+            pPrev.next = x;
+            pNext.prev = x;
+        }
+        x.parent = gp;
+        if (gp != null && gp.child == p) {
+            gp.child = x;
+        }
+        if (this.first == p) {
+            this.first = x;
+        }
+
+        if (xNext == x) {
+            p.next = p;
+            p.prev = p;
+        } else {
+            p.next = xNext;
+            p.prev = xPrev;
+            xPrev.next = p;
+            xNext.prev = p;
+        }
+
+        x.child = pChild == x ? p : pChild;
+        p.child = xChild;
+        Node c = x.child;
+        do {
+            c.parent = x;
+            c = c.next;
+        } while (c != x.child);
+        if (xChild != null) {
+            c = xChild;
+            do {
+                c.parent = p;
+                c = c.next;
+            } while (c != xChild);
+        }
+
+        byte rank = x.rank;
+        x.rank = p.rank;
+        p.rank = rank;
+        boolean mark = x.mark;
+        x.mark = p.mark;
+        p.mark = mark;
+    }
+
+    // Replace the root x by its children in the root list, first moves to the root after x
+    private void removeRoot(Node x) {
+        Node child = x.child;
+        if (child != null) {
+            Node c = child;
+            do {
+                c.parent = null;
+                c = c.next;
+            } while (c != child);
+        }
+
+        if (x.next == x) {
+            this.first = child;
+        } else if (child == null) {
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+            this.first = x.next;
+        } else {
+            Node childLast = child.prev;
+            x.prev.next = child;
+            child.prev = x.prev;
+            childLast.next = x.next;
+            x.next.prev = childLast;
+            this.first = x.next;
+        }
+
+        if (x.mark) {
+            this.totalMarks--;
+        }
+        this.size--;
+        this.numRoots += x.rank - 1;
+        x.child = null;
+        x.next = null;
+        x.prev = null;
+    }
+
+    private void cut(Node x, Node y) {
+        this.totalCuts++;
+        this.numRoots++;
+        x.parent = null;
+        x.mark = false;
+        y.rank--;
+        if (x.next == x) {
+            y.child = null;
+        } else {
+            y.child = x.next;
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+        }
+        insertAfter(this.first.prev, x);
+    }
+
+    private void cascadingCut(Node x, Node y) {
+        cut(x, y);
+        while (y.parent != null) {
+            if (!y.mark) {
+                y.mark = true;
+                this.totalMarks++;
+                return;
+            }
+            this.totalMarks--;
+            x = y;
+            y = y.parent;
+            cut(x, y);
+        }
+    }
+
+    // Successive linking by rank, returns the minimal root
+    private Node consolidate(Node x) {
+        int needed = Heap.maxRank(this.size) + 1;
+        if (this.buckets.length < needed) {
+            this.buckets = new Node[needed];
+        }
+        Node[] buckets = this.buckets;
+        x.prev.next = null;
+        while (x != null) {
+            Node y = x;
+            x = x.next;
+            while (buckets[y.rank] != null) {
+                y = link(y, buckets[y.rank]);
+                buckets[y.rank - 1] = null;
+            }
+            buckets[y.rank] = y;
+        }
+
+        Node root = null;
+        for (int i = 0; i < buckets.length; i++) {
+            Node b = buckets[i];
+            if (b != null) {
+                buckets[i] = null;
+                insertAfter(root, b);
+                if (root == null || b.key < root.key) {
+                    root = b;
+                }
+            }
+        }
+        return root;
+    }
+
+    private Node link(Node x, Node y) {
+        this.totalLinks++;
+        this.numRoots--;
+        if (!(x.key < y.key)) {
+            Node t = x;
+            x = y;
+            y = t;
+        }
+        if (x.child == null) {
+            x.child = y;
+            y.next = y;
+            y.prev = y;
+        } else {
+            insertAfter(x.child.prev, y);
+        }
+        y.parent = x;
+        x.rank++;
+        return x;
+    }
+
+    private Node scanMin() {
+        Node newMin = this.first;
+        for (Node current = this.first.next; current != this.first; current = current.next) {
+            if (current.key < newMin.key) {
+                newMin = current;
+            }
+        }
+        return newMin;
+    }
+
+    private static void insertAfter(Node x, Node y) {
+        if (x == null) {
+            y.next = y;
+            y.prev = y;
+        } else {
+            y.next = x.next;
+            x.next.prev = y;
+            x.next = y;
+            y.prev = x;
+        }
+    }
+
+    /**
+     * Class implementing an element of a CompactHeap: the tree node and the
+     * user's handle at once.
+     *
+     */
+    public static class Node {
+        public int key;
+        public String info;
+        private Node child;
+        private Node next;
+        private Node prev;
+        private Node parent;
+        private byte rank; // ranks stay below Heap.maxRank(Integer.MAX_VALUE) = 48
+        private boolean mark;
+    }
+}
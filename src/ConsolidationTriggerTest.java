@@ -0,0 +1,61 @@
+import java.util.*;
+
+/**
+ * ConsolidationTriggerTest - Melds two lazy heaps under each consolidation
+ * trigger and drains the result, checking after every deleteMin that the
+ * key is right and that numTrees matches the root list.
+ */
+public class ConsolidationTriggerTest {
+    private static final int SIZE = 3000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        Random rand = new Random(2008);
+        check("rootCountAbove(64)", Heap.ConsolidationTrigger.rootCountAbove(64), rand);
+        check("ratioToLogSize(2)", Heap.ConsolidationTrigger.ratioToLogSize(2), rand);
+        check("afterMeld", Heap.ConsolidationTrigger.afterMeld(), rand);
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, Heap.ConsolidationTrigger trigger, Random rand) {
+        Heap lazy = new Heap(true, true, trigger);
+        Heap other = new Heap(true, true, trigger);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        for (int i = 0; i < SIZE; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            (i % 2 == 0 ? lazy : other).insert(key, "T");
+            expected.add(key);
+        }
+        lazy.meld(other);
+        boolean ok = true;
+        while (ok && !expected.isEmpty()) {
+            ok = lazy.findMin().key == expected.poll() && lazy.numTrees() == countRoots(lazy);
+            lazy.deleteMin();
+        }
+        ok = ok && lazy.size() == 0 && lazy.numTrees() == 0 && lazy.totalLinks() > 0;
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name + " lost order or tree count");
+        }
+    }
+
+    // Walk the root list from the minimum, which is always a root
+    private static int countRoots(Heap heap) {
+        if (heap.findMin() == null) {
+            return 0;
+        }
+        Heap.HeapNode start = heap.findMin().node;
+        int count = 1;
+        for (Heap.HeapNode x = start.next; x != start; x = x.next) {
+            count++;
+        }
+        return count;
+    }
+}
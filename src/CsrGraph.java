@@ -0,0 +1,270 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * CsrGraph
+ *
+ * A weighted graph in compressed sparse row form: the arcs leaving vertex v
+ * are firstArc(v) .. endArc(v) - 1, and each arc is a target and a positive
+ * weight in two flat int arrays. Undirected edges are stored as two arcs.
+ *
+ */
+public class CsrGraph {
+    private final int[] offsets; // numVertices + 1 entries
+    private final int[] targets;
+    private final int[] weights;
+    private String[] labels;
+    private int[] labelSlots; // vertex + 1 per used slot, probed from the label's hash code
+
+    private CsrGraph(int[] offsets, int[] targets, int[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     *
+     * pre: 0 <= from[i], to[i] < n and weight[i] > 0 for i < m
+     *
+     * Build a graph from m edges. An undirected edge is stored in both directions.
+     *
+     */
+    public static CsrGraph fromEdges(int n, int m, int[] from, int[] to, int[] weight, boolean undirected) {
+        int arcs = undirected ? 2 * m : m;
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            offsets[from[i] + 1]++;
+            if (undirected) {
+                offsets[to[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[arcs];
+        int[] weights = new int[arcs];
+        for (int i = 0; i < m; i++) {
+            int a = fill[from[i]]++;
+            targets[a] = to[i];
+            weights[a] = weight[i];
+            if (undirected) {
+                a = fill[to[i]]++;
+                targets[a] = from[i];
+                weights[a] = weight[i];
+            }
+        }
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    /**
+     *
+     * Load a graph in the DIMACS shortest path format: a "p sp n m" line, then
+     * one "a u v w" line per arc with 1-based vertices. Other lines are ignored.
+     *
+     */
+    public static CsrGraph readDimacs(Path file) throws IOException {
+        int n = 0;
+        Edges edges = null;
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("p ")) {
+                    String[] f = line.trim().split("\\s+");
+                    n = Integer.parseInt(f[2]);
+                    edges = new Edges(Integer.parseInt(f[3]));
+                } else if (line.startsWith("a ")) {
+                    if (edges == null) {
+                        throw new IOException(file + ": arc before the problem line");
+                    }
+                    String[] f = line.trim().split("\\s+");
+                    edges.add(Integer.parseInt(f[1]) - 1, Integer.parseInt(f[2]) - 1, Integer.parseInt(f[3]));
+                }
+            }
+        }
+        if (edges == null) {
+            throw new IOException(file + ": no problem line");
+        }
+        return edges.build(n, false);
+    }
+
+    /**
+     *
+     * Return an undirected rows x cols grid with weights in [1, maxWeight].
+     *
+     */
+    public static CsrGraph grid(int rows, int cols, int maxWeight, long seed) {
+        Random rand = new Random(seed);
+        Edges edges = new Edges(2 * rows * cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = r * cols + c;
+                if (c + 1 < cols) {
+                    edges.add(v, v + 1, 1 + rand.nextInt(maxWeight));
+                }
+                if (r + 1 < rows) {
+                    edges.add(v, v + cols, 1 + rand.nextInt(maxWeight));
+                }
+            }
+        }
+        return edges.build(rows * cols, true);
+    }
+
+    /**
+     *
+     * Return a connected undirected graph of n vertices and average degree
+     * about degree: a random spanning tree plus uniformly random edges.
+     *
+     */
+    public static CsrGraph randomSparse(int n, int degree, int maxWeight, long seed) {
+        Random rand = new Random(seed);
+        int m = Math.max(n - 1, (int) ((long) n * degree / 2));
+        Edges edges = new Edges(m);
+        for (int v = 1; v < n; v++) {
+            edges.add(rand.nextInt(v), v, 1 + rand.nextInt(maxWeight));
+        }
+        for (int i = n - 1; i < m; i++) {
+            edges.add(rand.nextInt(n), rand.nextInt(n), 1 + rand.nextInt(maxWeight));
+        }
+        return edges.build(n, true);
+    }
+
+    /**
+     *
+     * Return a connected undirected power-law graph of n vertices by
+     * preferential attachment: each new vertex links to k earlier vertices
+     * picked with probability proportional to their degree.
+     *
+     */
+    public static CsrGraph powerLaw(int n, int k, int maxWeight, long seed) {
+        Random rand = new Random(seed);
+        Edges edges = new Edges(n * k);
+        int[] ends = new int[2 * n * k]; // every edge endpoint, so a uniform pick is degree-proportional
+        int numEnds = 0;
+        for (int v = 1; v < n; v++) {
+            int links = Math.min(k, v);
+            for (int j = 0; j < links; j++) {
+                int u = numEnds == 0 ? 0 : ends[rand.nextInt(numEnds)];
+                edges.add(u, v, 1 + rand.nextInt(maxWeight));
+                ends[numEnds++] = u;
+                ends[numEnds++] = v;
+            }
+        }
+        return edges.build(n, true);
+    }
+
+    /**
+     *
+     * Return the number of vertices.
+     *
+     */
+    public int numVertices() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     *
+     * Return the number of arcs, two per undirected edge.
+     *
+     */
+    public int numArcs() {
+        return this.targets.length;
+    }
+
+    public int firstArc(int v) {
+        return this.offsets[v];
+    }
+
+    public int endArc(int v) {
+        return this.offsets[v + 1];
+    }
+
+    public int target(int arc) {
+        return this.targets[arc];
+    }
+
+    public int weight(int arc) {
+        return this.weights[arc];
+    }
+
+    /**
+     *
+     * Return the decimal name of every vertex, built once, for use as heap infos.
+     *
+     */
+    public String[] labels() {
+        if (this.labels == null) {
+            String[] labels = new String[numVertices()];
+            int[] slots = new int[Integer.highestOneBit(Math.max(1, labels.length) * 2 - 1) << 1];
+            for (int v = 0; v < labels.length; v++) {
+                labels[v] = Integer.toString(v);
+                int i = slot(labels[v], slots.length);
+                while (slots[i] != 0) {
+                    i = (i + 1) & (slots.length - 1);
+                }
+                slots[i] = v + 1;
+            }
+            this.labelSlots = slots;
+            this.labels = labels;
+        }
+        return this.labels;
+    }
+
+    /**
+     *
+     * pre: label is an element of labels()
+     *
+     * Return the vertex named by label. The label is found by its hash code,
+     * which the String caches, and compared by identity, so nothing is parsed.
+     *
+     */
+    public int vertex(String label) {
+        int mask = this.labelSlots.length - 1;
+        for (int i = slot(label, this.labelSlots.length);; i = (i + 1) & mask) {
+            int v = this.labelSlots[i] - 1;
+            if (this.labels[v] == label) {
+                return v;
+            }
+        }
+    }
+
+    private static int slot(String label, int length) {
+        int h = label.hashCode();
+        return (h ^ (h >>> 16)) & (length - 1);
+    }
+
+    // Growable edge arrays for the generators and the loader
+    private static class Edges {
+        int[] from;
+        int[] to;
+        int[] weight;
+        int m;
+
+        Edges(int capacity) {
+            capacity = Math.max(capacity, 1);
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.weight = new int[capacity];
+        }
+
+        void add(int u, int v, int w) {
+            if (this.m == this.from.length) {
+                this.from = Arrays.copyOf(this.from, 2 * this.m);
+                this.to = Arrays.copyOf(this.to, 2 * this.m);
+                this.weight = Arrays.copyOf(this.weight, 2 * this.m);
+            }
+            this.from[this.m] = u;
+            this.to[this.m] = v;
+            this.weight[this.m] = w;
+            this.m++;
+        }
+
+        CsrGraph build(int n, boolean undirected) {
+            return fromEdges(n, this.m, this.from, this.to, this.weight, undirected);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+
+/**
+ * DAryHeap
+ *
+ * An indexed d-ary heap over positive integers stored in an array. The
+ * keys are kept in a parallel int[] so sifting compares without touching
+ * the items, and every item remembers its array index so decreaseKey and
+ * delete find it in O(1).
+ *
+ */
+public class DAryHeap implements AddressableHeap<DAryHeap.Item> {
+    private final int d;
+    private int[] keys = new int[16];
+    private Item[] items = new Item[16];
+    private int size;
+
+    /**
+     *
+     * pre: d >= 2
+     *
+     * Constructor to initialize an empty heap where every node has d children.
+     *
+     */
+    public DAryHeap(int d) {
+        if (d < 2) {
+            throw new IllegalArgumentException("d must be at least 2, got " + d);
+        }
+        this.d = d;
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return the new Item.
+     *
+     */
+    public Item insert(int key, String info) {
+        Item item = new Item();
+        item.key = key;
+        item.info = info;
+        append(item);
+        siftUp(this.size - 1);
+        return item;
+    }
+
+    /**
+     *
+     * Return the minimal Item, null if empty.
+     *
+     */
+    public Item findMin() {
+        return this.size == 0 ? null : this.items[0];
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        if (this.size > 0) {
+            removeAt(0);
+        }
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Item x, int diff) {
+        if (x == null) {
+            return;
+        }
+        x.key -= diff;
+        this.keys[x.index] = x.key;
+        siftUp(x.index);
+    }
+
+    /**
+     *
+     * Delete x from the heap.
+     *
+     */
+    public void delete(Item x) {
+        if (x != null) {
+            removeAt(x.index);
+        }
+    }
+
+    /**
+     *
+     * Meld the heap with heap2. The items of heap2 are moved into this array,
+     * so this costs O(heap2.size() log n), or O(n) when heap2 is large.
+     *
+     */
+    public void meld(AddressableHeap<Item> heap2) {
+        if (heap2 == null || heap2 == this) {
+            return;
+        }
+        if (!(heap2 instanceof DAryHeap)) {
+            throw new IllegalArgumentException("Cannot meld a " + heap2.getClass().getSimpleName() + " into a DAryHeap");
+        }
+        DAryHeap other = (DAryHeap) heap2;
+        int m = other.size;
+        boolean rebuild = m > this.size / 4;
+        for (int i = 0; i < m; i++) {
+            append(other.items[i]);
+            if (!rebuild) {
+                siftUp(this.size - 1);
+            }
+        }
+        if (rebuild) {
+            for (int i = (this.size - 2) / this.d; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+        Arrays.fill(other.items, 0, m, null);
+        other.size = 0;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int key(Item x) {
+        return x.key;
+    }
+
+    public String info(Item x) {
+        return x.info;
+    }
+
+    private void append(Item item) {
+        if (this.size == this.items.length) {
+            this.items = Arrays.copyOf(this.items, 2 * this.size);
+            this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+        }
+        this.items[this.size] = item;
+        this.keys[this.size] = item.key;
+        item.index = this.size;
+        this.size++;
+    }
+
+    private void removeAt(int i) {
+        Item removed = this.items[i];
+        int lastIndex = --this.size;
+        Item last = this.items[lastIndex];
+        this.items[lastIndex] = null;
+        removed.index = -1;
+        if (i != lastIndex) {
+            this.items[i] = last;
+            this.keys[i] = last.key;
+            last.index = i;
+            siftDown(i);
+            siftUp(last.index);
+        }
+    }
+
+    private void siftUp(int i) {
+        Item x = this.items[i];
+        int k = this.keys[i];
+        while (i > 0) {
+            int p = (i - 1) / this.d;
+            if (this.keys[p] <= k) {
+                break;
+            }
+            move(p, i);
+            i = p;
+        }
+        this.items[i] = x;
+        this.keys[i] = k;
+        x.index = i;
+    }
+
+    private void siftDown(int i) {
+        Item x = this.items[i];
+        int k = this.keys[i];
+        while (true) {
+            int c = this.d * i + 1;
+            if (c >= this.size) {
+                break;
+            }
+            int end = Math.min(c + this.d, this.size);
+            int best = c;
+            for (int j = c + 1; j < end; j++) {
+                if (this.keys[j] < this.keys[best]) {
+                    best = j;
+                }
+            }
+            if (k <= this.keys[best]) {
+                break;
+            }
+            move(best, i);
+            i = best;
+        }
+        this.items[i] = x;
+        this.keys[i] = k;
+        x.index = i;
+    }
+
+    private void move(int from, int to) {
+        Item y = this.items[from];
+        this.items[to] = y;
+        this.keys[to] = this.keys[from];
+        y.index = to;
+    }
+
+    /**
+     * Class implementing an item in a DAryHeap.
+     *
+     */
+    public static class Item {
+        public int key;
+        public String info;
+        private int index;
+    }
+}
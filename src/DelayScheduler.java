@@ -0,0 +1,347 @@
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DelayScheduler
+ *
+ * A timer service on a Heap keyed by deadline. Deadlines are counted in
+ * ticks (1 ms unless given) since an epoch, so they fit the int keys, and
+ * every timer keeps its HeapItem: cancel is a delete, reschedule an
+ * updateKey, a decreaseKey when the timer moves earlier. One dispatcher
+ * thread parks until the next deadline, or until an earlier timer arrives,
+ * and hands each expired task to an executor, by default a new virtual
+ * thread per task. If the executor rejects a task, the scheduler closes
+ * itself: the task and the pending timers are dropped and schedule throws.
+ *
+ * The heap only orders timers by tick. The dispatcher pops the timers of
+ * the earliest tick into a small queue ordered by exact deadline and fires
+ * them from there, so a timer never fires early and timers of the same
+ * tick fire in order. While it waits, it consolidates the heap every few
+ * thousand new timers, so that no deleteMin has to link a root list of a
+ * million freshly scheduled ones.
+ *
+ * Delays are limited to 2^30 ticks. Once the clock is 2^30 ticks past the
+ * epoch, the next schedule moves the epoch up and lowers every pending key
+ * by the same amount.
+ *
+ */
+public class DelayScheduler implements AutoCloseable {
+    private static final long RANGE = 1L << 30; // ticks of the longest delay, and of the clock before a rebase
+    private static final int TIDY_TREES = 1 << 12; // root list length at which the idle dispatcher consolidates
+
+    private final long tickNanos;
+    private final long origin = System.nanoTime(); // tick 0
+    private final Executor executor;
+    private final boolean ownsExecutor; // the default executor, shut down by close
+    private final Heap heap = new Heap(false, true);
+    private final IdentityHashMap<Heap.HeapItem, Timer> pending = new IdentityHashMap<>(); // the timers in the heap
+    private final PriorityQueue<Timer> due = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+    private int dueKey = 0; // every timer left in the heap has a larger key while due is not empty
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = this.lock.newCondition(); // earlier next timer, or shutdown
+    private final Thread dispatcher;
+    private long epoch = -1; // tick of key 0, always before now so that keys stay > 0
+    private boolean closed = false;
+
+    /**
+     *
+     * Constructor to start a scheduler with 1 ms ticks that runs every task
+     * on a new virtual thread.
+     *
+     */
+    public DelayScheduler() {
+        this(TimeUnit.MILLISECONDS.toNanos(1), Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     *
+     * pre: tickNanos > 0
+     *
+     * Constructor to start a scheduler with ticks of tickNanos that hands the
+     * expired tasks to executor.
+     *
+     */
+    public DelayScheduler(long tickNanos, Executor executor) {
+        this(tickNanos, executor, false);
+    }
+
+    private DelayScheduler(long tickNanos, Executor executor, boolean ownsExecutor) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickNanos must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.dispatcher = Thread.ofPlatform().name("delay-scheduler").daemon().start(this::dispatch);
+    }
+
+    /**
+     *
+     * pre: 0 <= delay, and at most 2^30 ticks
+     *
+     * Run task once delay has passed and return its timer.
+     *
+     */
+    public Timer schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = deadline(delay, unit);
+        Timer timer = new Timer(task);
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                throw new IllegalStateException("scheduler is closed");
+            }
+            place(timer, deadline);
+            tidy();
+        } finally {
+            this.lock.unlock();
+        }
+        return timer;
+    }
+
+    /**
+     *
+     * Cancel timer. Return false if it has already fired or been cancelled.
+     *
+     */
+    public boolean cancel(Timer timer) {
+        this.lock.lock();
+        try {
+            // a dispatcher parked on this timer wakes up at its old deadline and finds the next one
+            boolean removed = remove(timer);
+            tidy();
+            return removed;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     *
+     * pre: 0 <= delay, and at most 2^30 ticks
+     *
+     * Move timer to fire once delay has passed from now. Return false if it
+     * has already fired or been cancelled.
+     *
+     */
+    public boolean reschedule(Timer timer, long delay, TimeUnit unit) {
+        long deadline = deadline(delay, unit);
+        this.lock.lock();
+        try {
+            int key = key(deadline); // may rebase, so read the old key after
+            Heap.HeapItem item = timer.item;
+            if (item == null || !this.due.isEmpty() && key <= this.dueKey) {
+                // the due queue cannot move a timer, so it is taken out and placed afresh
+                return remove(timer) && place(timer, deadline);
+            }
+            if (key < item.key) {
+                this.heap.decreaseKey(item, item.key - key);
+            } else {
+                this.heap.updateKey(item, key);
+                tidy();
+            }
+            timer.deadline = deadline;
+            if (this.due.isEmpty() && this.heap.findMin() == item) {
+                this.changed.signal(); // the dispatcher may be parked on its old deadline
+            }
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     *
+     * Return the number of pending timers.
+     *
+     */
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.pending.size() + this.due.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     *
+     * Stop the dispatcher and drop the pending timers. Tasks already handed
+     * to the executor still run. The default executor is shut down, one
+     * given to the constructor is left to its owner.
+     *
+     */
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            shutDown();
+        } finally {
+            this.lock.unlock();
+        }
+        try {
+            this.dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.ownsExecutor) {
+            ((ExecutorService) this.executor).shutdown();
+        }
+    }
+
+    private void dispatch() {
+        this.lock.lock();
+        try {
+            while (!this.closed) {
+                Heap.HeapItem min = this.heap.findMin();
+                if (min != null && (this.due.isEmpty() || min.key <= this.dueKey)) {
+                    // move the earliest tick out of the heap, to fire it in deadline order
+                    if (this.due.isEmpty()) {
+                        this.dueKey = min.key;
+                    }
+                    while (min != null && min.key <= this.dueKey) {
+                        Timer timer = this.pending.remove(min);
+                        this.heap.deleteMin();
+                        timer.item = null;
+                        this.due.add(timer);
+                        min = this.heap.findMin();
+                    }
+                    continue;
+                }
+                Timer next = this.due.peek();
+                if (next == null) {
+                    this.changed.awaitUninterruptibly();
+                    continue;
+                }
+                long wait = next.deadline - System.nanoTime();
+                if (wait > 0) {
+                    if (this.heap.numTrees() >= TIDY_TREES) {
+                        // link the new timers while idle, rather than all at once in the next deleteMin
+                        this.heap.consolidate();
+                        continue;
+                    }
+                    awaitNanos(wait);
+                    continue;
+                }
+                this.due.poll();
+                try {
+                    this.executor.execute(next.task);
+                } catch (RejectedExecutionException e) {
+                    // an executor that refuses work would drop the later timers too, so stop here
+                    shutDown();
+                } catch (RuntimeException e) {
+                    // a task run inline threw, the next timers still fire
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Refuse new timers, drop the pending ones and wake the dispatcher to exit. Lock held.
+    private void shutDown() {
+        this.closed = true;
+        for (Timer timer : this.pending.values()) {
+            timer.item = null;
+        }
+        this.pending.clear();
+        this.due.clear();
+        this.changed.signal();
+    }
+
+    // Put a timer that is neither in the heap nor due at deadline, waking the dispatcher if it is next. Lock held.
+    private boolean place(Timer timer, long deadline) {
+        int key = key(deadline);
+        timer.deadline = deadline;
+        if (!this.due.isEmpty() && key <= this.dueKey) {
+            // its tick is already out of the heap
+            this.due.add(timer);
+            if (this.due.peek() == timer) {
+                this.changed.signal();
+            }
+            return true;
+        }
+        timer.item = this.heap.insert(key, null);
+        this.pending.put(timer.item, timer);
+        if (this.due.isEmpty() && this.heap.findMin() == timer.item) {
+            this.changed.signal();
+        }
+        return true;
+    }
+
+    // Take a timer out of the heap or the due queue, false if it is in neither. Lock held.
+    private boolean remove(Timer timer) {
+        if (timer.item == null) {
+            return this.due.remove(timer);
+        }
+        this.pending.remove(timer.item);
+        this.heap.delete(timer.item);
+        timer.item = null;
+        return true;
+    }
+
+    // Wake the dispatcher to consolidate once the root list has grown long. Lock held.
+    private void tidy() {
+        if (this.heap.numTrees() >= TIDY_TREES) {
+            this.changed.signal();
+        }
+    }
+
+    private void awaitNanos(long nanos) {
+        try {
+            this.changed.awaitNanos(nanos);
+        } catch (InterruptedException e) {
+            // only close stops the dispatcher
+        }
+    }
+
+    private long deadline(long delay, TimeUnit unit) {
+        long nanos = unit.toNanos(delay);
+        if (nanos < 0 || nanos / this.tickNanos >= RANGE) {
+            throw new IllegalArgumentException("delay out of range: " + delay + " " + unit);
+        }
+        return System.nanoTime() + nanos;
+    }
+
+    // The key of a deadline, rebasing first when the clock has run RANGE ticks past the epoch. Lock held.
+    private int key(long deadline) {
+        long now = (System.nanoTime() - this.origin) / this.tickNanos;
+        if (now - this.epoch >= RANGE) {
+            long shift = now - 1 - this.epoch;
+            for (Heap.HeapItem item : this.pending.keySet()) {
+                this.heap.decreaseKey(item, (int) Math.min(shift, item.key - 1)); // overdue timers all become key 1
+            }
+            this.dueKey = (int) Math.max(1, this.dueKey - shift);
+            this.epoch += shift;
+        }
+        return (int) Math.max(1, (deadline - this.origin) / this.tickNanos - this.epoch);
+    }
+
+    /**
+     * A scheduled task, the handle for cancel and reschedule.
+     */
+    public static final class Timer {
+        private final Runnable task;
+        private volatile long deadline; // System.nanoTime() to fire at, written under the lock
+        private Heap.HeapItem item; // null unless in the heap, guarded by the lock
+
+        private Timer(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Return the System.nanoTime() at which the timer fires.
+         */
+        public long deadline() {
+            return this.deadline;
+        }
+    }
+}
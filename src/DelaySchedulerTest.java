@@ -0,0 +1,170 @@
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DelaySchedulerTest - Checks that DelayScheduler fires every timer once and
+ * never early, that cancel and reschedule hold across an epoch rebase, and
+ * that timers sharing a tick fire in deadline order. A task the executor
+ * rejects closes the scheduler, and one that throws inline does not stop
+ * the dispatcher. Also checks that Heap.consolidate, which the idle
+ * dispatcher calls, links singletons into one tree per rank.
+ */
+public class DelaySchedulerTest {
+    private static final int TIMERS = 5000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws InterruptedException {
+        Heap tidy = new Heap(false, false);
+        for (int i = 1000; i > 0; i--) {
+            tidy.insert(i, null);
+        }
+        tidy.consolidate(); // 1000 singletons link into one tree per set bit of 1000
+        check("consolidate", tidy.numTrees() == Integer.bitCount(1000) && tidy.totalLinks() == 1000 - tidy.numTrees()
+                && tidy.findMin().key == 1 && tidy.size() == 1000);
+
+        rebase();
+        sameTick();
+        rejected();
+        throwing();
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    // Timers fire once, never early, and cancel/reschedule survive an epoch rebase
+    private static void rebase() throws InterruptedException {
+        AtomicIntegerArray fires = new AtomicIntegerArray(2 * TIMERS);
+        AtomicLongArray firedAt = new AtomicLongArray(2 * TIMERS);
+        TimeUnit ms = TimeUnit.MILLISECONDS;
+        // 1 ns ticks, so the epoch runs out after about 1.07 s, while timers are pending
+        try (DelayScheduler scheduler = new DelayScheduler(1, Executors.newVirtualThreadPerTaskExecutor())) {
+            DelayScheduler.Timer[] timers = new DelayScheduler.Timer[2 * TIMERS];
+            Random rand = new Random(24);
+            for (int i = 0; i < TIMERS; i++) {
+                int id = i;
+                timers[i] = scheduler.schedule(() -> {
+                    firedAt.set(id, System.nanoTime());
+                    fires.incrementAndGet(id);
+                }, rand.nextInt(600), ms);
+            }
+            boolean[] cancelled = new boolean[2 * TIMERS];
+            for (int i = 0; i < TIMERS; i += 5) {
+                cancelled[i] = scheduler.cancel(timers[i]);
+            }
+            Thread.sleep(300);
+            for (int i = 1; i < TIMERS; i += 7) {
+                // about half of these have fired already, the rest move past the rebase
+                scheduler.reschedule(timers[i], 700 + rand.nextInt(300), ms);
+            }
+            Thread.sleep(900);
+            for (int i = TIMERS; i < 2 * TIMERS; i++) {
+                int id = i;
+                timers[i] = scheduler.schedule(() -> {
+                    firedAt.set(id, System.nanoTime());
+                    fires.incrementAndGet(id);
+                }, rand.nextInt(300), ms);
+            }
+            for (int i = TIMERS + 3; i < 2 * TIMERS; i += 5) {
+                cancelled[i] = scheduler.cancel(timers[i]);
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (scheduler.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(100); // let the last virtual threads run
+            check("every timer fired", scheduler.size() == 0);
+            boolean firedOk = true;
+            for (int i = 0; i < 2 * TIMERS; i++) {
+                firedOk = firedOk && fires.get(i) == (cancelled[i] ? 0 : 1)
+                        && (cancelled[i] || firedAt.get(i) >= timers[i].deadline())
+                        && !scheduler.cancel(timers[i]) && !scheduler.reschedule(timers[i], 1, ms);
+            }
+            check("timers fire once, never early, never after cancel", firedOk);
+        }
+    }
+
+    // With 1 ms ticks, timers sharing a tick still fire in deadline order
+    private static void sameTick() throws InterruptedException {
+        List<Integer> fireOrder = Collections.synchronizedList(new ArrayList<>());
+        DelayScheduler.Timer[] timers = new DelayScheduler.Timer[500];
+        try (DelayScheduler scheduler = new DelayScheduler(TimeUnit.MILLISECONDS.toNanos(1), Runnable::run)) {
+            Random rand = new Random(25);
+            for (int i = 0; i < 500; i++) {
+                int id = i;
+                timers[i] = scheduler.schedule(() -> fireOrder.add(id), rand.nextInt(20000000), TimeUnit.NANOSECONDS);
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (fireOrder.size() < 500 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+        synchronized (fireOrder) {
+            boolean ordered = fireOrder.size() == 500;
+            for (int i = 1; i < fireOrder.size(); i++) {
+                ordered = ordered && timers[fireOrder.get(i - 1)].deadline() <= timers[fireOrder.get(i)].deadline();
+            }
+            check("same tick in deadline order", ordered);
+        }
+    }
+
+    // A rejected task closes the scheduler instead of killing the dispatcher unnoticed
+    private static void rejected() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        try (DelayScheduler scheduler = new DelayScheduler(TimeUnit.MILLISECONDS.toNanos(1), executor)) {
+            scheduler.schedule(() -> { }, 1, TimeUnit.MILLISECONDS);
+            boolean closed = false;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!closed && System.currentTimeMillis() < deadline) {
+                try {
+                    scheduler.schedule(() -> { }, 1, TimeUnit.HOURS);
+                    Thread.sleep(5);
+                } catch (IllegalStateException e) {
+                    closed = true;
+                }
+            }
+            check("rejected task closes the scheduler", closed && scheduler.size() == 0);
+        }
+
+        // the default executor is the scheduler's own, and still runs tasks until close
+        CountDownLatch ran = new CountDownLatch(1);
+        try (DelayScheduler scheduler = new DelayScheduler()) {
+            scheduler.schedule(ran::countDown, 1, TimeUnit.MILLISECONDS);
+            check("default executor runs tasks", ran.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    // A task that throws on an inline executor is reported, and the next timers still fire
+    private static void throwing() throws InterruptedException {
+        AtomicInteger reported = new AtomicInteger();
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> reported.incrementAndGet());
+        CountDownLatch after = new CountDownLatch(1);
+        try (DelayScheduler scheduler = new DelayScheduler(TimeUnit.MILLISECONDS.toNanos(1), Runnable::run)) {
+            scheduler.schedule(() -> {
+                throw new IllegalStateException("task failed");
+            }, 1, TimeUnit.MILLISECONDS);
+            scheduler.schedule(after::countDown, 20, TimeUnit.MILLISECONDS);
+            check("timers fire after a throwing task", after.await(10, TimeUnit.SECONDS) && reported.get() == 1);
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
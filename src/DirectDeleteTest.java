@@ -0,0 +1,163 @@
+import java.util.*;
+
+/**
+ * DirectDeleteTest - Deletes random items one by one, in all 4
+ * configurations, and checks after every delete that only deleting the
+ * minimum links trees, and that the minimum, the tree count and the mark
+ * count match the heap's forest. Then melds heaps with marked nodes into
+ * an empty and a non-empty heap and checks the mark count against the
+ * forest through deletes and a drain.
+ */
+public class DirectDeleteTest {
+    private static final int SIZE = 4000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2015);
+        for (boolean[] cfg : configs) {
+            run(cfg[0], cfg[1], rand);
+            runMelded(cfg[0], cfg[1], true, rand);
+            runMelded(cfg[0], cfg[1], false, rand);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys;
+        Heap cancelled = new Heap(lazyMelds, lazyDecreaseKeys);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        List<Heap.HeapItem> live = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            live.add(cancelled.insert(key, "C"));
+            expected.add(key);
+        }
+        live.remove(cancelled.findMin());
+        cancelled.deleteMin();
+        expected.poll();
+        boolean ok = true;
+        while (ok && live.size() > 1) {
+            Heap.HeapItem x = live.remove(rand.nextInt(live.size()));
+            boolean wasMin = x == cancelled.findMin();
+            int links = cancelled.totalLinks();
+            cancelled.delete(x);
+            expected.remove(x.key);
+            ok = (wasMin || cancelled.totalLinks() == links) && cancelled.findMin().key == expected.peek()
+                    && cancelled.numTrees() == countRoots(cancelled)
+                    && cancelled.numMarkedNodes() == countMarks(cancelled);
+        }
+        check(name + " delete consolidated or lost order, trees or marks", ok && cancelled.size() == 1);
+    }
+
+    private static void runMelded(boolean lazyMelds, boolean lazyDecreaseKeys, boolean intoEmpty, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys + (intoEmpty ? "_into_empty" : "_into_full");
+        Heap melded = new Heap(lazyMelds, lazyDecreaseKeys);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        List<Heap.HeapItem> live = new ArrayList<>();
+        if (!intoEmpty) {
+            marked(melded, SIZE / 2, expected, live, rand);
+        }
+        Heap other = new Heap(lazyMelds, lazyDecreaseKeys);
+        marked(other, SIZE / 2, expected, live, rand);
+        int marks = melded.numMarkedNodes() + other.numMarkedNodes();
+        melded.meld(other);
+        boolean ok = melded.numMarkedNodes() == marks && melded.numMarkedNodes() == countMarks(melded)
+                && other.numMarkedNodes() == 0 && (marks > 0 || !lazyDecreaseKeys);
+
+        // delete half of the items, then drain the rest
+        while (ok && live.size() > SIZE / 4) {
+            Heap.HeapItem x = live.remove(rand.nextInt(live.size()));
+            melded.delete(x);
+            expected.remove(x.key);
+            ok = melded.findMin().key == expected.peek() && melded.numMarkedNodes() == countMarks(melded);
+        }
+        while (ok && !expected.isEmpty()) {
+            ok = melded.findMin().key == expected.poll();
+            melded.deleteMin();
+            ok = ok && melded.numMarkedNodes() == countMarks(melded);
+        }
+        check(name + " meld lost marks or order", ok && melded.size() == 0 && melded.numMarkedNodes() == 0);
+    }
+
+    // Fill heap with n items and decrease random ones, which marks nodes when decrease keys are lazy
+    private static void marked(Heap heap, int n, PriorityQueue<Integer> expected, List<Heap.HeapItem> live,
+            Random rand) {
+        List<Heap.HeapItem> mine = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            mine.add(heap.insert(key, "M"));
+            expected.add(key);
+        }
+        Heap.HeapItem min = heap.findMin();
+        mine.remove(min);
+        expected.remove(min.key);
+        heap.deleteMin();
+        heap.consolidate(); // lazy melds never consolidate by themselves under the default trigger
+        for (int d = 0; d < n; d++) {
+            Heap.HeapItem x = mine.get(rand.nextInt(mine.size()));
+            if (x.key < 2) {
+                continue;
+            }
+            int diff = rand.nextInt(x.key - 1);
+            expected.remove(x.key);
+            heap.decreaseKey(x, diff);
+            expected.add(x.key);
+        }
+        live.addAll(mine);
+    }
+
+    // Walk the root list from the minimum, which is always a root
+    private static int countRoots(Heap heap) {
+        if (heap.findMin() == null) {
+            return 0;
+        }
+        Heap.HeapNode start = heap.findMin().node;
+        int count = 1;
+        for (Heap.HeapNode x = start.next; x != start; x = x.next) {
+            count++;
+        }
+        return count;
+    }
+
+    // Count the marked nodes of every tree, walking from the minimum
+    private static int countMarks(Heap heap) {
+        if (heap.findMin() == null || !heap.lazyDecreaseKeys) {
+            return 0;
+        }
+        int count = 0;
+        Deque<Heap.HeapNode> stack = new ArrayDeque<>();
+        Heap.HeapNode start = heap.findMin().node;
+        Heap.HeapNode x = start;
+        do {
+            stack.push(x);
+            x = x.next;
+        } while (x != start);
+        while (!stack.isEmpty()) {
+            Heap.HeapNode node = stack.pop();
+            count += node.mark;
+            if (node.child != null) {
+                Heap.HeapNode c = node.child;
+                do {
+                    stack.push(c);
+                    c = c.next;
+                } while (c != node.child);
+            }
+        }
+        return count;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DispatcherHeap
+ *
+ * A Heap owned by one dispatcher thread and fed by many producer threads.
+ * Producers never touch the heap: they append (key,info) to one of several
+ * bounded lock-free ring buffers, picked by thread, and only contend with
+ * the producers that share their stripe. The dispatcher drains the buffers
+ * before every findMin and deleteMin and splices everything it drained into
+ * the root list at once with insertAll. A producer that needs the HeapItem
+ * gets a future, completed on the dispatcher thread when its item is drained.
+ *
+ * Every method but offer, insert and submit belongs to the dispatcher
+ * thread, including decreaseKey and delete on the handles producers got
+ * back: hand those to the dispatcher rather than calling them elsewhere.
+ *
+ */
+public class DispatcherHeap {
+    private static final int PAD = 16; // longs per tail, keeps each stripe's tail on its own cache lines
+    private static final int SPINS = 64; // busy spins on a full buffer before yielding to the dispatcher
+
+    private final Heap heap;
+    private final int stripeMask;
+    private final int capacity; // slots per stripe, a power of two
+    private final AtomicLongArray tails; // next position to claim in each stripe, at stripe * PAD
+    private final long[] heads; // next position to drain in each stripe, dispatcher only
+    private final AtomicLongArray sequences; // per slot: the position it is free for, or that position + 1 once filled
+    private final int[] keys;
+    private final String[] infos;
+    private final CompletableFuture<?>[] futures;
+
+    // drained batch, reused by every drain
+    private final int[] batchKeys;
+    private final String[] batchInfos;
+    private final CompletableFuture<?>[] batchFutures;
+
+    /**
+     *
+     * pre: stripes and capacity are powers of two
+     *
+     * Constructor to put producer buffers of stripes rings with capacity
+     * slots each in front of heap, which from now on belongs to the
+     * dispatcher.
+     *
+     */
+    public DispatcherHeap(Heap heap, int stripes, int capacity) {
+        if (Integer.bitCount(stripes) != 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("stripes and capacity must be powers of two: " + stripes + ", " + capacity);
+        }
+        this.heap = heap;
+        this.stripeMask = stripes - 1;
+        this.capacity = capacity;
+        this.tails = new AtomicLongArray(stripes * PAD);
+        this.heads = new long[stripes];
+        int slots = stripes * capacity;
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            this.sequences.set(i, i & (capacity - 1));
+        }
+        this.keys = new int[slots];
+        this.infos = new String[slots];
+        this.futures = new CompletableFuture<?>[slots];
+        this.batchKeys = new int[slots];
+        this.batchInfos = new String[slots];
+        this.batchFutures = new CompletableFuture<?>[slots];
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Append (key,info) to the calling thread's buffer without waiting.
+     * Return false if the buffer is full.
+     *
+     */
+    public boolean offer(int key, String info) {
+        return append(key, info, null);
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Append (key,info) to the calling thread's buffer, spinning while it
+     * is full until the dispatcher drains it.
+     *
+     */
+    public void insert(int key, String info) {
+        for (int spins = 0; !append(key, info, null); spins++) {
+            backOff(spins);
+        }
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Append (key,info) like insert and return a future of its HeapItem,
+     * completed by the dispatcher when it drains the item. Actions chained
+     * on the future without Async run on the dispatcher thread.
+     *
+     */
+    public CompletableFuture<Heap.HeapItem> submit(int key, String info) {
+        CompletableFuture<Heap.HeapItem> future = new CompletableFuture<>();
+        for (int spins = 0; !append(key, info, future); spins++) {
+            backOff(spins);
+        }
+        return future;
+    }
+
+    /**
+     *
+     * Move the items the producers have appended, up to a full buffer per
+     * stripe, into the heap in one splice, complete their futures, and
+     * return how many there were.
+     *
+     */
+    @SuppressWarnings("unchecked")
+    public int drain() {
+        int n = 0;
+        for (int stripe = 0; stripe <= this.stripeMask; stripe++) {
+            long head = this.heads[stripe];
+            long end = head + this.capacity; // one lap at most, producers may refill the stripe behind the drain
+            int base = stripe * this.capacity;
+            while (head < end) {
+                int slot = base + (int) (head & (this.capacity - 1));
+                if (this.sequences.getAcquire(slot) != head + 1) {
+                    break; // empty, or the next producer has claimed the slot but not filled it yet
+                }
+                this.batchKeys[n] = this.keys[slot];
+                this.batchInfos[n] = this.infos[slot];
+                this.batchFutures[n++] = this.futures[slot];
+                this.infos[slot] = null;
+                this.futures[slot] = null;
+                this.sequences.setRelease(slot, head + this.capacity);
+                head++;
+            }
+            this.heads[stripe] = head;
+        }
+        if (n == 0) {
+            return 0;
+        }
+        Heap.HeapItem[] items = this.heap.insertAll(Arrays.copyOf(this.batchKeys, n), Arrays.copyOf(this.batchInfos, n));
+        for (int i = 0; i < n; i++) {
+            if (this.batchFutures[i] != null) {
+                ((CompletableFuture<Heap.HeapItem>) this.batchFutures[i]).complete(items[i]);
+                this.batchFutures[i] = null;
+            }
+            this.batchInfos[i] = null;
+        }
+        return n;
+    }
+
+    /**
+     *
+     * Drain the buffers and return the minimal item, null if the heap is empty.
+     *
+     */
+    public Heap.HeapItem findMin() {
+        drain();
+        return this.heap.findMin();
+    }
+
+    /**
+     *
+     * Drain the buffers, delete the minimal item and return it, null if the
+     * heap is empty. This need not be the item an earlier findMin returned:
+     * the drain may have brought in a smaller one.
+     *
+     */
+    public Heap.HeapItem deleteMin() {
+        drain();
+        Heap.HeapItem min = this.heap.findMin();
+        this.heap.deleteMin();
+        return min;
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key, x is in the heap
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Heap.HeapItem x, int diff) {
+        this.heap.decreaseKey(x, diff);
+    }
+
+    /**
+     *
+     * pre: x is in the heap
+     *
+     * Delete x from the heap.
+     *
+     */
+    public void delete(Heap.HeapItem x) {
+        this.heap.delete(x);
+    }
+
+    /**
+     *
+     * Return the number of items in the heap, not counting the ones still
+     * in the buffers.
+     *
+     */
+    public int size() {
+        return this.heap.size();
+    }
+
+    /**
+     *
+     * Return the heap behind the buffers.
+     *
+     */
+    public Heap heap() {
+        return this.heap;
+    }
+
+    // Wait for the dispatcher to drain a full buffer: spin briefly, then give up the core
+    private static void backOff(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    // Claim the next free slot of the calling thread's stripe and fill it, false if the stripe is full
+    private boolean append(int key, String info, CompletableFuture<Heap.HeapItem> future) {
+        int stripe = (int) Thread.currentThread().threadId() & this.stripeMask;
+        int base = stripe * this.capacity;
+        while (true) {
+            long tail = this.tails.get(stripe * PAD);
+            int slot = base + (int) (tail & (this.capacity - 1));
+            long sequence = this.sequences.getAcquire(slot);
+            if (sequence == tail) {
+                if (this.tails.compareAndSet(stripe * PAD, tail, tail + 1)) {
+                    this.keys[slot] = key;
+                    this.infos[slot] = info;
+                    this.futures[slot] = future;
+                    this.sequences.setRelease(slot, tail + 1);
+                    return true;
+                }
+            } else if (sequence < tail) {
+                return false; // the slot still holds the item of the previous lap
+            }
+            // otherwise another producer claimed the slot first, read the tail again
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * DispatcherHeapTest - Runs concurrent producers that insert and submit
+ * distinct keys into a DispatcherHeap while the consumer pops and drains,
+ * then checks that every item reached the heap exactly once, that every
+ * submitted handle completed and can be decreased, and that the rest comes
+ * out in order. Also checks that offer refuses a full buffer until a drain.
+ */
+public class DispatcherHeapTest {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 20000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        DispatcherHeap dispatcher = new DispatcherHeap(new Heap(false, true), 4, 256);
+        List<List<CompletableFuture<Heap.HeapItem>>> handles = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < PRODUCERS; t++) {
+            List<CompletableFuture<Heap.HeapItem>> mine = new ArrayList<>();
+            handles.add(mine);
+            int id = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    int key = 2 + i * PRODUCERS + id; // distinct across producers
+                    if (i % 10 == 0) {
+                        mine.add(dispatcher.submit(key, "P" + id));
+                    } else {
+                        dispatcher.insert(key, "P" + id);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        // pop a third of the items while the producers are still appending, then the rest
+        int popped = 0;
+        Set<Heap.HeapItem> poppedItems = new HashSet<>();
+        long deadline = System.currentTimeMillis() + 30000;
+        while (popped < PRODUCERS * PER_PRODUCER / 3 && System.currentTimeMillis() < deadline) {
+            Heap.HeapItem min = dispatcher.deleteMin();
+            if (min != null) {
+                poppedItems.add(min);
+                popped++;
+            }
+        }
+        // keep draining until the producers are done, they spin on full buffers otherwise
+        while (threads.stream().anyMatch(Thread::isAlive) && System.currentTimeMillis() < deadline) {
+            if (dispatcher.drain() == 0) {
+                Thread.yield();
+            }
+        }
+        check("producers finished", threads.stream().noneMatch(Thread::isAlive));
+        dispatcher.drain();
+
+        boolean completed = true;
+        for (List<CompletableFuture<Heap.HeapItem>> mine : handles) {
+            for (CompletableFuture<Heap.HeapItem> future : mine) {
+                Heap.HeapItem x = future.getNow(null);
+                completed = completed && x != null;
+                if (x != null && !poppedItems.contains(x) && x.key > 2) {
+                    dispatcher.decreaseKey(x, 1); // may tie with another producer's key, which the order check allows
+                }
+            }
+        }
+        check("submitted handles completed", completed);
+        check("no item lost before the drain", popped + dispatcher.size() == PRODUCERS * PER_PRODUCER);
+
+        boolean ordered = true;
+        int lastKey = 0;
+        for (Heap.HeapItem min = dispatcher.deleteMin(); min != null; min = dispatcher.deleteMin()) {
+            ordered = ordered && min.key >= lastKey;
+            lastKey = min.key;
+            popped++;
+        }
+        check("rest in order", ordered);
+        check("every item popped once", popped == PRODUCERS * PER_PRODUCER);
+
+        DispatcherHeap full = new DispatcherHeap(new Heap(false, false), 1, 4);
+        boolean offered = true;
+        for (int i = 0; i < 4; i++) {
+            offered = offered && full.offer(i + 1, null);
+        }
+        check("offer on a full buffer", offered && !full.offer(5, null) && full.drain() == 4 && full.offer(5, null)
+                && full.findMin().key == 1 && full.size() == 5);
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
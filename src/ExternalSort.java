@@ -0,0 +1,331 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ExternalSort
+ *
+ * Sorts a file of records too large for memory by their int key. A record
+ * is a little-endian int key followed by payloadBytes bytes of payload,
+ * which travel with the key untouched. The input is cut into runs of
+ * runRecords records, each sorted in memory and written to a run file.
+ * Then up to k runs at a time are merged on an IntHeap that holds one item
+ * per run, keyed by the key at the head of the run. The minimal item is
+ * written out and, rather than popped and pushed again, raised to the next
+ * key of its run by increaseKey, which sifts it down one path of a
+ * consolidated heap. A run that is used up is deleted from the heap. With
+ * more than k runs the merge takes several passes through intermediate
+ * run files. Run files are read through memory mappings, all output goes
+ * through one direct buffer per phase.
+ *
+ * java ExternalSort input output [payloadBytes] [runRecords] [k] sorts a
+ * file and prints the MB/s of both phases.
+ *
+ */
+public class ExternalSort {
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final int BUFFER = 1 << 20; // bytes of the output buffer
+
+    private final int payloadBytes;
+    private final int recordBytes;
+    private final int runRecords;
+    private final int k;
+    private final Path tempDir;
+
+    // of the last sort
+    private long bytes;
+    private int runs;
+    private int passes;
+    private long runNanos;
+    private long mergeNanos;
+
+    /**
+     *
+     * pre: payloadBytes >= 0, runRecords > 0, k >= 2
+     *
+     * Constructor to sort records with payloadBytes of payload, in runs of
+     * runRecords records merged k at a time, keeping the run files in
+     * tempDir.
+     *
+     */
+    public ExternalSort(int payloadBytes, int runRecords, int k, Path tempDir) {
+        if (payloadBytes < 0 || runRecords <= 0 || k < 2) {
+            throw new IllegalArgumentException("payloadBytes=" + payloadBytes + ", runRecords=" + runRecords + ", k="
+                    + k);
+        }
+        this.payloadBytes = payloadBytes;
+        this.recordBytes = 4 + payloadBytes;
+        this.runRecords = runRecords;
+        this.k = k;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     *
+     * Sort the records of input into output, replacing its contents. Equal
+     * keys come out in no particular order.
+     *
+     */
+    public void sort(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        List<Path> runs = writeRuns(input);
+        this.runNanos = System.nanoTime() - start;
+        this.bytes = Files.size(input);
+        this.runs = runs.size();
+        start = System.nanoTime();
+        this.passes = merge(runs, output);
+        this.mergeNanos = System.nanoTime() - start;
+    }
+
+    /**
+     *
+     * Cut input into runs of runRecords records, sort each in memory and
+     * write it to a new file in tempDir. Return the run files in input order.
+     *
+     */
+    public List<Path> writeRuns(Path input) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ); Arena arena = Arena.ofConfined()) {
+            long size = channel.size();
+            if (size % this.recordBytes != 0) {
+                throw new IOException(input + " is not a whole number of " + this.recordBytes + " byte records");
+            }
+            MemorySegment in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            long records = size / this.recordBytes;
+            int[] keys = new int[(int) Math.min(this.runRecords, records)];
+            long[] order = this.payloadBytes == 0 ? null : new long[keys.length];
+            RecordWriter writer = new RecordWriter(this.recordBytes);
+            for (long first = 0; first < records; first += this.runRecords) {
+                int n = (int) Math.min(this.runRecords, records - first);
+                MemorySegment run = in.asSlice(first * this.recordBytes, (long) n * this.recordBytes);
+                Path file = Files.createTempFile(this.tempDir, "run", ".bin");
+                runs.add(file);
+                try (RecordWriter out = writer.open(file)) {
+                    if (order == null) {
+                        MemorySegment.copy(run, INT, 0, keys, 0, n);
+                        Arrays.sort(keys, 0, n);
+                        for (int i = 0; i < n; i++) {
+                            out.append(keys[i]);
+                        }
+                    } else {
+                        // key in the high half, so the longs sort by key, index in the low half to find the payload
+                        for (int i = 0; i < n; i++) {
+                            order[i] = (long) run.get(INT, (long) i * this.recordBytes) << 32 | i;
+                        }
+                        Arrays.sort(order, 0, n);
+                        for (int i = 0; i < n; i++) {
+                            out.append(run, (order[i] & 0xFFFFFFFFL) * this.recordBytes);
+                        }
+                    }
+                }
+            }
+        }
+        return runs;
+    }
+
+    /**
+     *
+     * Merge the sorted runs into output, replacing its contents, k runs at a
+     * time, and delete the run files. Return the number of merge passes.
+     *
+     */
+    public int merge(List<Path> runs, Path output) throws IOException {
+        RecordWriter writer = new RecordWriter(this.recordBytes);
+        int passes = 0;
+        List<Path> level = new ArrayList<>(runs);
+        while (level.size() > this.k) {
+            // merge groups of k into intermediate runs, until one last merge is left
+            List<Path> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += this.k) {
+                List<Path> group = level.subList(i, Math.min(i + this.k, level.size()));
+                if (group.size() == 1) {
+                    next.add(group.get(0));
+                    continue;
+                }
+                Path file = Files.createTempFile(this.tempDir, "run", ".bin");
+                mergeGroup(group, writer.open(file));
+                next.add(file);
+            }
+            level = next;
+            passes++;
+        }
+        mergeGroup(level, writer.open(output));
+        return passes + 1;
+    }
+
+    // k-way merge of the runs in files into out and close it, then delete the runs, also after a failure
+    private void mergeGroup(List<Path> files, RecordWriter out) throws IOException {
+        IntHeap<Run> heap = new IntHeap<>(false, false);
+        try (out; Arena arena = Arena.ofConfined()) {
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    Run run = new Run(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+                    if (run.end > 0) {
+                        heap.insert(run.segment.get(INT, 0), run);
+                    }
+                }
+            }
+            heap.consolidate(); // from here on every increaseKey scans a root list of at most log k trees
+            while (heap.size() > 0) {
+                IntHeap.Item<Run> top = heap.findMin();
+                Run run = top.info;
+                if (this.payloadBytes == 0) {
+                    out.append(top.key);
+                } else {
+                    out.append(run.segment, run.pos);
+                }
+                run.pos += this.recordBytes;
+                if (run.pos == run.end) {
+                    heap.deleteMin();
+                } else {
+                    // replace the top: the next key of a run is never smaller, and the
+                    // difference wraps to the right key even where it overflows an int
+                    heap.increaseKey(top, run.segment.get(INT, run.pos) - top.key);
+                }
+            }
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     *
+     * Return the number of input bytes of the last sort.
+     *
+     */
+    public long bytes() {
+        return this.bytes;
+    }
+
+    /**
+     *
+     * Return the number of runs of the last sort.
+     *
+     */
+    public int runs() {
+        return this.runs;
+    }
+
+    /**
+     *
+     * Return the number of merge passes of the last sort, 1 unless it had
+     * more than k runs.
+     *
+     */
+    public int passes() {
+        return this.passes;
+    }
+
+    /**
+     *
+     * Return the run generation throughput of the last sort in MB/s.
+     *
+     */
+    public double runMBPerSecond() {
+        return this.bytes / 1e6 / (this.runNanos / 1e9);
+    }
+
+    /**
+     *
+     * Return the merge throughput of the last sort in MB/s, counting the
+     * input once however many passes it took.
+     *
+     */
+    public double mergeMBPerSecond() {
+        return this.bytes / 1e6 / (this.mergeNanos / 1e9);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: java ExternalSort input output [payloadBytes] [runRecords] [k]");
+            return;
+        }
+        Path output = Path.of(args[1]);
+        ExternalSort sorter = new ExternalSort(args.length > 2 ? Integer.parseInt(args[2]) : 0,
+                args.length > 3 ? Integer.parseInt(args[3]) : 1 << 24, args.length > 4 ? Integer.parseInt(args[4]) : 64,
+                output.toAbsolutePath().getParent());
+        sorter.sort(Path.of(args[0]), output);
+        System.out.printf("%d MB in %d runs, %d merge passes: runs %.0f MB/s, merge %.0f MB/s%n",
+                sorter.bytes() / 1000000, sorter.runs(), sorter.passes(), sorter.runMBPerSecond(),
+                sorter.mergeMBPerSecond());
+    }
+
+    // A mapped run file and the offset of its head record
+    private static final class Run {
+        final MemorySegment segment;
+        final long end;
+        long pos;
+
+        Run(MemorySegment segment) {
+            this.segment = segment;
+            this.end = segment.byteSize();
+        }
+    }
+
+    // Appends records to one file at a time through a direct buffer, which is kept from file to file
+    private static final class RecordWriter implements Closeable {
+        final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        final MemorySegment view = MemorySegment.ofBuffer(this.buf);
+        final int recordBytes;
+        FileChannel channel;
+
+        RecordWriter(int recordBytes) {
+            this.recordBytes = recordBytes;
+        }
+
+        // start writing file, replacing its contents, until close
+        RecordWriter open(Path file) throws IOException {
+            this.buf.clear();
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            return this;
+        }
+
+        void append(int key) throws IOException {
+            if (this.buf.remaining() < 4) {
+                flush();
+            }
+            this.buf.putInt(key);
+        }
+
+        // copy the record at offset of from, key and payload in one go
+        void append(MemorySegment from, long offset) throws IOException {
+            if (this.buf.remaining() < this.recordBytes) {
+                flush();
+            }
+            int pos = this.buf.position();
+            MemorySegment.copy(from, offset, this.view, pos, this.recordBytes);
+            this.buf.position(pos + this.recordBytes);
+        }
+
+        private void flush() throws IOException {
+            this.buf.flip();
+            while (this.buf.hasRemaining()) {
+                this.channel.write(this.buf);
+            }
+            this.buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * ExternalSortTest - Sorts files of records with a payload that names each
+ * record, over one and several merge passes, and checks that every record
+ * comes out whole, once and in key order. Also sorts keys alone and an
+ * empty input, and checks that no run file is left behind, not even by a
+ * merge that fails.
+ */
+public class ExternalSortTest {
+    private static final int RECORDS = 100003;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("external-sort");
+        Path input = dir.resolve("input.bin");
+        Path output = dir.resolve("output.bin");
+        Random rand = new Random(27);
+
+        // payload of 8 bytes: the key again and the record's position, so records can be checked whole
+        ByteBuffer data = ByteBuffer.allocate(RECORDS * 12).order(ByteOrder.LITTLE_ENDIAN);
+        int[] keys = new int[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            keys[i] = i % 2 == 0 ? rand.nextInt() : rand.nextInt(100) - 50;
+            data.putInt(keys[i]).putInt(keys[i]).putInt(i);
+        }
+        Files.write(input, data.array());
+        Arrays.sort(keys);
+        for (int[] cfg : new int[][] { { 1000, 3 }, { 30000, 64 }, { 1 << 20, 2 } }) {
+            String name = "runRecords=" + cfg[0] + " k=" + cfg[1];
+            ExternalSort sorter = new ExternalSort(8, cfg[0], cfg[1], dir);
+            sorter.sort(input, output);
+            ByteBuffer sorted = ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN);
+            check(name + " size", sorted.remaining() == RECORDS * 12 && sorter.runs() == (RECORDS + cfg[0] - 1) / cfg[0]);
+            boolean[] seenAt = new boolean[RECORDS];
+            boolean whole = sorted.remaining() == RECORDS * 12;
+            for (int i = 0; i < RECORDS && whole; i++) {
+                int key = sorted.getInt();
+                int copy = sorted.getInt();
+                int at = sorted.getInt();
+                whole = key == keys[i] && copy == key && !seenAt[at];
+                seenAt[at] = true;
+            }
+            check(name + " records whole, once and in order", whole);
+            // 101 runs of 1000 take 5 passes at k = 3, 4 runs of 30000 one
+            check(name + " passes", sorter.passes() == (cfg[0] == 1000 ? 5 : 1));
+        }
+
+        // keys alone
+        ByteBuffer keysOnly = ByteBuffer.allocate(4 * 5000).order(ByteOrder.LITTLE_ENDIAN);
+        int[] expected = new int[5000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = rand.nextInt();
+            keysOnly.putInt(expected[i]);
+        }
+        Files.write(input, keysOnly.array());
+        Arrays.sort(expected);
+        new ExternalSort(0, 700, 4, dir).sort(input, output);
+        ByteBuffer sorted = ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN);
+        boolean ordered = sorted.remaining() == 4 * expected.length;
+        for (int i = 0; i < expected.length && ordered; i++) {
+            ordered = sorted.getInt() == expected[i];
+        }
+        check("keys alone", ordered);
+
+        // an empty input
+        Files.write(input, new byte[0]);
+        new ExternalSort(0, 700, 4, dir).sort(input, output);
+        check("empty input", Files.size(output) == 0);
+
+        // a merge that fails still deletes the runs it was given
+        Files.write(input, keysOnly.array());
+        ExternalSort sorter = new ExternalSort(0, 700, 16, dir);
+        List<Path> runs = new ArrayList<>(sorter.writeRuns(input));
+        runs.add(dir.resolve("missing.bin"));
+        boolean failed = false;
+        try {
+            sorter.merge(runs, output);
+        } catch (IOException e) {
+            failed = true;
+        }
+        check("failed merge", failed);
+
+        Files.delete(input);
+        Files.delete(output);
+        try (Stream<Path> left = Files.list(dir)) {
+            check("every run file deleted", left.count() == 0);
+        }
+        Files.delete(dir);
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
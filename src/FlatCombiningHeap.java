@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FlatCombiningHeap
+ *
+ * A thread-safe Heap by flat combining. Each thread publishes its operation
+ * in a record of its own, linked once into a shared publication list, and
+ * waits. Whichever thread gets the combiner lock applies every pending
+ * record in one pass: the inserts go into the root list as one insertAll
+ * splice, then the decreaseKeys and deletes, then the deleteMins as one
+ * deleteMinBatch, which consolidates once for all of them. Only the
+ * combiner touches the heap, so the other threads spin on their own record
+ * instead of on the heap's cache lines.
+ *
+ * Records idle for more than MAX_AGE passes are unlinked, and their thread
+ * links them again on its next operation.
+ *
+ */
+public class FlatCombiningHeap {
+    private static final int INSERT = 1;
+    private static final int FIND_MIN = 2;
+    private static final int DELETE_MIN = 3;
+    private static final int DECREASE_KEY = 4;
+    private static final int DELETE = 5;
+    private static final int MAX_AGE = 256; // combining passes a record may sit idle before it is unlinked
+    private static final int SPINS = 64; // busy spins while waiting before yielding
+
+    private final Heap heap;
+    private final ReentrantLock combiner = new ReentrantLock();
+    private final AtomicReference<Record> head = new AtomicReference<>(); // records are only ever pushed here
+    private final ThreadLocal<Record> records = ThreadLocal.withInitial(Record::new);
+    private volatile int size; // published by the combiner after each pass
+
+    // batch of the current pass, combiner only
+    private int passes = 0;
+    private final List<Record> inserts = new ArrayList<>();
+    private final List<Record> updates = new ArrayList<>();
+    private final List<Record> pops = new ArrayList<>();
+    private final List<Record> reads = new ArrayList<>();
+    private Heap.HeapItem[] popped = new Heap.HeapItem[0];
+
+    /**
+     *
+     * Constructor to make heap thread-safe. From now on it must only be used
+     * through this wrapper.
+     *
+     */
+    public FlatCombiningHeap(Heap heap) {
+        this.heap = heap;
+        this.size = heap.size();
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return its HeapItem.
+     *
+     */
+    public Heap.HeapItem insert(int key, String info) {
+        Record r = this.records.get();
+        r.key = key;
+        r.info = info;
+        return apply(r, INSERT);
+    }
+
+    /**
+     *
+     * Return the minimal item, null if the heap is empty.
+     *
+     */
+    public Heap.HeapItem findMin() {
+        return apply(this.records.get(), FIND_MIN);
+    }
+
+    /**
+     *
+     * Delete the minimal item and return it, null if the heap is empty.
+     *
+     */
+    public Heap.HeapItem deleteMin() {
+        return apply(this.records.get(), DELETE_MIN);
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key, x is in the heap
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Heap.HeapItem x, int diff) {
+        Record r = this.records.get();
+        r.item = x;
+        r.key = diff;
+        apply(r, DECREASE_KEY);
+    }
+
+    /**
+     *
+     * pre: x is in the heap
+     *
+     * Delete x from the heap.
+     *
+     */
+    public void delete(Heap.HeapItem x) {
+        Record r = this.records.get();
+        r.item = x;
+        apply(r, DELETE);
+    }
+
+    /**
+     *
+     * Return the number of items as of the last combining pass.
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     *
+     * Return the number of combining passes so far. The operations per pass
+     * tell how much batching the contention bought.
+     *
+     */
+    public int passes() {
+        this.combiner.lock();
+        try {
+            return this.passes;
+        } finally {
+            this.combiner.unlock();
+        }
+    }
+
+    /**
+     *
+     * Return the heap behind the wrapper, only to be used while no thread
+     * operates on the wrapper.
+     *
+     */
+    public Heap heap() {
+        return this.heap;
+    }
+
+    // Publish op in r and wait until a combiner, possibly this thread, has applied it
+    private Heap.HeapItem apply(Record r, int op) {
+        r.op = op; // volatile write, publishes the arguments
+        for (int spins = 0; r.op != 0; spins++) {
+            if (!r.active) {
+                enlist(r);
+            }
+            if (this.combiner.tryLock()) {
+                try {
+                    combine(r);
+                } finally {
+                    this.combiner.unlock();
+                }
+            } else if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        Heap.HeapItem result = r.result;
+        r.result = null;
+        r.item = null;
+        r.info = null;
+        return result;
+    }
+
+    private void enlist(Record r) {
+        r.active = true;
+        Record first;
+        do {
+            first = this.head.get();
+            r.next = first;
+        } while (!this.head.compareAndSet(first, r));
+    }
+
+    // One combining pass: collect the pending records, then apply them by kind. Combiner lock held.
+    private void combine(Record own) {
+        this.passes++;
+        if (own.op != 0) {
+            collect(own);
+        }
+        Record prev = null;
+        Record r = this.head.get();
+        while (r != null) {
+            Record next = r.next;
+            if (r != own && r.op != 0) {
+                collect(r);
+            } else if (r.op == 0 && prev != null && this.passes - r.age > MAX_AGE) {
+                // unlink before clearing active, so its thread only pushes it again once it is out
+                prev.next = next;
+                r.active = false;
+                r = next;
+                continue;
+            }
+            prev = r;
+            r = next;
+        }
+
+        // concurrent operations may take effect in any order: inserts first,
+        // then updates of items the callers hold, then the pops
+        int n = this.inserts.size();
+        if (n > 0) {
+            int[] keys = new int[n];
+            String[] infos = new String[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = this.inserts.get(i).key;
+                infos[i] = this.inserts.get(i).info;
+            }
+            Heap.HeapItem[] items = n == 1 ? new Heap.HeapItem[] { this.heap.insert(keys[0], infos[0]) }
+                    : this.heap.insertAll(keys, infos);
+            for (int i = 0; i < n; i++) {
+                release(this.inserts.get(i), items[i]);
+            }
+        }
+        for (Record u : this.updates) {
+            if (u.op == DECREASE_KEY) {
+                this.heap.decreaseKey(u.item, u.key);
+            } else {
+                this.heap.delete(u.item);
+            }
+            release(u, null);
+        }
+        n = this.pops.size();
+        if (n == 1) {
+            Heap.HeapItem min = this.heap.findMin();
+            this.heap.deleteMin();
+            release(this.pops.get(0), min);
+        } else if (n > 1) {
+            if (this.popped.length < n) {
+                this.popped = new Heap.HeapItem[Math.max(n, 2 * this.popped.length)];
+            }
+            int m = this.heap.deleteMinBatch(n, this.popped);
+            for (int i = 0; i < n; i++) {
+                release(this.pops.get(i), i < m ? this.popped[i] : null);
+                this.popped[i] = null;
+            }
+        }
+        for (Record q : this.reads) {
+            release(q, this.heap.findMin());
+        }
+        this.inserts.clear();
+        this.updates.clear();
+        this.pops.clear();
+        this.reads.clear();
+        this.size = this.heap.size();
+    }
+
+    private void collect(Record r) {
+        r.age = this.passes;
+        switch (r.op) {
+            case INSERT -> this.inserts.add(r);
+            case DELETE_MIN -> this.pops.add(r);
+            case FIND_MIN -> this.reads.add(r);
+            default -> this.updates.add(r);
+        }
+    }
+
+    private static void release(Record r, Heap.HeapItem result) {
+        r.result = result;
+        r.op = 0; // volatile write, publishes the result
+    }
+
+    // A thread's publication record. The arguments and result are plain fields, ordered by the volatile op.
+    private static final class Record {
+        volatile int op; // pending operation, 0 once applied
+        volatile boolean active; // linked into the publication list
+        int key; // key of an insert, diff of a decreaseKey
+        String info;
+        Heap.HeapItem item;
+        Heap.HeapItem result;
+        int age; // pass that last served the record, combiner only
+        Record next;
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.*;
+
+/**
+ * FlatCombiningHeapTest - Runs concurrent workers that insert, decrease,
+ * pop and delete through a FlatCombiningHeap, then checks that no pop
+ * reached a key it could not have, that exactly the expected keys were
+ * popped or are left, and that the rest comes out in order.
+ */
+public class FlatCombiningHeapTest {
+    private static final int WORKERS = 4;
+    private static final int ROUNDS = 5000;
+    private static final int LARGE_BASE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws InterruptedException {
+        FlatCombiningHeap combining = new FlatCombiningHeap(new Heap(false, true));
+        List<List<Integer>> poppedKeys = new ArrayList<>();
+        boolean[] poppedLarge = new boolean[WORKERS];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < WORKERS; t++) {
+            List<Integer> mine = new ArrayList<>();
+            poppedKeys.add(mine);
+            int id = t;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < ROUNDS; i++) {
+                    int n = i * WORKERS + id;
+                    combining.insert(1 + n, null);
+                    Heap.HeapItem x = combining.insert(LARGE_BASE + 2 * n, null);
+                    combining.decreaseKey(x, 1);
+                    if (i % 2 == 1) {
+                        // a worker pops at most half of its small keys, so no pop reaches a large one
+                        Heap.HeapItem min = combining.deleteMin();
+                        mine.add(min.key);
+                        poppedLarge[id] |= min.key >= LARGE_BASE;
+                    }
+                    if (i % 5 == 0) {
+                        combining.delete(x);
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int n = 0; n < WORKERS * ROUNDS; n++) {
+            expected.add(1 + n);
+            if (n / WORKERS % 5 != 0) {
+                expected.add(LARGE_BASE + 2 * n - 1);
+            }
+        }
+        List<Integer> seen = new ArrayList<>();
+        boolean small = true;
+        for (int t = 0; t < WORKERS; t++) {
+            small = small && !poppedLarge[t];
+            seen.addAll(poppedKeys.get(t));
+        }
+        check("pops only reach small keys", small);
+        check("no item lost", seen.size() + combining.size() == expected.size());
+
+        boolean ordered = true;
+        int previous = 0;
+        for (Heap.HeapItem min = combining.deleteMin(); min != null; min = combining.deleteMin()) {
+            ordered = ordered && min.key >= previous;
+            previous = min.key;
+            seen.add(min.key);
+        }
+        check("rest in order", ordered);
+        Collections.sort(seen);
+        Collections.sort(expected);
+        check("exactly the expected keys", seen.equals(expected) && combining.size() == 0);
+        check("operations were combined", combining.passes() > 0);
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
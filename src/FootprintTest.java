@@ -0,0 +1,51 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * FootprintTest - Measures the bytes allocated per inserted element, which is
+ * the retained footprint of the element since insert allocates nothing else,
+ * and checks that CompactHeap's single Node costs clearly less than Heap's
+ * HeapNode plus HeapItem. The other engines are listed for comparison.
+ */
+public class FootprintTest {
+    private static final int SIZE = 1000000;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        AddressableHeap.Engine[] engines = { AddressableHeap.Engine.FIBONACCI, AddressableHeap.Engine.FIBONACCI_COMPACT,
+                AddressableHeap.Engine.PAIRING, AddressableHeap.Engine.RANK_PAIRING, AddressableHeap.Engine.QUATERNARY };
+        double heapBytes = 0;
+        double compactBytes = 0;
+        System.out.printf("%-22s %14s%n", "engine", "bytes/element");
+        for (AddressableHeap.Engine engine : engines) {
+            double bytes = 0;
+            for (int round = 0; round < 2; round++) { // round 0 is warm-up
+                AddressableHeap<?> heap = engine.create();
+                long before = threads.getThreadAllocatedBytes(thread);
+                fill(heap);
+                bytes = (double) (threads.getThreadAllocatedBytes(thread) - before) / SIZE;
+            }
+            System.out.printf("%-22s %14.1f%n", engine, bytes);
+            if (engine == AddressableHeap.Engine.FIBONACCI) {
+                heapBytes = bytes;
+            } else if (engine == AddressableHeap.Engine.FIBONACCI_COMPACT) {
+                compactBytes = bytes;
+            }
+        }
+
+        // a DAryHeap reallocates its arrays while growing, so only the two Fibonacci layouts are checked
+        if (compactBytes <= 0.7 * heapBytes) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: 1 - CompactHeap uses " + compactBytes + " bytes per element, Heap "
+                    + heapBytes);
+        }
+    }
+
+    private static void fill(AddressableHeap<?> heap) {
+        for (int i = 0; i < SIZE; i++) {
+            heap.insert(i % 1000 + 1, null);
+        }
+    }
+}
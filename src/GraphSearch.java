@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/**
+ * GraphSearch
+ *
+ * Dijkstra and Prim over a CsrGraph, driven through any AddressableHeap.
+ * A vertex enters the heap when first reached and is decreased every time
+ * a cheaper arc to it is found, so these are decreaseKey-heavy workloads.
+ * Heap keys must be positive, so Dijkstra stores dist + 1. The info of an
+ * item is its vertex label, mapped back with CsrGraph.vertex.
+ *
+ */
+public class GraphSearch {
+
+    /**
+     *
+     * pre: heap is empty
+     *
+     * Return the shortest distance from source to every vertex,
+     * Integer.MAX_VALUE for the unreachable ones.
+     *
+     */
+    @SuppressWarnings("unchecked")
+    public static <H> int[] dijkstra(CsrGraph g, int source, AddressableHeap<H> heap) {
+        int n = g.numVertices();
+        String[] labels = g.labels();
+        int[] dist = new int[n];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        boolean[] done = new boolean[n];
+        Object[] handles = new Object[n];
+
+        dist[source] = 0;
+        handles[source] = heap.insert(1, labels[source]);
+        while (heap.size() > 0) {
+            int u = g.vertex(heap.info(heap.findMin()));
+            heap.deleteMin();
+            done[u] = true;
+            handles[u] = null;
+            for (int a = g.firstArc(u); a < g.endArc(u); a++) {
+                int v = g.target(a);
+                int d = dist[u] + g.weight(a);
+                if (done[v] || d >= dist[v]) {
+                    continue;
+                }
+                if (handles[v] == null) {
+                    handles[v] = heap.insert(d + 1, labels[v]);
+                } else {
+                    heap.decreaseKey((H) handles[v], dist[v] - d);
+                }
+                dist[v] = d;
+            }
+        }
+        return dist;
+    }
+
+    /**
+     *
+     * pre: heap is empty, g is undirected
+     *
+     * Return the total weight of a minimum spanning forest of g.
+     *
+     */
+    @SuppressWarnings("unchecked")
+    public static <H> long prim(CsrGraph g, AddressableHeap<H> heap) {
+        int n = g.numVertices();
+        String[] labels = g.labels();
+        int[] best = new int[n]; // cheapest known arc into the tree
+        Arrays.fill(best, Integer.MAX_VALUE);
+        boolean[] done = new boolean[n];
+        Object[] handles = new Object[n];
+        long total = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (done[root]) {
+                continue;
+            }
+            best[root] = 0;
+            handles[root] = heap.insert(1, labels[root]);
+            while (heap.size() > 0) {
+                int u = g.vertex(heap.info(heap.findMin()));
+                heap.deleteMin();
+                done[u] = true;
+                handles[u] = null;
+                total += best[u];
+                for (int a = g.firstArc(u); a < g.endArc(u); a++) {
+                    int v = g.target(a);
+                    int w = g.weight(a);
+                    if (done[v] || w >= best[v]) {
+                        continue;
+                    }
+                    if (handles[v] == null) {
+                        handles[v] = heap.insert(w, labels[v]);
+                    } else {
+                        heap.decreaseKey((H) handles[v], best[v] - w);
+                    }
+                    best[v] = w;
+                }
+            }
+        }
+        return total;
+    }
+}
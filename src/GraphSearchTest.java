@@ -0,0 +1,49 @@
+import java.util.*;
+
+/**
+ * GraphSearchTest - Runs Dijkstra and Prim on a grid, a random sparse and a
+ * power-law graph with every AddressableHeap engine and checks that all of
+ * them find the distances and spanning tree weight of a binary heap.
+ * Monotone engines only run Dijkstra. Also checks that every vertex label
+ * maps back to its vertex.
+ */
+public class GraphSearchTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        Random rand = new Random(2011);
+        String[] names = { "grid", "random", "powerlaw" };
+        CsrGraph[] graphs = { CsrGraph.grid(30, 30, 100, rand.nextLong()),
+                CsrGraph.randomSparse(1000, 6, 100, rand.nextLong()), CsrGraph.powerLaw(1000, 3, 100, rand.nextLong()) };
+        for (int i = 0; i < graphs.length; i++) {
+            CsrGraph g = graphs[i];
+            String[] labels = g.labels();
+            boolean named = true;
+            for (int v = 0; v < labels.length; v++) {
+                named = named && g.vertex(labels[v]) == v;
+            }
+            check(names[i] + " labels map back to their vertices", named);
+            int[] dist = GraphSearch.dijkstra(g, 0, new DAryHeap(2));
+            long mst = GraphSearch.prim(g, new DAryHeap(2));
+            for (AddressableHeap.Engine engine : AddressableHeap.Engine.values()) {
+                check(names[i] + " dijkstra on " + engine, Arrays.equals(dist, GraphSearch.dijkstra(g, 0, engine.create())));
+                if (!engine.monotone()) {
+                    check(names[i] + " prim on " + engine, mst == GraphSearch.prim(g, engine.create()));
+                }
+            }
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -1,3 +1,15 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Heap
  *
@@ -6,17 +18,37 @@
  * the possibility of not performing lazy decrease keys.
  *
  */
-public class Heap {
+public class Heap implements AddressableHeap<Heap.HeapItem> {
     public final double GoldenRation = (1 + Math.sqrt(5)) / 2; // keep for bucket calculations
     public final boolean lazyMelds;
     public final boolean lazyDecreaseKeys;
+    public final boolean lazyDeletes;
     public HeapItem min;
-    private int size;
+    private int size; // nodes in the forest, dead items included
+    private int dead = 0; // dead items still in the forest, see lazyDeletes
+    private final double purgeFraction;
     private HeapNode first;
     private int totalMarks = 0;
     private int totalLinks = 0;
     private int totalCuts = 0;
     private int totalHeapifyOps = 0;
+    private int numRoots = 0; // trees in the root list, kept up to date by every operation
+    private boolean meldPending = false; // a meld happened since the last consolidation
+    private final ConsolidationTrigger trigger;
+    private HeapNode[] buckets = new HeapNode[0]; // rank table reused by every consolidation
+    private HeapNode[] candidates = new HeapNode[0]; // binary heap scratch space of deleteMinBatch
+    private ForkJoinPool pool; // consolidates root lists of at least parallelMinRoots trees, null for serial only
+    private int parallelMinRoots;
+
+    // snapshot file layout: a header, then one record per node in depth-first preorder
+    private static final int SNAPSHOT_MAGIC = 0x46485331; // "FHS1"
+    private static final int SNAPSHOT_HEADER = 64;
+    private static final int SNAPSHOT_BUFFER = 1 << 20;
+    private static final int RANK_BITS = 0x3f; // record flags: rank, then mark and dead bits
+    private static final int MARKED = 0x40;
+    private static final int DEAD = 0x80;
+
+    private static final int MIN_SEGMENT = 1 << 12; // fewest roots a parallel consolidation hands to one task
 
     /**
      *
@@ -24,8 +56,39 @@ public class Heap {
      *
      */
     public Heap(boolean lazyMelds, boolean lazyDecreaseKeys) {
+        this(lazyMelds, lazyDecreaseKeys, ConsolidationTrigger.NEVER);
+    }
+
+    /**
+     *
+     * Constructor to initialize an empty heap whose deleteMin, when melds are
+     * lazy, consolidates the root list whenever trigger asks for it.
+     * Ignored when melds are eager, since then every deleteMin consolidates.
+     *
+     */
+    public Heap(boolean lazyMelds, boolean lazyDecreaseKeys, ConsolidationTrigger trigger) {
+        this(lazyMelds, lazyDecreaseKeys, trigger, 0);
+    }
+
+    /**
+     *
+     * pre: 0 <= purgeFraction <= 1
+     *
+     * Constructor to initialize an empty heap with lazy deletes when
+     * purgeFraction > 0: delete only marks a non-minimal item dead, and dead
+     * items are discarded once they reach the minimum, or all at once when
+     * they make up more than purgeFraction of the nodes (1 never purges).
+     *
+     */
+    public Heap(boolean lazyMelds, boolean lazyDecreaseKeys, ConsolidationTrigger trigger, double purgeFraction) {
+        if (!(purgeFraction >= 0 && purgeFraction <= 1)) {
+            throw new IllegalArgumentException("purgeFraction must be in [0, 1]: " + purgeFraction);
+        }
         this.lazyMelds = lazyMelds;
         this.lazyDecreaseKeys = lazyDecreaseKeys;
+        this.lazyDeletes = purgeFraction > 0;
+        this.purgeFraction = purgeFraction;
+        this.trigger = trigger;
         this.size = 0;
     }
 
@@ -62,9 +125,109 @@ public class Heap {
         }
 
         this.size++;
+        this.numRoots++;
         return item;
     }
 
+    /**
+     *
+     * pre: all keys > 0, infos == null or infos.length == keys.length
+     *
+     * Insert all (keys[i],infos[i]) and return the new HeapItems in the same order.
+     * The new nodes are chained in one pass and spliced into the root list at once,
+     * which leaves the heap exactly as the equivalent sequence of inserts would.
+     *
+     */
+    public HeapItem[] insertAll(int[] keys, String[] infos) {
+        return insertAll(keys, infos, false);
+    }
+
+    /**
+     *
+     * pre: all keys > 0, infos == null or infos.length == keys.length
+     *
+     * Insert all (keys[i],infos[i]) and return the new HeapItems in the same order.
+     * With prelink the new nodes are first linked into trees of distinct ranks
+     * (counted in totalLinks), so the next deleteMin does not have to.
+     *
+     */
+    public HeapItem[] insertAll(int[] keys, String[] infos, boolean prelink) {
+        if (infos != null && infos.length != keys.length) {
+            throw new IllegalArgumentException("keys and infos differ in length: " + keys.length + " != " + infos.length);
+        }
+        int n = keys.length;
+        HeapItem[] items = new HeapItem[n];
+        if (n == 0) {
+            return items;
+        }
+
+        // Chain the new nodes into a circular list, tracking the batch minimum
+        HeapNode head = null;
+        HeapNode tail = null;
+        HeapItem batchMin = null;
+        for (int i = 0; i < n; i++) {
+            HeapNode node = new HeapNode();
+            HeapItem item = new HeapItem();
+            item.key = keys[i];
+            item.info = infos == null ? null : infos[i];
+            item.node = node;
+            node.item = item;
+            items[i] = item;
+            if (head == null) {
+                head = node;
+                batchMin = item;
+            } else {
+                tail.next = node;
+                node.prev = tail;
+                if (item.key < batchMin.key) {
+                    batchMin = item;
+                }
+            }
+            tail = node;
+        }
+        tail.next = head;
+        head.prev = tail;
+
+        this.size += n;
+        this.numRoots += n;
+        if (prelink) {
+            head = consolidate(head); // the returned root is the batch minimum
+            batchMin = head.item;
+        }
+
+        if (this.first == null) {
+            this.first = head;
+            this.min = batchMin;
+        } else {
+            // splice the batch before first, where one-by-one inserts would have put it
+            HeapNode aLast = this.first.prev;
+            HeapNode bLast = head.prev;
+            aLast.next = head;
+            head.prev = aLast;
+            bLast.next = this.first;
+            this.first.prev = bLast;
+            if (batchMin.key < this.min.key) {
+                this.min = batchMin;
+            }
+        }
+        return items;
+    }
+
+    /**
+     *
+     * pre: all keys > 0, infos == null or infos.length == keys.length
+     *
+     * Build a heap holding (keys[i],infos[i]) for all i, pre-linked unless
+     * lazyMelds. Use insertAll on an empty heap instead when the HeapItems
+     * are needed.
+     *
+     */
+    public static Heap fromArray(int[] keys, String[] infos, boolean lazyMelds, boolean lazyDecreaseKeys) {
+        Heap heap = new Heap(lazyMelds, lazyDecreaseKeys);
+        heap.insertAll(keys, infos, !lazyMelds);
+        return heap;
+    }
+
     /**
      * 
      * Return the minimal HeapNode, null if empty.
@@ -84,71 +247,119 @@ public class Heap {
             return;
         }
 
-        // GetMinimum
-        HeapNode minNode = this.min.node;
+        removeRoot(this.min.node);
+        restoreMin(false);
+        purgeIfMostlyDead();
+    }
 
-        // Promote all children of the minimum to the root list
-        if (minNode.child != null) {
-            HeapNode child = minNode.child;
-            HeapNode firstChild = child;
-            // Detach all children from parent
-            child.parent = null; // detach from parent
-            child = child.next;
-            while (child != firstChild) {
-                child.parent = null; // detach from parent
-                child = child.next;
+    /**
+     *
+     * pre: out.length >= k
+     *
+     * Delete the k minimal items (all of them if size < k) and store them in out
+     * in sorted order. Return the number of items deleted.
+     * The items are taken from the forest with a small candidate heap and the
+     * remaining trees are consolidated once, instead of once per item.
+     *
+     */
+    public int deleteMinBatch(int k, HeapItem[] out) {
+        int n = Math.min(k, size());
+        if (n <= 0) {
+            return 0;
+        }
+        if (n == size()) {
+            // everything goes, so just read the items off in order
+            for (int i = 0; i < n; i++) {
+                out[i] = this.min;
+                deleteMin();
             }
+            return n;
+        }
 
-            // Concatenate child list with root list
-            if (this.size == 1) {
-                // Only child becomes root list
-                this.first = minNode.child;
+        // every root is a candidate; popping a candidate makes its children candidates
+        int count = 0;
+        HeapNode root = this.first;
+        do {
+            pushCandidate(count++, root);
+            root = root.next;
+        } while (root != this.first);
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftCandidate(i, count);
+        }
+
+        int discarded = 0;
+        for (int j = 0; j < n;) {
+            HeapNode top = this.candidates[0];
+            if (top.mark != 0) {
+                totalMarks--; // as in removeRoot; its children stay marked as they become candidates
+                top.mark = 0;
+            }
+            if (top.item.node == null) {
+                discarded++; // a dead item, dropped on the way
             } else {
-                // Merge child list into root list
-                HeapNode minPrev = minNode.prev;
-                HeapNode childLast = minNode.child.prev;
-
-                minPrev.next = minNode.child;
-                minNode.child.prev = minPrev;
-                childLast.next = minNode.next;
-                minNode.next.prev = childLast;
-
-                this.first = minNode.next;
-            }
-        } else if (this.size > 1) {
-            // No children, just remove from root list
-            minNode.prev.next = minNode.next;
-            minNode.next.prev = minNode.prev;
-            this.first = minNode.next;
-        } else {
-            // Only element in heap
-            this.first = null;
+                out[j++] = top.item;
+            }
+            this.candidates[0] = this.candidates[--count];
+            this.candidates[count] = null;
+            siftCandidate(0, count);
+            if (top.child != null) {
+                HeapNode c = top.child;
+                do {
+                    pushCandidate(count, c);
+                    siftUpCandidate(count++);
+                    c = c.next;
+                } while (c != top.child);
+            }
         }
 
-        this.size--;
+        // the candidates left over are exactly the roots of what remains
+        HeapNode[] roots = this.candidates;
+        HeapNode last = roots[count - 1];
+        for (int i = 0; i < count; i++) {
+            HeapNode x = roots[i];
+            roots[i] = null;
+            x.parent = null;
+            x.prev = last;
+            last.next = x;
+            last = x;
+        }
+        this.first = last.next;
+        this.size -= n + discarded;
+        this.dead -= discarded;
+        this.numRoots = count;
+        restoreMin(false);
+        purgeIfMostlyDead();
+        return n;
+    }
 
-        // Find new minimum
-        if (this.size == 0) {
-            this.min = null;
-        } else {
-            // Only consolidate if lazyMelds is false (eager consolidation)
-            if (!this.lazyMelds) {
-                // Consolidate the heap (link trees of same rank)
-                this.first = consolidate(this.first);
-            }
+    /**
+     *
+     * Delete up to k minimal items and add them to c in sorted order.
+     * Return the number of items added.
+     *
+     */
+    public int drainTo(Collection<? super HeapItem> c, int k) {
+        HeapItem[] out = new HeapItem[Math.max(0, Math.min(k, size()))];
+        int n = deleteMinBatch(out.length, out);
+        for (int i = 0; i < n; i++) {
+            c.add(out[i]);
+        }
+        return n;
+    }
 
-            // Find minimum in root list
-            HeapNode current = this.first;
-            HeapItem newMin = current.item;
-            current = current.next;
-            while (current != this.first) {
-                if (current.item.key < newMin.key) {
-                    newMin = current.item;
-                }
-                current = current.next;
-            }
-            this.min = newMin;
+    /**
+     *
+     * Link the trees of equal rank now, as the next deleteMin would, so that
+     * deleteMin does not pay for all the inserts since the last one at once.
+     *
+     */
+    public void consolidate() {
+        if (this.first == null) {
+            return;
         }
+        this.first = consolidate(this.first);
+        this.meldPending = false;
+        restoreMin(true); // the min root is first, unless the trees were all dead
     }
 
     /**
@@ -174,6 +385,9 @@ public class Heap {
             // Lazy approach: use cascading cuts
             HeapNode parent = x.node.parent;
             if (parent != null && x.key < parent.item.key) {
+                if (x.node.mark != 0) {
+                    totalMarks--; // cut clears the mark of the new root
+                }
                 CascadingCut(x.node, parent);
                 // Update min if necessary
                 if (x.key < this.min.key) {
@@ -183,18 +397,126 @@ public class Heap {
         }
     }
 
+    /**
+     *
+     * pre: diff >= 0
+     *
+     * Increase the key of x by diff and fix the heap. With eager decrease keys
+     * x sifts down by swapping items with its smallest child. With lazy ones
+     * the children that became smaller than x are cut to the root list, and x
+     * counts as having lost them for the cascading cut rule.
+     *
+     */
+    public void increaseKey(HeapItem x, int diff) {
+        if (x == null || x.node == null || diff == 0) {
+            return;
+        }
+        boolean wasMin = x == this.min;
+        x.key += diff;
+
+        if (!this.lazyDecreaseKeys) {
+            HeapifyDown(x.node);
+        } else {
+            HeapNode node = x.node;
+            int lost = 0;
+            HeapNode c = node.child;
+            for (int i = node.rank; i > 0; i--) {
+                HeapNode next = c.next;
+                if (c.item.key < x.key) {
+                    if (c.mark != 0) {
+                        totalMarks--; // cut clears the mark of the new root
+                    }
+                    cut(c, node);
+                    lost++;
+                }
+                c = next;
+            }
+            HeapNode parent = node.parent;
+            if (lost > 0 && parent != null) {
+                if (node.mark == 0 && lost == 1) {
+                    node.mark++;
+                    totalMarks++;
+                } else {
+                    if (node.mark != 0) {
+                        totalMarks--;
+                    }
+                    CascadingCut(node, parent);
+                }
+            }
+        }
+
+        if (wasMin) {
+            restoreMin(true);
+        }
+    }
+
+    /**
+     *
+     * pre: newKey > 0
+     *
+     * Set the key of x to newKey, moving it up or down as needed.
+     *
+     */
+    public void updateKey(HeapItem x, int newKey) {
+        if (x == null) {
+            return;
+        }
+        if (newKey < x.key) {
+            decreaseKey(x, x.key - newKey);
+        } else {
+            increaseKey(x, newKey - x.key);
+        }
+    }
+
     /**
      * 
      * Delete the x from the heap.
+     * Unless x is the minimum, x is taken out of its tree (cut with cascading
+     * cuts when decrease keys are lazy, floated to the root by swaps when they
+     * are eager) and its children join the root list. Only deleting the
+     * minimum consolidates. With lazyDeletes x is only marked dead instead.
      *
      */
     public void delete(HeapItem x) {
-        // All keys>=0 and so we can make it -1 and so Min
-        if (x == null) {
+        if (x == null || x.node == null) {
+            return;
+        }
+        if (x == this.min) {
+            deleteMin();
+            return;
+        }
+        if (this.lazyDeletes) {
+            // a dead item is one without a node, its node stays in the forest until discarded
+            x.node = null;
+            this.dead++;
+            purgeIfMostlyDead();
             return;
         }
-        decreaseKey(x, x.key + 1); // make it -1 and so Min
-        deleteMin();
+
+        HeapNode node = x.node;
+        if (node.mark != 0) {
+            totalMarks--; // x leaves the heap with its mark
+            node.mark = 0;
+        }
+        if (node.parent != null) {
+            if (this.lazyDecreaseKeys) {
+                CascadingCut(node, node.parent);
+            } else {
+                // the swaps a decrease to -1 would make, without touching min
+                while (node.parent != null) {
+                    totalHeapifyOps++;
+                    HeapItem parentItem = node.parent.item;
+                    node.parent.item = x;
+                    x.node = node.parent;
+                    node.item = parentItem;
+                    if (parentItem.node != null) {
+                        parentItem.node = node;
+                    }
+                    node = node.parent;
+                }
+            }
+        }
+        removeRoot(node);
     }
 
     /**
@@ -219,11 +541,18 @@ public class Heap {
             this.first = heap2.first;
             this.min = heap2.min;
             this.size = heap2.size;
+            this.dead = heap2.dead;
+            this.numRoots = heap2.numRoots;
+            this.totalMarks += heap2.totalMarks; // marked nodes of heap2 stay marked here
+            this.meldPending = true;
 
             // Clear heap2
             heap2.first = null;
             heap2.min = null;
             heap2.size = 0;
+            heap2.dead = 0;
+            heap2.numRoots = 0;
+            heap2.totalMarks = 0;
             return;
         }
 
@@ -238,6 +567,10 @@ public class Heap {
         this.first.prev = bLast;
 
         this.size += heap2.size;
+        this.dead += heap2.dead;
+        this.numRoots += heap2.numRoots;
+        this.totalMarks += heap2.totalMarks;
+        this.meldPending = true;
         if (heap2.min != null && heap2.min.key < this.min.key) {
             this.min = heap2.min;
         }
@@ -246,15 +579,255 @@ public class Heap {
         heap2.first = null;
         heap2.min = null;
         heap2.size = 0;
+        heap2.dead = 0;
+        heap2.numRoots = 0;
+        heap2.totalMarks = 0;
+    }
+
+    /**
+     *
+     * Meld the heap with heap2, which must be a Heap.
+     *
+     */
+    public void meld(AddressableHeap<HeapItem> heap2) {
+        if (heap2 != null && !(heap2 instanceof Heap)) {
+            throw new IllegalArgumentException("Cannot meld a " + heap2.getClass().getSimpleName() + " into a Heap");
+        }
+        meld((Heap) heap2);
+    }
+
+    /**
+     *
+     * Write the heap to file, replacing its contents, and add every item to
+     * items (unless null) in the order of the file: each root of the root
+     * list from first, followed by its subtree in depth-first preorder.
+     * A record holds the rank, mark, key and info of one node, so
+     * readSnapshot can rebuild the same forest without linking.
+     *
+     */
+    public void writeSnapshot(Path file, Collection<? super HeapItem> items) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeSnapshot(channel, items);
+        }
+    }
+
+    /**
+     *
+     * pre: channel is not in append mode
+     *
+     * Write the heap as writeSnapshot(Path, items) does, starting at the
+     * position of channel, and leave channel positioned after the snapshot.
+     * This lets a snapshot be embedded in a larger file such as a log.
+     *
+     */
+    public void writeSnapshot(FileChannel channel, Collection<? super HeapItem> items) throws IOException {
+        long start = channel.position();
+        ByteBuffer buf = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(SNAPSHOT_HEADER); // the header is written last, once the index of min is known
+        int index = 0;
+        int minIndex = -1;
+        HeapNode[] stack = new HeapNode[16];
+        HeapNode root = this.first;
+        for (int r = 0; r < this.numRoots; r++, root = root.next) {
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                HeapNode x = stack[--top];
+                if (x.item == this.min) {
+                    minIndex = index;
+                }
+                index++;
+                writeRecord(channel, buf, x);
+                if (items != null) {
+                    items.add(x.item);
+                }
+                if (x.child != null) {
+                    // push the children last to first, so they come out in list order
+                    if (top + x.rank > stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * (top + x.rank));
+                    }
+                    HeapNode c = x.child.prev;
+                    for (int i = 0; i < x.rank; i++, c = c.prev) {
+                        stack[top++] = c;
+                    }
+                }
+            }
+        }
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(SNAPSHOT_MAGIC);
+        header.putInt((this.lazyMelds ? 1 : 0) | (this.lazyDecreaseKeys ? 2 : 0) | (this.meldPending ? 4 : 0));
+        header.putDouble(this.purgeFraction);
+        header.putInt(this.size).putInt(this.dead).putInt(this.numRoots).putInt(minIndex);
+        header.putInt(this.totalMarks).putInt(this.totalLinks).putInt(this.totalCuts).putInt(this.totalHeapifyOps);
+        header.putLong(channel.position() - start);
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, start + header.position());
+        }
+    }
+
+    /**
+     *
+     * Write the heap to file, replacing its contents.
+     *
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        writeSnapshot(file, null);
+    }
+
+    /**
+     *
+     * Rebuild the heap written to file by writeSnapshot in one pass over its
+     * records, with the same trees, marks, min and counters. Every item is
+     * added to items (unless null) in the order writeSnapshot reported them.
+     * The trigger is not part of the file and is given here instead.
+     *
+     */
+    public static Heap readSnapshot(Path file, ConsolidationTrigger trigger, Collection<? super HeapItem> items)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readSnapshot(channel, trigger, items, file);
+        }
+    }
+
+    /**
+     *
+     * Rebuild the heap written by writeSnapshot(FileChannel, items) at the
+     * position of channel, as readSnapshot(Path, trigger, items) does, and
+     * leave channel positioned after the snapshot.
+     *
+     */
+    public static Heap readSnapshot(FileChannel channel, ConsolidationTrigger trigger, Collection<? super HeapItem> items)
+            throws IOException {
+        return readSnapshot(channel, trigger, items, channel);
+    }
+
+    private static Heap readSnapshot(FileChannel channel, ConsolidationTrigger trigger, Collection<? super HeapItem> items,
+            Object source) throws IOException {
+        long start = channel.position();
+        ByteBuffer buf = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        buf.flip();
+        if (!fill(channel, buf, SNAPSHOT_HEADER) || buf.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a heap snapshot: " + source);
+        }
+        int flags = buf.getInt();
+        Heap heap = new Heap((flags & 1) != 0, (flags & 2) != 0, trigger, buf.getDouble());
+        int size = buf.getInt();
+        heap.dead = buf.getInt();
+        int numRoots = buf.getInt();
+        int minIndex = buf.getInt();
+        heap.totalMarks = buf.getInt();
+        heap.totalLinks = buf.getInt();
+        heap.totalCuts = buf.getInt();
+        heap.totalHeapifyOps = buf.getInt();
+        long length = buf.getLong();
+        buf.position(SNAPSHOT_HEADER);
+        heap.meldPending = (flags & 4) != 0;
+        heap.size = size;
+        heap.numRoots = numRoots;
+
+        // parents whose children are still being read, with the number each is missing
+        HeapNode[] parents = new HeapNode[16];
+        int[] missing = new int[16];
+        int top = 0;
+        HeapNode lastRoot = null;
+        for (int index = 0; index < size; index++) {
+            HeapNode x = readRecord(channel, buf, source);
+            if (index == minIndex) {
+                heap.min = x.item;
+            }
+            if (items != null) {
+                items.add(x.item);
+            }
+            if (top == 0) {
+                if (lastRoot == null) {
+                    heap.first = x;
+                    x.next = x;
+                    x.prev = x;
+                } else {
+                    heap.insertAfter(lastRoot, x);
+                }
+                lastRoot = x;
+            } else {
+                HeapNode parent = parents[top - 1];
+                x.parent = parent;
+                if (parent.child == null) {
+                    parent.child = x;
+                    x.next = x;
+                    x.prev = x;
+                } else {
+                    heap.insertAfter(parent.child.prev, x);
+                }
+                if (--missing[top - 1] == 0) {
+                    top--;
+                }
+            }
+            if (x.rank > 0) {
+                if (top == parents.length) {
+                    parents = Arrays.copyOf(parents, 2 * top);
+                    missing = Arrays.copyOf(missing, 2 * top);
+                }
+                parents[top] = x;
+                missing[top++] = x.rank;
+            }
+        }
+        if (top != 0 || (size > 0 && heap.min == null)) {
+            throw new IOException("Truncated heap snapshot: " + source);
+        }
+        channel.position(start + length);
+        return heap;
+    }
+
+    /**
+     *
+     * Rebuild the heap written to file by writeSnapshot.
+     *
+     */
+    public static Heap readSnapshot(Path file) throws IOException {
+        return readSnapshot(file, ConsolidationTrigger.NEVER, null);
     }
 
     /**
      * 
-     * Return the number of elements in the heap
+     * Return the number of elements in the heap, not counting dead ones
      * 
      */
     public int size() {
-        return this.size;
+        return this.size - this.dead;
+    }
+
+    /**
+     *
+     * Return the number of dead items still in the heap, always 0 without
+     * lazyDeletes.
+     *
+     */
+    public int numDeadItems() {
+        return this.dead;
+    }
+
+    /**
+     *
+     * Return the fraction of dead nodes at which the heap purges them, 0
+     * without lazyDeletes.
+     *
+     */
+    public double purgeFraction() {
+        return this.purgeFraction;
+    }
+
+    public int key(HeapItem x) {
+        return x.key;
+    }
+
+    public String info(HeapItem x) {
+        return x.info;
     }
 
     /**
@@ -262,20 +835,9 @@ public class Heap {
      * Return the number of trees in the heap.
      * 
      */
-    public int numTrees() // O(number of trees)
+    public int numTrees() // O(1), maintained by insert, link, cut, meld and deleteMin
     {
-        HeapNode current = this.first;
-        if (current == null) {
-            return 0;
-        }
-        int count = 1;
-        while (current.next != this.first) {
-            count++;
-            current = current.next;
-        }
-
-        // Probably should be done in deleteMin or meld to be O(1)
-        return count;
+        return this.numRoots;
     }
 
     /**
@@ -325,7 +887,9 @@ public class Heap {
             x.parent.item = x.item;
             x.parent.item.node = x.parent;
             x.item = parentItem;
-            x.item.node = x;
+            if (parentItem.node != null) { // a dead item stays without a node
+                parentItem.node = x;
+            }
             if (this.min == null || x.parent.item.key < this.min.key) {
                 this.min = x.parent.item;
             }
@@ -333,7 +897,29 @@ public class Heap {
         }
     }
 
-    public void HeapifyDown() {
+    public void HeapifyDown(HeapNode x) {
+        while (x.child != null) {
+            // the smallest child is the only candidate to move up
+            HeapNode smallest = x.child;
+            for (HeapNode c = x.child.next; c != x.child; c = c.next) {
+                if (c.item.key < smallest.item.key) {
+                    smallest = c;
+                }
+            }
+            if (smallest.item.key >= x.item.key) {
+                return;
+            }
+            totalHeapifyOps++;
+            // swap only HeapItems between nodes
+            HeapItem childItem = smallest.item;
+            smallest.item = x.item;
+            smallest.item.node = smallest;
+            x.item = childItem;
+            if (childItem.node != null) { // a dead item stays without a node
+                childItem.node = x;
+            }
+            x = smallest; // Move down the tree
+        }
     }
 
     public void setFirst(HeapNode first) {
@@ -342,6 +928,7 @@ public class Heap {
 
     public void cut(HeapNode x, HeapNode y) { // O(1)
         totalCuts++; // Track cut operations
+        numRoots++; // x becomes a root
         x.parent = null;
         x.mark = 0;
         y.rank--;
@@ -363,31 +950,149 @@ public class Heap {
 
     public void CascadingCut(HeapNode x, HeapNode y) {
         cut(x, y);
-        if (y.parent != null) {
+        // walk up while the ancestors are marked instead of recursing
+        while (y.parent != null) {
             if (y.mark == 0) {
                 y.mark++;
                 totalMarks++; // Maintaining totalMarks
-            } else {
-                totalMarks--; // Maintaining totalMarks
-                CascadingCut(y, y.parent);
+                return;
             }
+            totalMarks--; // Maintaining totalMarks
+            x = y;
+            y = y.parent;
+            cut(x, y);
         }
     }
 
     // this is Successive Linking
     public HeapNode consolidate(HeapNode x) {
-        // toBuckets(x);
+        if (this.pool != null && this.numRoots >= this.parallelMinRoots && this.dead == 0) {
+            return parallelToBuckets(x);
+        }
         return toBuckets(x); // tobuckets calls frombuckets with the buckets array
 
     }
 
-    public HeapNode toBuckets(HeapNode x) { // NEED TO WRITE
-        HeapNode[] buckets = new HeapNode[getLogOfSizeBaseGoldenRatio().intValue() + 1]; // Should initlize to null
+    /**
+     *
+     * pre: minRoots >= 2
+     *
+     * Consolidate root lists of at least minRoots trees on pool, or always
+     * serially when pool is null. The root list is cut into segments whose
+     * trees are linked by rank in parallel, and the rank tables of the
+     * segments are then merged like binary numbers. The trees come out
+     * shaped differently, but one per rank as before, so consolidating a
+     * root list takes as many links as serially and totalLinks counts each
+     * of them. Heaps holding dead items consolidate serially.
+     *
+     */
+    public void parallelConsolidation(ForkJoinPool pool, int minRoots) {
+        if (minRoots < 2) {
+            throw new IllegalArgumentException("minRoots must be at least 2: " + minRoots);
+        }
+        this.pool = pool;
+        this.parallelMinRoots = minRoots;
+    }
+
+    private HeapNode parallelToBuckets(HeapNode x) {
+        int ranks = maxRank(this.size) + 1;
+        int segments = Math.max(1, Math.min(4 * this.pool.getParallelism(), this.numRoots / MIN_SEGMENT));
+        int perSegment = (this.numRoots + segments - 1) / segments;
+        SegmentLinks[] tasks = new SegmentLinks[segments];
+        x.prev.next = null; // break circularity
+        HeapNode current = x;
+        int s = 0;
+        while (current != null) {
+            // cut off the next segment and hand it to the pool while walking on to the one after
+            HeapNode head = current;
+            for (int i = 1; (i < perSegment || s == segments - 1) && current.next != null; i++) {
+                current = current.next;
+            }
+            HeapNode next = current.next;
+            current.next = null;
+            tasks[s] = new SegmentLinks(head, ranks);
+            this.pool.execute(tasks[s++]);
+            current = next;
+        }
+
+        HeapNode[] buckets = tasks[0].join();
+        int links = tasks[0].links;
+        for (int t = 1; t < s; t++) {
+            HeapNode[] other = tasks[t].join();
+            links += tasks[t].links;
+            // add the tables rank by rank, carrying a linked tree to the next rank
+            HeapNode carry = null;
+            for (int r = 0; r < ranks; r++) {
+                HeapNode p = buckets[r];
+                HeapNode q = other[r];
+                if (p == null) {
+                    p = carry;
+                } else if (q == null) {
+                    q = carry;
+                } else if (carry != null) {
+                    buckets[r] = carry;
+                    carry = linkTrees(p, q);
+                    links++;
+                    continue;
+                }
+                if (p != null && q != null) {
+                    buckets[r] = null;
+                    carry = linkTrees(p, q);
+                    links++;
+                } else {
+                    buckets[r] = p != null ? p : q;
+                    carry = null;
+                }
+            }
+        }
+        this.totalLinks += links;
+        this.numRoots -= links;
+        return fromBuckets(buckets);
+    }
+
+    // Links the trees of one null-terminated segment of the root list by rank, counting its links.
+    // ForkJoinTask is Serializable, but these tasks never leave the pool of one consolidation.
+    @SuppressWarnings("serial")
+    private final class SegmentLinks extends RecursiveTask<HeapNode[]> {
+        final HeapNode head;
+        final int ranks;
+        int links;
+
+        SegmentLinks(HeapNode head, int ranks) {
+            this.head = head;
+            this.ranks = ranks;
+        }
+
+        @Override
+        protected HeapNode[] compute() {
+            HeapNode[] buckets = new HeapNode[this.ranks];
+            HeapNode current = this.head;
+            while (current != null) {
+                HeapNode y = current;
+                current = current.next;
+                while (buckets[y.rank] != null) {
+                    y = linkTrees(y, buckets[y.rank]);
+                    buckets[y.rank - 1] = null;
+                    this.links++;
+                }
+                buckets[y.rank] = y;
+            }
+            return buckets;
+        }
+    }
+
+    public HeapNode toBuckets(HeapNode x) {
+        HeapNode[] buckets = rankTable();
         x.prev.next = null; // break circularity
         HeapNode current = x;
         while (current != null) {
             HeapNode y = current;
             current = current.next;
+            if (y.item.node == null) {
+                // a dead root is dropped here, its children are linked in its place
+                current = dropDeadRoot(y, current);
+                continue;
+            }
             while (buckets[y.rank] != null) {
                 y = link(y, buckets[y.rank]);
                 buckets[y.rank - 1] = null;
@@ -399,18 +1104,20 @@ public class Heap {
 
     }
 
-    public HeapNode fromBuckets(HeapNode[] buckets) {
+    public HeapNode fromBuckets(HeapNode[] buckets) { // leaves buckets empty for the next consolidation
         HeapNode x = null;
         for (int i = 0; i < buckets.length; i++) {
-            if (buckets[i] != null) {
+            HeapNode b = buckets[i];
+            if (b != null) {
+                buckets[i] = null;
                 if (x == null) {
-                    x = buckets[i];
+                    x = b;
                     x.next = x;
                     x.prev = x;
                 } else {
-                    insertAfter(x, buckets[i]);
-                    if (buckets[i].item.key < x.item.key) {
-                        x = buckets[i];
+                    insertAfter(x, b);
+                    if (b.item.key < x.item.key) {
+                        x = b;
                     }
                 }
             }
@@ -421,6 +1128,12 @@ public class Heap {
 
     public HeapNode link(HeapNode x, HeapNode y) {
         totalLinks++; // Track link operations
+        numRoots--; // one of the two roots becomes a child
+        return linkTrees(x, y);
+    }
+
+    // Link without counting, so parallel consolidation can count per task
+    private HeapNode linkTrees(HeapNode x, HeapNode y) {
         if (x.item.key < y.item.key) {
             // Make y child of x
 
@@ -456,6 +1169,222 @@ public class Heap {
         return Math.log(this.size()) / Math.log(GoldenRation);
     }
 
+    /**
+     *
+     * Return an upper bound on the rank of any node in a heap of n nodes,
+     * computed without floating point: log_phi(n) < 1.5 * log2(n).
+     *
+     */
+    public static int maxRank(int n) {
+        int bits = 32 - Integer.numberOfLeadingZeros(n);
+        return bits + (bits >> 1) + 1;
+    }
+
+    // The rank table only grows when the heap outgrows its rank bound, so steady-state consolidation allocates nothing
+    private HeapNode[] rankTable() {
+        int needed = maxRank(this.size) + 1;
+        if (this.buckets.length < needed) {
+            this.buckets = new HeapNode[needed];
+        }
+        return this.buckets;
+    }
+
+    // Replace the root x by its children in the root list, first moves to the root after x
+    private void removeRoot(HeapNode x) {
+        HeapNode child = x.child;
+        if (child != null) {
+            // Detach all children from parent
+            HeapNode c = child;
+            do {
+                c.parent = null;
+                c = c.next;
+            } while (c != child);
+        }
+
+        if (x.next == x) {
+            // x was the only root, its children become the root list
+            this.first = child;
+        } else if (child == null) {
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+            this.first = x.next;
+        } else {
+            // Merge child list into root list where x was
+            HeapNode childLast = child.prev;
+            x.prev.next = child;
+            child.prev = x.prev;
+            childLast.next = x.next;
+            x.next.prev = childLast;
+            this.first = x.next;
+        }
+
+        if (x.mark != 0) {
+            totalMarks--; // a minimum promoted by an earlier deleteMin may still be marked
+        }
+        this.size--;
+        this.numRoots += x.rank - 1; // the children replace x in the root list
+    }
+
+    // Make min the minimal live item. Consolidate when melds are eager or the trigger asks for it
+    // (unless scanOnly), otherwise just find the minimal root. Dead items found there are discarded.
+    private void restoreMin(boolean scanOnly) {
+        if (this.dead > 0 && this.size == this.dead) {
+            // nothing live is left, so the dead items go all at once
+            this.first = null;
+            this.size = 0;
+            this.dead = 0;
+            this.numRoots = 0;
+            this.totalMarks = 0;
+        }
+        while (this.size > 0) {
+            HeapNode minRoot;
+            if (!scanOnly && (!this.lazyMelds || this.trigger.shouldConsolidate(this.numRoots, this.size, this.meldPending))) {
+                // Consolidate the heap (link trees of same rank), the returned root is the minimum
+                this.first = consolidate(this.first);
+                minRoot = this.first;
+                this.meldPending = false;
+            } else {
+                minRoot = scanMin();
+            }
+            if (minRoot.item.node != null) {
+                this.min = minRoot.item;
+                return;
+            }
+            this.dead--;
+            removeRoot(minRoot);
+        }
+        this.min = null;
+    }
+
+    // Find minimum in root list
+    private HeapNode scanMin() {
+        HeapNode current = this.first;
+        HeapNode newMin = current;
+        current = current.next;
+        while (current != this.first) {
+            if (current.item.key < newMin.item.key) {
+                newMin = current;
+            }
+            current = current.next;
+        }
+        return newMin;
+    }
+
+    // Remove the dead root x from the heap and return its children chained in front of rest
+    private HeapNode dropDeadRoot(HeapNode x, HeapNode rest) {
+        this.dead--;
+        this.size--;
+        this.numRoots += x.rank - 1;
+        if (x.mark != 0) {
+            totalMarks--;
+        }
+        HeapNode child = x.child;
+        if (child == null) {
+            return rest;
+        }
+        HeapNode c = child;
+        do {
+            c.parent = null;
+            c = c.next;
+        } while (c != child);
+        child.prev.next = rest;
+        return child;
+    }
+
+    // Purge once the dead items pass purgeFraction of the nodes, each purge is paid for by the deletes since the last
+    private void purgeIfMostlyDead() {
+        if (this.dead > this.purgeFraction * this.size) {
+            purge();
+        }
+    }
+
+    // Drop every dead node and rebuild the root list from the live ones as singleton trees
+    private void purge() {
+        int count = 0;
+        HeapNode root = this.first;
+        do {
+            pushCandidate(count++, root);
+            root = root.next;
+        } while (root != this.first);
+
+        HeapNode head = null;
+        HeapNode tail = null;
+        while (count > 0) {
+            HeapNode x = this.candidates[--count];
+            this.candidates[count] = null;
+            if (x.child != null) {
+                HeapNode c = x.child;
+                do {
+                    pushCandidate(count++, c);
+                    c = c.next;
+                } while (c != x.child);
+            }
+            if (x.item.node == null) {
+                continue;
+            }
+            x.parent = null;
+            x.child = null;
+            x.rank = 0;
+            x.mark = 0;
+            if (head == null) {
+                head = x;
+            } else {
+                tail.next = x;
+                x.prev = tail;
+            }
+            tail = x;
+        }
+        tail.next = head;
+        head.prev = tail;
+
+        this.size -= this.dead;
+        this.dead = 0;
+        this.numRoots = this.size;
+        this.totalMarks = 0;
+        this.first = this.lazyMelds ? head : consolidate(head);
+    }
+
+    private void pushCandidate(int i, HeapNode x) {
+        if (i == this.candidates.length) {
+            this.candidates = Arrays.copyOf(this.candidates, Math.max(16, 2 * i));
+        }
+        this.candidates[i] = x;
+    }
+
+    private void siftUpCandidate(int i) {
+        HeapNode[] h = this.candidates;
+        HeapNode x = h[i];
+        while (i > 0) {
+            int p = (i - 1) >> 1;
+            if (h[p].item.key <= x.item.key) {
+                break;
+            }
+            h[i] = h[p];
+            i = p;
+        }
+        h[i] = x;
+    }
+
+    private void siftCandidate(int i, int count) {
+        HeapNode[] h = this.candidates;
+        HeapNode x = h[i];
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= count) {
+                break;
+            }
+            if (c + 1 < count && h[c + 1].item.key < h[c].item.key) {
+                c++;
+            }
+            if (x.item.key <= h[c].item.key) {
+                break;
+            }
+            h[i] = h[c];
+            i = c;
+        }
+        h[i] = x;
+    }
+
     public void insertAfter(HeapNode x, HeapNode y) {
         if (x == null) {
             y.next = y;
@@ -468,6 +1397,123 @@ public class Heap {
         }
     }
 
+    // Record: flags byte (rank, mark, dead), key, info length (-1 for null) and the UTF-8 bytes of info
+    private static void writeRecord(FileChannel channel, ByteBuffer buf, HeapNode x) throws IOException {
+        byte[] info = x.item.info == null ? null : x.item.info.getBytes(StandardCharsets.UTF_8);
+        int length = info == null ? -1 : info.length;
+        int flags = x.rank | (x.mark != 0 ? MARKED : 0) | (x.item.node == null ? DEAD : 0);
+        if (buf.remaining() < 9 + Math.max(length, 0)) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+        buf.put((byte) flags).putInt(x.item.key).putInt(length);
+        if (length <= 0) {
+            return;
+        }
+        if (length <= buf.remaining()) {
+            buf.put(info);
+        } else {
+            // too long for the buffer, which the check above has just flushed
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+            ByteBuffer big = ByteBuffer.wrap(info);
+            while (big.hasRemaining()) {
+                channel.write(big);
+            }
+        }
+    }
+
+    private static HeapNode readRecord(FileChannel channel, ByteBuffer buf, Object source) throws IOException {
+        if (!fill(channel, buf, 9)) {
+            throw new IOException("Truncated heap snapshot: " + source);
+        }
+        int flags = buf.get() & 0xff;
+        HeapNode x = new HeapNode();
+        HeapItem item = new HeapItem();
+        item.key = buf.getInt();
+        int length = buf.getInt();
+        if (length >= 0) {
+            byte[] info = new byte[length];
+            if (length <= buf.capacity()) {
+                if (!fill(channel, buf, length)) {
+                    throw new IOException("Truncated heap snapshot: " + source);
+                }
+                buf.get(info);
+            } else {
+                int n = buf.remaining();
+                buf.get(info, 0, n);
+                ByteBuffer big = ByteBuffer.wrap(info, n, length - n);
+                while (big.hasRemaining()) {
+                    if (channel.read(big) < 0) {
+                        throw new IOException("Truncated heap snapshot: " + source);
+                    }
+                }
+            }
+            item.info = new String(info, StandardCharsets.UTF_8);
+        }
+        x.item = item;
+        x.rank = flags & RANK_BITS;
+        x.mark = (flags & MARKED) != 0 ? 1 : 0;
+        item.node = (flags & DEAD) != 0 ? null : x;
+        return x;
+    }
+
+    // Make at least n bytes readable in buf, return false at end of file
+    private static boolean fill(FileChannel channel, ByteBuffer buf, int n) throws IOException {
+        if (buf.remaining() >= n) {
+            return true;
+        }
+        buf.compact();
+        while (buf.position() < n) {
+            if (channel.read(buf) < 0) {
+                buf.flip();
+                return false;
+            }
+        }
+        buf.flip();
+        return true;
+    }
+
+    /**
+     * Decides whether a deleteMin of a heap with lazy melds consolidates the
+     * root list. Without consolidation deleteMin scans every root, so a trigger
+     * that bounds the number of roots by O(log n) keeps deleteMin at
+     * O(log n) amortized.
+     *
+     */
+    public interface ConsolidationTrigger {
+        /** Never consolidate: the root list only shrinks by the removed minima. */
+        ConsolidationTrigger NEVER = (numTrees, size, meldPending) -> false;
+
+        /**
+         * Called after the minimum was removed, with the number of trees and
+         * items left and whether a meld happened since the last consolidation.
+         */
+        boolean shouldConsolidate(int numTrees, int size, boolean meldPending);
+
+        /** Consolidate once the root list holds more than threshold trees. */
+        static ConsolidationTrigger rootCountAbove(int threshold) {
+            return (numTrees, size, meldPending) -> numTrees > threshold;
+        }
+
+        /** Consolidate once the root list holds more than ratio * log_phi(size) trees. */
+        static ConsolidationTrigger ratioToLogSize(double ratio) {
+            double scale = ratio / Math.log((1 + Math.sqrt(5)) / 2);
+            return (numTrees, size, meldPending) -> numTrees > scale * Math.log(size + 1);
+        }
+
+        /** Consolidate on the first deleteMin after a meld. */
+        static ConsolidationTrigger afterMeld() {
+            return (numTrees, size, meldPending) -> meldPending;
+        }
+    }
+
     /**
      * Class implementing a node in a Heap.
      * 
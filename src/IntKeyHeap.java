@@ -0,0 +1,542 @@
+/*
+ * Generated from templates/SpecializedKeyHeap.java.template, do not edit.
+ * Regenerate with: mvn -pl core -Pspecializations generate-sources
+ */
+
+/**
+ * IntKeyHeap
+ *
+ * Heap specialized for int keys with no payload, for callers that track
+ * their elements by handle. As in CompactHeap the Node holds the key and is
+ * the handle itself, one object per element: the eager decreaseKey and
+ * increaseKey swap nodes rather than items, so a handle stays attached to
+ * its key. The algorithm, the configurations and the counters match Heap
+ * with the NEVER consolidation trigger. Unlike Heap, keys are only ever
+ * compared, so every int is a valid key, zero and negative ones included.
+ *
+ */
+public class IntKeyHeap {
+    public final boolean lazyMelds;
+    public final boolean lazyDecreaseKeys;
+    public Node min;
+    private int size;
+    private Node first;
+    private int totalMarks = 0;
+    private int totalLinks = 0;
+    private int totalCuts = 0;
+    private int totalHeapifyOps = 0;
+    private int numRoots = 0;
+    private Node[] buckets = new Node[0];
+
+    /**
+     *
+     * Constructor to initialize an empty heap.
+     *
+     */
+    public IntKeyHeap(boolean lazyMelds, boolean lazyDecreaseKeys) {
+        this.lazyMelds = lazyMelds;
+        this.lazyDecreaseKeys = lazyDecreaseKeys;
+    }
+
+    /**
+     *
+     * Insert key into the heap and return the new Node.
+     *
+     */
+    public Node insert(int key) {
+        Node node = new Node();
+        node.key = key;
+        if (this.size == 0) {
+            this.min = node;
+            this.first = node;
+            node.next = node;
+            node.prev = node;
+        } else {
+            insertAfter(this.first.prev, node);
+            if (key < this.min.key) {
+                this.min = node;
+            }
+        }
+        this.size++;
+        this.numRoots++;
+        return node;
+    }
+
+    /**
+     *
+     * Return the minimal Node, null if empty.
+     *
+     */
+    public Node findMin() {
+        return this.min;
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        if (this.min == null) {
+            return;
+        }
+        removeRoot(this.min);
+        if (this.size == 0) {
+            this.min = null;
+        } else if (!this.lazyMelds) {
+            this.first = consolidate(this.first);
+            this.min = this.first;
+        } else {
+            this.min = scanMin();
+        }
+    }
+
+    /**
+     *
+     * pre: x.key - diff, which may wrap around, is not above x.key
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Node x, int diff) {
+        if (x == null) {
+            return;
+        }
+        x.key -= diff;
+        if (x.key < this.min.key) {
+            this.min = x;
+        }
+        if (!this.lazyDecreaseKeys) {
+            while (x.parent != null && x.key < x.parent.key) {
+                this.totalHeapifyOps++;
+                swapWithParent(x);
+            }
+        } else if (x.parent != null && x.key < x.parent.key) {
+            if (x.mark) {
+                this.totalMarks--; // cut clears the mark of the new root
+            }
+            cascadingCut(x, x.parent);
+        }
+    }
+
+    /**
+     *
+     * pre: x.key + diff, which may wrap around, is not below x.key
+     *
+     * Increase the key of x by diff and fix the heap, as Heap.increaseKey
+     * does: with eager decrease keys x sifts down, with lazy ones the
+     * children that became smaller than x are cut to the root list.
+     *
+     */
+    public void increaseKey(Node x, int diff) {
+        if (x == null || diff == 0) {
+            return;
+        }
+        boolean wasMin = x == this.min;
+        x.key += diff;
+        if (!this.lazyDecreaseKeys) {
+            heapifyDown(x);
+        } else {
+            int lost = 0;
+            Node c = x.child;
+            for (int i = x.rank; i > 0; i--) {
+                Node next = c.next;
+                if (c.key < x.key) {
+                    if (c.mark) {
+                        this.totalMarks--; // cut clears the mark of the new root
+                    }
+                    cut(c, x);
+                    lost++;
+                }
+                c = next;
+            }
+            Node parent = x.parent;
+            if (lost > 0 && parent != null) {
+                if (!x.mark && lost == 1) {
+                    x.mark = true;
+                    this.totalMarks++;
+                } else {
+                    if (x.mark) {
+                        this.totalMarks--;
+                    }
+                    cascadingCut(x, parent);
+                }
+            }
+        }
+        if (wasMin) {
+            this.min = scanMin();
+        }
+    }
+
+    /**
+     *
+     * Link the root list into at most one tree per rank now, as the next
+     * deleteMin would, so that a long run of increaseKeys on the minimum
+     * scans a short root list.
+     *
+     */
+    public void consolidate() {
+        if (this.size == 0) {
+            return;
+        }
+        this.first = consolidate(this.first);
+        this.min = this.first;
+    }
+
+    /**
+     *
+     * Delete x from the heap. As in Heap, x is cut out (or swapped up to its
+     * root) and only deleting the minimum consolidates.
+     *
+     */
+    public void delete(Node x) {
+        if (x == null) {
+            return;
+        }
+        if (x == this.min) {
+            deleteMin();
+            return;
+        }
+        if (x.mark) {
+            this.totalMarks--;
+            x.mark = false;
+        }
+        if (x.parent != null) {
+            if (this.lazyDecreaseKeys) {
+                cascadingCut(x, x.parent);
+            } else {
+                while (x.parent != null) {
+                    this.totalHeapifyOps++;
+                    swapWithParent(x);
+                }
+            }
+        }
+        removeRoot(x);
+    }
+
+    /**
+     *
+     * Meld the heap with heap2
+     * pre: heap2.lazyMelds = this.lazyMelds AND heap2.lazyDecreaseKeys =
+     * this.lazyDecreaseKeys
+     *
+     */
+    public void meld(IntKeyHeap heap2) {
+        if (heap2 == null || heap2 == this || heap2.size == 0) {
+            return;
+        }
+        if (!(heap2.lazyMelds == this.lazyMelds && heap2.lazyDecreaseKeys == this.lazyDecreaseKeys)) {
+            return;
+        }
+        if (this.size == 0) {
+            this.first = heap2.first;
+            this.min = heap2.min;
+        } else {
+            Node aLast = this.first.prev;
+            Node bLast = heap2.first.prev;
+            aLast.next = heap2.first;
+            heap2.first.prev = aLast;
+            bLast.next = this.first;
+            this.first.prev = bLast;
+            if (heap2.min.key < this.min.key) {
+                this.min = heap2.min;
+            }
+        }
+        this.size += heap2.size;
+        this.numRoots += heap2.numRoots;
+        this.totalMarks += heap2.totalMarks;
+        heap2.first = null;
+        heap2.min = null;
+        heap2.size = 0;
+        heap2.numRoots = 0;
+        heap2.totalMarks = 0;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     *
+     * Return the number of trees in the heap.
+     *
+     */
+    public int numTrees() {
+        return this.numRoots;
+    }
+
+    /**
+     *
+     * Return the number of marked nodes in the heap.
+     *
+     */
+    public int numMarkedNodes() {
+        return this.lazyDecreaseKeys ? this.totalMarks : 0;
+    }
+
+    /**
+     *
+     * Return the total number of links.
+     *
+     */
+    public int totalLinks() {
+        return this.totalLinks;
+    }
+
+    /**
+     *
+     * Return the total number of cuts.
+     *
+     */
+    public int totalCuts() {
+        return this.totalCuts;
+    }
+
+    /**
+     *
+     * Return the total heapify costs.
+     *
+     */
+    public int totalHeapifyCosts() {
+        return this.totalHeapifyOps;
+    }
+
+    // Swap x down with its smallest child while that is smaller, as Heap.HeapifyDown swaps items
+    private void heapifyDown(Node x) {
+        while (x.child != null) {
+            Node smallest = x.child;
+            for (Node c = x.child.next; c != x.child; c = c.next) {
+                if (c.key < smallest.key) {
+                    smallest = c;
+                }
+            }
+            if (smallest.key >= x.key) {
+                return;
+            }
+            this.totalHeapifyOps++;
+            swapWithParent(smallest);
+        }
+    }
+
+    // Exchange the positions of x and its parent, as CompactHeap.swapWithParent
+    private void swapWithParent(Node x) {
+        Node p = x.parent;
+        Node gp = p.parent;
+        Node xNext = x.next;
+        Node xPrev = x.prev;
+        Node xChild = x.child;
+        Node pNext = p.next;
+        Node pPrev = p.prev;
+        Node pChild = p.child;
+
+        if (pNext == p) {
+            x.next = x;
+            x.prev = x;
+        } else {
+            x.next = pNext;
+            x.prev = pPrev;
+            pPrev.next = x;
+            pNext.prev = x;
+        }
+        x.parent = gp;
+        if (gp != null && gp.child == p) {
+            gp.child = x;
+        }
+        if (this.first == p) {
+            this.first = x;
+        }
+
+        if (xNext == x) {
+            p.next = p;
+            p.prev = p;
+        } else {
+            p.next = xNext;
+            p.prev = xPrev;
+            xPrev.next = p;
+            xNext.prev = p;
+        }
+
+        x.child = pChild == x ? p : pChild;
+        p.child = xChild;
+        Node c = x.child;
+        do {
+            c.parent = x;
+            c = c.next;
+        } while (c != x.child);
+        if (xChild != null) {
+            c = xChild;
+            do {
+                c.parent = p;
+                c = c.next;
+            } while (c != xChild);
+        }
+
+        byte rank = x.rank;
+        x.rank = p.rank;
+        p.rank = rank;
+        boolean mark = x.mark;
+        x.mark = p.mark;
+        p.mark = mark;
+    }
+
+    // Replace the root x by its children in the root list, first moves to the root after x
+    private void removeRoot(Node x) {
+        Node child = x.child;
+        if (child != null) {
+            Node c = child;
+            do {
+                c.parent = null;
+                c = c.next;
+            } while (c != child);
+        }
+
+        if (x.next == x) {
+            this.first = child;
+        } else if (child == null) {
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+            this.first = x.next;
+        } else {
+            Node childLast = child.prev;
+            x.prev.next = child;
+            child.prev = x.prev;
+            childLast.next = x.next;
+            x.next.prev = childLast;
+            this.first = x.next;
+        }
+
+        if (x.mark) {
+            this.totalMarks--;
+        }
+        this.size--;
+        this.numRoots += x.rank - 1;
+        x.child = null;
+        x.next = null;
+        x.prev = null;
+    }
+
+    private void cut(Node x, Node y) {
+        this.totalCuts++;
+        this.numRoots++;
+        x.parent = null;
+        x.mark = false;
+        y.rank--;
+        if (x.next == x) {
+            y.child = null;
+        } else {
+            y.child = x.next;
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+        }
+        insertAfter(this.first.prev, x);
+    }
+
+    private void cascadingCut(Node x, Node y) {
+        cut(x, y);
+        while (y.parent != null) {
+            if (!y.mark) {
+                y.mark = true;
+                this.totalMarks++;
+                return;
+            }
+            this.totalMarks--;
+            x = y;
+            y = y.parent;
+            cut(x, y);
+        }
+    }
+
+    // Successive linking by rank, returns the minimal root
+    private Node consolidate(Node x) {
+        int needed = Heap.maxRank(this.size) + 1;
+        if (this.buckets.length < needed) {
+            this.buckets = new Node[needed];
+        }
+        Node[] buckets = this.buckets;
+        x.prev.next = null;
+        while (x != null) {
+            Node y = x;
+            x = x.next;
+            while (buckets[y.rank] != null) {
+                y = link(y, buckets[y.rank]);
+                buckets[y.rank - 1] = null;
+            }
+            buckets[y.rank] = y;
+        }
+
+        Node root = null;
+        for (int i = 0; i < buckets.length; i++) {
+            Node b = buckets[i];
+            if (b != null) {
+                buckets[i] = null;
+                insertAfter(root, b);
+                if (root == null || b.key < root.key) {
+                    root = b;
+                }
+            }
+        }
+        return root;
+    }
+
+    private Node link(Node x, Node y) {
+        this.totalLinks++;
+        this.numRoots--;
+        if (!(x.key < y.key)) {
+            Node t = x;
+            x = y;
+            y = t;
+        }
+        if (x.child == null) {
+            x.child = y;
+            y.next = y;
+            y.prev = y;
+        } else {
+            insertAfter(x.child.prev, y);
+        }
+        y.parent = x;
+        x.rank++;
+        return x;
+    }
+
+    private Node scanMin() {
+        Node newMin = this.first;
+        for (Node current = this.first.next; current != this.first; current = current.next) {
+            if (current.key < newMin.key) {
+                newMin = current;
+            }
+        }
+        return newMin;
+    }
+
+    private static void insertAfter(Node x, Node y) {
+        if (x == null) {
+            y.next = y;
+            y.prev = y;
+        } else {
+            y.next = x.next;
+            x.next.prev = y;
+            x.next = y;
+            y.prev = x;
+        }
+    }
+
+    /**
+     * Class implementing an element of a IntKeyHeap: the tree node and the
+     * user's handle at once.
+     *
+     */
+    public static class Node {
+        public int key;
+        private Node child;
+        private Node next;
+        private Node prev;
+        private Node parent;
+        private byte rank; // ranks stay below Heap.maxRank(Integer.MAX_VALUE) = 48
+        private boolean mark;
+    }
+}
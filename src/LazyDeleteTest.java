@@ -0,0 +1,103 @@
+import java.util.*;
+
+/**
+ * LazyDeleteTest - Runs random inserts, deletes, updateKeys, deleteMins and
+ * batch pops on heaps with lazy deletes, in all 4 configurations and two
+ * purge fractions, and checks after every operation that size counts only
+ * live items, that no dead item surfaces as the minimum or in a batch, that
+ * numTrees matches the root list, and that the dead items never exceed the
+ * purge fraction.
+ */
+public class LazyDeleteTest {
+    private static final int SIZE = 3000;
+    private static final int OPS = 8000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2016);
+        for (double purgeFraction : new double[] { 0.25, 1 }) {
+            for (boolean[] cfg : configs) {
+                run(cfg[0], cfg[1], purgeFraction, rand);
+            }
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, double purgeFraction, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys + "_purge=" + purgeFraction;
+        Heap tombstones = new Heap(lazyMelds, lazyDecreaseKeys, Heap.ConsolidationTrigger.NEVER, purgeFraction);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        List<Heap.HeapItem> live = new ArrayList<>();
+        int maxDead = 0;
+        Heap.HeapItem[] out = new Heap.HeapItem[20];
+        for (int i = 0; i < SIZE; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            live.add(tombstones.insert(key, "L"));
+            expected.add(key);
+        }
+        boolean ok = true;
+        for (int op = 0; op < OPS && ok; op++) {
+            int roll = rand.nextInt(10);
+            if (roll < 4 || live.isEmpty()) {
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                live.add(tombstones.insert(key, "L"));
+                expected.add(key);
+            } else if (roll < 7) {
+                Heap.HeapItem x = live.remove(rand.nextInt(live.size()));
+                tombstones.delete(x);
+                expected.remove(x.key);
+            } else if (roll < 8) {
+                Heap.HeapItem x = live.get(rand.nextInt(live.size()));
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                expected.remove(x.key);
+                expected.add(key);
+                tombstones.updateKey(x, key);
+            } else if (roll < 9) {
+                Heap.HeapItem x = tombstones.findMin();
+                tombstones.deleteMin();
+                ok = x.key == expected.poll() && live.remove(x);
+            } else {
+                int n = tombstones.deleteMinBatch(1 + rand.nextInt(out.length), out);
+                for (int i = 0; i < n && ok; i++) {
+                    ok = out[i].node != null && out[i].key == expected.poll() && live.remove(out[i]);
+                }
+            }
+            maxDead = Math.max(maxDead, tombstones.numDeadItems());
+            ok = ok && tombstones.size() == expected.size()
+                    && (expected.isEmpty() ? tombstones.findMin() == null
+                            : tombstones.findMin().key == expected.peek() && tombstones.findMin().node != null)
+                    && tombstones.numTrees() == countRoots(tombstones)
+                    && tombstones.numDeadItems() <= purgeFraction * (tombstones.size() + tombstones.numDeadItems());
+        }
+        check(name + " lost order, counts or surfaced a dead item", ok);
+        check(name + " deletes were lazy", maxDead > 0);
+    }
+
+    // Walk the root list from the minimum, which is always a root
+    private static int countRoots(Heap heap) {
+        if (heap.findMin() == null) {
+            return 0;
+        }
+        Heap.HeapNode start = heap.findMin().node;
+        int count = 1;
+        for (Heap.HeapNode x = start.next; x != start; x = x.next) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,579 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * LoggedHeap
+ *
+ * A Heap whose mutating operations are recorded in an append-only binary
+ * log, so it can be rebuilt after a restart. Since HeapItem references do
+ * not survive a restart, items are named by int ids handed out in insertion
+ * order, which stay the same across checkpoints and recovery. An id is
+ * retired once its item leaves the heap, by deleteMin, delete or a meld into
+ * another heap, and is never handed out again.
+ *
+ * Records are buffered and written to the log once groupCommit operations
+ * have accumulated, and the log is forced to disk after a write when
+ * fsyncMillis have passed since the last force (0 forces after every write,
+ * a negative interval only on sync and close). A crash loses at most the
+ * operations that were not forced yet. checkpoint writes a snapshot with
+ * the ids and the log offset it covers, and recover rebuilds the heap from
+ * the snapshot and the records after that offset.
+ *
+ * Run it as a program to replay a log, with or without a checkpoint, and
+ * print the state it rebuilds: java LoggedHeap [checkpoint] log
+ *
+ */
+public class LoggedHeap implements Closeable {
+    private static final int LOG_MAGIC = 0x46484c31; // "FHL1"
+    private static final int LOG_HEADER = 16;
+    private static final int CHECKPOINT_MAGIC = 0x46484331; // "FHC1"
+    private static final int BUFFER = 1 << 16;
+
+    private static final byte INSERT = 0; // key, info length (-1 for null), UTF-8 info
+    private static final byte DELETE_MIN = 1;
+    private static final byte DECREASE_KEY = 2; // id, diff
+    private static final byte DELETE = 3; // id
+    private static final byte MELD = 4; // snapshot of the melded heap, followed by its ids
+    private static final byte CLEAR = 5; // the heap was melded into another one
+
+    private final Heap heap;
+    private final FileChannel log;
+    private final int groupCommit;
+    private final long fsyncNanos;
+    private ByteBuffer buf;
+    private Heap.HeapItem[] items; // by id, null once the item left the heap
+    private final IdentityHashMap<Heap.HeapItem, Integer> ids = new IdentityHashMap<>(); // the reverse of items
+    private int nextId;
+    private int pending; // operations in buf
+    private long lastSync;
+
+    private LoggedHeap(Heap heap, FileChannel log, Heap.HeapItem[] items, int nextId, int groupCommit,
+            long fsyncMillis) {
+        if (groupCommit < 1) {
+            throw new IllegalArgumentException("groupCommit must be positive: " + groupCommit);
+        }
+        this.heap = heap;
+        this.log = log;
+        this.items = items;
+        this.nextId = nextId;
+        this.groupCommit = groupCommit;
+        this.fsyncNanos = fsyncMillis < 0 ? -1 : fsyncMillis * 1000000;
+        this.buf = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        this.lastSync = System.nanoTime();
+    }
+
+    /**
+     *
+     * pre: heap is empty, groupCommit >= 1
+     *
+     * Start a new log for heap in file, replacing its contents. The log
+     * records the configuration of heap, but not its consolidation trigger,
+     * which is given to recover instead.
+     *
+     */
+    public static LoggedHeap create(Path file, Heap heap, int groupCommit, long fsyncMillis) throws IOException {
+        if (heap.findMin() != null) {
+            throw new IllegalArgumentException("A logged heap must start empty");
+        }
+        FileChannel log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOG_MAGIC).putInt((heap.lazyMelds ? 1 : 0) | (heap.lazyDecreaseKeys ? 2 : 0));
+        header.putDouble(heap.purgeFraction());
+        header.flip();
+        while (header.hasRemaining()) {
+            log.write(header);
+        }
+        log.force(true);
+        return new LoggedHeap(heap, log, new Heap.HeapItem[16], 0, groupCommit, fsyncMillis);
+    }
+
+    /**
+     *
+     * pre: groupCommit >= 1
+     *
+     * Rebuild the heap logged in file, starting from checkpoint when it is
+     * not null and exists, and reopen the log for appending. A torn record
+     * at the end of the log, left by a crash in the middle of a write, is
+     * cut off. Replay only reproduces the same forest and counters if
+     * trigger is the one the heap was logged with.
+     *
+     */
+    public static LoggedHeap recover(Path checkpoint, Path file, Heap.ConsolidationTrigger trigger, int groupCommit,
+            long fsyncMillis) throws IOException {
+        FileChannel log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            LoggedHeap logged = replay(checkpoint, log, trigger, groupCommit, fsyncMillis);
+            log.truncate(log.position());
+            return logged;
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    // Rebuild the heap and leave log positioned after the last complete record
+    private static LoggedHeap replay(Path checkpoint, FileChannel log, Heap.ConsolidationTrigger trigger,
+            int groupCommit, long fsyncMillis) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        in.flip();
+        if (!fill(log, in, LOG_HEADER) || in.getInt() != LOG_MAGIC) {
+            throw new IOException("Not a heap log: " + log);
+        }
+        int flags = in.getInt();
+        double purgeFraction = in.getDouble();
+
+        LoggedHeap logged;
+        long offset = LOG_HEADER;
+        if (checkpoint != null && Files.exists(checkpoint)) {
+            try (FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+                header.flip();
+                if (!fill(channel, header, 12) || header.getInt() != CHECKPOINT_MAGIC) {
+                    throw new IOException("Not a heap checkpoint: " + checkpoint);
+                }
+                offset = header.getLong();
+                List<Heap.HeapItem> list = new ArrayList<>();
+                Heap heap = Heap.readSnapshot(channel, trigger, list);
+                logged = new LoggedHeap(heap, log, new Heap.HeapItem[16], 0, groupCommit, fsyncMillis);
+                logged.nextId = logged.readIds(channel, list, 0);
+            }
+        } else {
+            Heap heap = new Heap((flags & 1) != 0, (flags & 2) != 0, trigger, purgeFraction);
+            logged = new LoggedHeap(heap, log, new Heap.HeapItem[16], 0, groupCommit, fsyncMillis);
+        }
+        if (offset > log.size()) {
+            throw new IOException("Checkpoint " + checkpoint + " is ahead of the log " + log);
+        }
+        log.position(offset);
+        in.clear().flip();
+        logged.apply(log, in);
+        return logged;
+    }
+
+    // Apply the records from the position of log on, through in, and stop after the last complete one
+    private void apply(FileChannel log, ByteBuffer in) throws IOException {
+        long good = log.position();
+        while (fill(log, in, 1)) {
+            byte op = in.get();
+            if (op == INSERT) {
+                if (!fill(log, in, 8)) {
+                    break;
+                }
+                int key = in.getInt();
+                int length = in.getInt();
+                String info = null;
+                if (length >= 0) {
+                    if (length > in.capacity()) {
+                        ByteBuffer bigger = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                        bigger.put(in).flip();
+                        in = bigger;
+                    }
+                    if (!fill(log, in, length)) {
+                        break;
+                    }
+                    byte[] bytes = new byte[length];
+                    in.get(bytes);
+                    info = new String(bytes, StandardCharsets.UTF_8);
+                }
+                register(this.heap.insert(key, info));
+            } else if (op == DELETE_MIN) {
+                Heap.HeapItem x = this.heap.findMin();
+                this.heap.deleteMin();
+                retire(x);
+            } else if (op == DECREASE_KEY) {
+                if (!fill(log, in, 8)) {
+                    break;
+                }
+                int id = in.getInt();
+                this.heap.decreaseKey(this.items[id], in.getInt());
+            } else if (op == DELETE) {
+                if (!fill(log, in, 4)) {
+                    break;
+                }
+                Heap.HeapItem x = this.items[in.getInt()];
+                this.heap.delete(x);
+                retire(x);
+            } else if (op == MELD) {
+                // the snapshot is read straight from the channel, so hand over the position of in
+                log.position(good + 1);
+                List<Heap.HeapItem> list = new ArrayList<>();
+                try {
+                    Heap other = Heap.readSnapshot(log, Heap.ConsolidationTrigger.NEVER, list);
+                    this.nextId += readIds(log, list, this.nextId);
+                    this.heap.meld(other);
+                } catch (IOException e) {
+                    break; // torn while the snapshot was written
+                }
+                in.clear().flip();
+            } else if (op == CLEAR) {
+                new Heap(this.heap.lazyMelds, this.heap.lazyDecreaseKeys).meld(this.heap);
+                retireAll();
+            } else {
+                break;
+            }
+            good = log.position() - in.remaining();
+        }
+        log.position(good);
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return the id of the new item.
+     *
+     */
+    public int insert(int key, String info) throws IOException {
+        byte[] bytes = info == null ? null : info.getBytes(StandardCharsets.UTF_8);
+        int length = bytes == null ? -1 : bytes.length;
+        reserve(9 + Math.max(length, 0));
+        this.buf.put(INSERT).putInt(key).putInt(length);
+        if (bytes != null) {
+            this.buf.put(bytes);
+        }
+        int id = register(this.heap.insert(key, info));
+        logged();
+        return id;
+    }
+
+    /**
+     *
+     * Return the minimal item, null if the heap is empty.
+     *
+     */
+    public Heap.HeapItem findMin() {
+        return this.heap.findMin();
+    }
+
+    /**
+     *
+     * Delete the minimal item and return its id, which is retired, or -1 if
+     * the heap is empty.
+     *
+     */
+    public int deleteMin() throws IOException {
+        Heap.HeapItem x = this.heap.findMin();
+        if (x == null) {
+            return -1;
+        }
+        reserve(1);
+        this.buf.put(DELETE_MIN);
+        this.heap.deleteMin();
+        int id = retire(x);
+        logged();
+        return id;
+    }
+
+    /**
+     *
+     * pre: id names an item in the heap, 0 <= diff <= its key
+     *
+     * Decrease the key of the item by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(int id, int diff) throws IOException {
+        Heap.HeapItem x = item(id);
+        reserve(9);
+        this.buf.put(DECREASE_KEY).putInt(id).putInt(diff);
+        this.heap.decreaseKey(x, diff);
+        logged();
+    }
+
+    /**
+     *
+     * pre: id names an item in the heap
+     *
+     * Delete the item from the heap and retire its id.
+     *
+     */
+    public void delete(int id) throws IOException {
+        Heap.HeapItem x = item(id);
+        reserve(5);
+        this.buf.put(DELETE).putInt(id);
+        this.heap.delete(x);
+        retire(x);
+        logged();
+    }
+
+    /**
+     *
+     * pre: other has the same lazyMelds and lazyDecreaseKeys
+     *
+     * Meld the heap with other, leaving other empty, and return the offset
+     * of the ids of its items: the item other knew as id is id + offset
+     * here. The log gets a snapshot of other, so a meld costs O(other.size())
+     * writes and is committed right away, in both logs.
+     *
+     */
+    public int meld(LoggedHeap other) throws IOException {
+        if (other.heap.lazyMelds != this.heap.lazyMelds || other.heap.lazyDecreaseKeys != this.heap.lazyDecreaseKeys) {
+            throw new IllegalArgumentException("Cannot meld heaps of different configurations");
+        }
+        reserve(1);
+        this.buf.put(MELD);
+        write();
+        List<Heap.HeapItem> list = new ArrayList<>(other.heap.size());
+        other.heap.writeSnapshot(this.log, list);
+        writeIds(this.log, list, other.ids, other.nextId);
+
+        int offset = this.nextId;
+        ensureCapacity(offset + other.nextId);
+        for (int id = 0; id < other.nextId; id++) {
+            if (other.items[id] != null) {
+                this.items[offset + id] = other.items[id];
+                this.ids.put(other.items[id], offset + id);
+            }
+        }
+        this.nextId += other.nextId;
+        this.heap.meld(other.heap);
+        commit();
+
+        other.reserve(1);
+        other.buf.put(CLEAR);
+        other.retireAll();
+        other.commit();
+        return offset;
+    }
+
+    /**
+     *
+     * Return the number of items in the heap.
+     *
+     */
+    public int size() {
+        return this.heap.size();
+    }
+
+    /**
+     *
+     * pre: id names an item in the heap
+     *
+     * Return the item named id. Throws IllegalArgumentException if id was
+     * never handed out or is retired.
+     *
+     */
+    public Heap.HeapItem item(int id) {
+        if (id < 0 || id >= this.nextId || this.items[id] == null) {
+            throw new IllegalArgumentException("No item with id " + id + " in the heap");
+        }
+        return this.items[id];
+    }
+
+    /**
+     *
+     * Return the heap behind the log, for reading. Changing it directly
+     * bypasses the log.
+     *
+     */
+    public Heap heap() {
+        return this.heap;
+    }
+
+    /**
+     *
+     * Write the buffered records to the log and force it to disk.
+     *
+     */
+    public void sync() throws IOException {
+        write();
+        this.log.force(false);
+        this.lastSync = System.nanoTime();
+    }
+
+    /**
+     *
+     * Make the log durable, then write a checkpoint of the heap to file,
+     * replacing it atomically. recover starts from the checkpoint and
+     * replays only the records written after it.
+     *
+     */
+    public void checkpoint(Path file) throws IOException {
+        sync();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Heap.HeapItem> list = new ArrayList<>(this.heap.size());
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(CHECKPOINT_MAGIC).putLong(this.log.position());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            this.heap.writeSnapshot(channel, list);
+            writeIds(channel, list, this.ids, this.nextId);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     *
+     * Sync and close the log.
+     *
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            this.log.close();
+        }
+    }
+
+    private int register(Heap.HeapItem x) {
+        ensureCapacity(this.nextId + 1);
+        this.items[this.nextId] = x;
+        this.ids.put(x, this.nextId);
+        return this.nextId++;
+    }
+
+    // Drop x, which just left the heap, from the id table and return its id
+    private int retire(Heap.HeapItem x) {
+        int id = this.ids.remove(x);
+        this.items[id] = null;
+        return id;
+    }
+
+    private void retireAll() {
+        Arrays.fill(this.items, null);
+        this.ids.clear();
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > this.items.length) {
+            this.items = Arrays.copyOf(this.items, Math.max(n, 2 * this.items.length));
+        }
+    }
+
+    // Make room for a record of n bytes
+    private void reserve(int n) throws IOException {
+        if (this.buf.remaining() < n) {
+            write();
+            if (this.buf.capacity() < n) {
+                this.buf = ByteBuffer.allocateDirect(n).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    // Count an operation whose record is in buf, and commit once groupCommit have accumulated
+    private void logged() throws IOException {
+        if (++this.pending >= this.groupCommit) {
+            commit();
+        }
+    }
+
+    private void commit() throws IOException {
+        write();
+        if (this.fsyncNanos >= 0 && System.nanoTime() - this.lastSync >= this.fsyncNanos) {
+            this.log.force(false);
+            this.lastSync = System.nanoTime();
+        }
+    }
+
+    private void write() throws IOException {
+        this.buf.flip();
+        while (this.buf.hasRemaining()) {
+            this.log.write(this.buf);
+        }
+        this.buf.clear();
+        this.pending = 0;
+    }
+
+    // The id section: number of items, span of ids, then the id of each item in order, -1 for none
+    private static void writeIds(FileChannel channel, List<Heap.HeapItem> list, IdentityHashMap<Heap.HeapItem, Integer> ids,
+            int span) throws IOException {
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(list.size()).putInt(span);
+        for (Heap.HeapItem x : list) {
+            if (out.remaining() < 4) {
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                out.clear();
+            }
+            Integer id = ids.get(x);
+            out.putInt(id == null ? -1 : id);
+        }
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    // Read an id section for the items of list into the table at offset, and return its span
+    private int readIds(FileChannel channel, List<Heap.HeapItem> list, int offset) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        in.flip();
+        if (!fill(channel, in, 8) || in.getInt() != list.size()) {
+            throw new IOException("Truncated id section: " + channel);
+        }
+        int span = in.getInt();
+        ensureCapacity(offset + span);
+        for (Heap.HeapItem x : list) {
+            if (!fill(channel, in, 4)) {
+                throw new IOException("Truncated id section: " + channel);
+            }
+            int id = in.getInt();
+            if (id < -1 || id >= span) {
+                throw new IOException("Corrupt id section: " + channel);
+            }
+            if (id >= 0) {
+                this.items[offset + id] = x;
+                this.ids.put(x, offset + id);
+            }
+        }
+        channel.position(channel.position() - in.remaining());
+        return span;
+    }
+
+    private static boolean fill(FileChannel channel, ByteBuffer buf, int n) throws IOException {
+        if (buf.remaining() >= n) {
+            return true;
+        }
+        buf.compact();
+        while (buf.position() < n) {
+            if (channel.read(buf) < 0) {
+                buf.flip();
+                return false;
+            }
+        }
+        buf.flip();
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("usage: java LoggedHeap [checkpoint] log");
+            return;
+        }
+        Path checkpoint = args.length == 2 ? Path.of(args[0]) : null;
+        Path file = Path.of(args[args.length - 1]);
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = System.nanoTime();
+            LoggedHeap logged = replay(checkpoint, log, Heap.ConsolidationTrigger.NEVER, 1, -1);
+            long ms = (System.nanoTime() - start) / 1000000;
+            Heap heap = logged.heap;
+            System.out.println("replayed up to byte " + log.position() + " of " + log.size() + " in " + ms + " ms");
+            if (log.position() < log.size()) {
+                System.out.println("torn tail of " + (log.size() - log.position()) + " bytes ignored");
+            }
+            System.out.println("size=" + heap.size() + " min=" + (heap.findMin() == null ? "none" : heap.findMin().key)
+                    + " trees=" + heap.numTrees() + " ids=" + logged.nextId + " links=" + heap.totalLinks()
+                    + " cuts=" + heap.totalCuts());
+        }
+    }
+}
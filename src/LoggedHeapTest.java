@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * LoggedHeapTest - Runs random operations, checkpoints and melds on a
+ * LoggedHeap in all 4 configurations and with lazy deletes, then checks that
+ * recovery from the log alone and from a checkpoint plus the log tail
+ * rebuilds the same heap, counters included, and that a record torn by a
+ * crash is cut off. Ids of items that left the heap must be rejected.
+ */
+public class LoggedHeapTest {
+    private static final int OPS = 4000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2019);
+        Path dir = Files.createTempDirectory("heaplog");
+        try {
+            for (int c = 0; c < configs.length + 1; c++) {
+                boolean[] cfg = configs[c % configs.length];
+                run(cfg[0], cfg[1], c < configs.length ? 0 : 0.5, 1 + c * 7, c - 1, dir, rand);
+            }
+            retiredIds(dir);
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, double purgeFraction, int groupCommit,
+            long fsyncMillis, Path dir, Random rand) throws IOException {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys + "_purge=" + purgeFraction;
+        Path logFile = dir.resolve("heap.log");
+        Path sideFile = dir.resolve("side.log");
+        Path checkpoint = dir.resolve("heap.checkpoint");
+        Files.deleteIfExists(checkpoint);
+        LoggedHeap logged = LoggedHeap.create(logFile,
+                new Heap(lazyMelds, lazyDecreaseKeys, Heap.ConsolidationTrigger.NEVER, purgeFraction), groupCommit,
+                fsyncMillis);
+        LoggedHeap side = LoggedHeap.create(sideFile,
+                new Heap(lazyMelds, lazyDecreaseKeys, Heap.ConsolidationTrigger.NEVER, purgeFraction), 4, -1);
+        List<Integer> ids = new ArrayList<>();
+        IdentityHashMap<Heap.HeapItem, Integer> idOf = new IdentityHashMap<>();
+        List<Integer> sideIds = new ArrayList<>();
+        for (int i = 0; i < OPS; i++) {
+            int op = rand.nextInt(100);
+            if (i == 2500) {
+                logged.checkpoint(checkpoint);
+            }
+            if (op < 40 || ids.isEmpty()) {
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                int id = logged.insert(key, i % 5 == 0 ? null : "L" + key + "é");
+                ids.add(id);
+                idOf.put(logged.item(id), id);
+            } else if (op < 60) {
+                Integer id = idOf.remove(logged.findMin());
+                ids.remove(id);
+                check(name + " deleteMin id", logged.deleteMin() == id);
+            } else if (op < 80) {
+                Heap.HeapItem x = logged.item(ids.get(rand.nextInt(ids.size())));
+                if (x.key > 1) {
+                    logged.decreaseKey(idOf.get(x), rand.nextInt(x.key));
+                }
+            } else if (op < 90) {
+                int id = ids.remove(rand.nextInt(ids.size()));
+                idOf.remove(logged.item(id));
+                logged.delete(id);
+            } else if (op < 97) {
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                sideIds.add(side.insert(key, "M" + key));
+            } else {
+                int offset = logged.meld(side);
+                for (int id : sideIds) {
+                    ids.add(offset + id);
+                    idOf.put(logged.item(offset + id), offset + id);
+                }
+                sideIds.clear();
+            }
+        }
+        logged.sync();
+        side.sync();
+        LoggedHeap fromLog = LoggedHeap.recover(null, logFile, Heap.ConsolidationTrigger.NEVER, 1, -1);
+        LoggedHeap fromCheckpoint = LoggedHeap.recover(checkpoint, logFile, Heap.ConsolidationTrigger.NEVER, 1, -1);
+        LoggedHeap sideAgain = LoggedHeap.recover(null, sideFile, Heap.ConsolidationTrigger.NEVER, 1, -1);
+        int size = logged.size();
+
+        // inserts into the side heap since its last meld are still in its own log
+        check(name + " side log", sideAgain.size() == side.size() && (side.size() == 0
+                ? sideAgain.findMin() == null : sideAgain.findMin().key == side.findMin().key));
+        boolean idsOk = true;
+        for (int id : ids) {
+            idsOk = idsOk && fromLog.item(id).key == logged.item(id).key
+                    && fromCheckpoint.item(id).key == logged.item(id).key
+                    && Objects.equals(fromCheckpoint.item(id).info, logged.item(id).info);
+        }
+        check(name + " ids", idsOk);
+
+        // pop the heaps directly, so the lockstep pops stay out of the log
+        Heap[] heaps = { logged.heap(), fromLog.heap(), fromCheckpoint.heap() };
+        boolean heapsOk = true;
+        while (heapsOk) {
+            for (int h = 1; h < heaps.length; h++) {
+                heapsOk = heapsOk && heaps[h].size() == heaps[0].size() && heaps[h].numTrees() == heaps[0].numTrees()
+                        && heaps[h].numMarkedNodes() == heaps[0].numMarkedNodes()
+                        && heaps[h].totalLinks() == heaps[0].totalLinks()
+                        && heaps[h].totalCuts() == heaps[0].totalCuts()
+                        && heaps[h].totalHeapifyCosts() == heaps[0].totalHeapifyCosts()
+                        && (heaps[0].findMin() == null ? heaps[h].findMin() == null
+                                : heaps[h].findMin().key == heaps[0].findMin().key
+                                        && Objects.equals(heaps[h].findMin().info, heaps[0].findMin().info));
+            }
+            if (heaps[0].size() == 0) {
+                break;
+            }
+            for (Heap heap : heaps) {
+                heap.deleteMin();
+            }
+        }
+        check(name + " recovered heaps", heapsOk);
+        logged.close();
+        fromLog.close();
+        fromCheckpoint.close();
+        side.close();
+        sideAgain.close();
+
+        // a record torn by a crash is cut off, and the log goes on after it
+        long length = Files.size(logFile);
+        Files.write(logFile, new byte[] { 0, 7, 0 }, StandardOpenOption.APPEND);
+        LoggedHeap torn = LoggedHeap.recover(checkpoint, logFile, Heap.ConsolidationTrigger.NEVER, 1, 0);
+        check(name + " torn record cut off", torn.size() == size && Files.size(logFile) == length);
+        torn.insert(5, "after");
+        torn.close();
+        LoggedHeap after = LoggedHeap.recover(checkpoint, logFile, Heap.ConsolidationTrigger.NEVER, 1, -1);
+        check(name + " log goes on after the cut", after.size() == size + 1 && after.findMin().key <= 5);
+        after.close();
+    }
+
+    // Popped and deleted ids are retired: item, decreaseKey and delete reject them and log nothing
+    private static void retiredIds(Path dir) throws IOException {
+        Path logFile = dir.resolve("retired.log");
+        Path checkpoint = dir.resolve("retired.checkpoint");
+        LoggedHeap logged = LoggedHeap.create(logFile, new Heap(false, true), 1, -1);
+        int five = logged.insert(5, "5");
+        int seven = logged.insert(7, "7");
+        int nine = logged.insert(9, "9");
+        int three = logged.insert(3, "3");
+        check("deleteMin returns the popped ids", logged.deleteMin() == three && logged.deleteMin() == five);
+        logged.delete(seven);
+        logged.checkpoint(checkpoint);
+        for (int id : new int[] { three, five, seven }) {
+            check("item rejects retired id " + id, rejected(() -> logged.item(id)));
+            check("decreaseKey rejects retired id " + id, rejected(() -> logged.decreaseKey(id, 1)));
+            check("delete rejects retired id " + id, rejected(() -> logged.delete(id)));
+        }
+        check("retired ids leave the heap alone", logged.size() == 1 && logged.findMin().key == 9);
+        logged.close();
+        LoggedHeap recovered = LoggedHeap.recover(null, logFile, Heap.ConsolidationTrigger.NEVER, 1, -1);
+        check("no record for a retired id", recovered.size() == 1 && recovered.findMin().key == 9
+                && rejected(() -> recovered.item(five)));
+        check("deleteMin of an empty heap", recovered.deleteMin() == nine && recovered.deleteMin() == -1);
+        recovered.close();
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static boolean rejected(Action action) throws IOException {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
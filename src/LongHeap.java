@@ -0,0 +1,519 @@
+/*
+ * Generated from templates/SpecializedHeap.java.template, do not edit.
+ * Regenerate with: mvn -pl core -Pspecializations generate-sources
+ */
+
+/**
+ * LongHeap
+ *
+ * Heap specialized for long keys with a payload of type V, so the item
+ * holds the key unboxed and the payload without a String conversion.
+ * The algorithm, the configurations and the counters match Heap with the
+ * NEVER consolidation trigger. Unlike Heap, keys are only ever compared,
+ * so every long is a valid key, zero and negative ones included.
+ *
+ */
+public class LongHeap<V> {
+    public final boolean lazyMelds;
+    public final boolean lazyDecreaseKeys;
+    public Item<V> min;
+    private int size;
+    private Node<V> first;
+    private int totalMarks = 0;
+    private int totalLinks = 0;
+    private int totalCuts = 0;
+    private int totalHeapifyOps = 0;
+    private int numRoots = 0;
+    private Node<V>[] buckets = newNodes(0);
+
+    /**
+     *
+     * Constructor to initialize an empty heap.
+     *
+     */
+    public LongHeap(boolean lazyMelds, boolean lazyDecreaseKeys) {
+        this.lazyMelds = lazyMelds;
+        this.lazyDecreaseKeys = lazyDecreaseKeys;
+    }
+
+    /**
+     *
+     * Insert (key,info) into the heap and return the new Item.
+     *
+     */
+    public Item<V> insert(long key, V info) {
+        Node<V> node = new Node<>();
+        Item<V> item = new Item<>();
+        item.key = key;
+        item.info = info;
+        item.node = node;
+        node.item = item;
+
+        if (this.size == 0) {
+            this.min = item;
+            this.first = node;
+            node.next = node;
+            node.prev = node;
+        } else {
+            insertAfter(this.first.prev, node);
+            if (key < this.min.key) {
+                this.min = item;
+            }
+        }
+        this.size++;
+        this.numRoots++;
+        return item;
+    }
+
+    /**
+     *
+     * Return the minimal Item, null if empty.
+     *
+     */
+    public Item<V> findMin() {
+        return this.min;
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        if (this.min == null) {
+            return;
+        }
+        removeRoot(this.min.node);
+        if (this.size == 0) {
+            this.min = null;
+        } else if (!this.lazyMelds) {
+            this.first = consolidate(this.first);
+            this.min = this.first.item;
+        } else {
+            this.min = scanMin();
+        }
+    }
+
+    /**
+     *
+     * pre: x.key - diff, which may wrap around, is not above x.key
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Item<V> x, long diff) {
+        if (x == null || x.node == null) {
+            return;
+        }
+        x.key -= diff;
+        if (x.key < this.min.key) {
+            this.min = x;
+        }
+        if (!this.lazyDecreaseKeys) {
+            heapifyUp(x.node);
+        } else {
+            Node<V> parent = x.node.parent;
+            if (parent != null && x.key < parent.item.key) {
+                if (x.node.mark != 0) {
+                    this.totalMarks--; // cut clears the mark of the new root
+                }
+                cascadingCut(x.node, parent);
+            }
+        }
+    }
+
+    /**
+     *
+     * pre: x.key + diff, which may wrap around, is not below x.key
+     *
+     * Increase the key of x by diff and fix the heap, as Heap.increaseKey
+     * does: with eager decrease keys x sifts down, with lazy ones the
+     * children that became smaller than x are cut to the root list.
+     *
+     */
+    public void increaseKey(Item<V> x, long diff) {
+        if (x == null || x.node == null || diff == 0) {
+            return;
+        }
+        boolean wasMin = x == this.min;
+        x.key += diff;
+        if (!this.lazyDecreaseKeys) {
+            heapifyDown(x.node);
+        } else {
+            Node<V> node = x.node;
+            int lost = 0;
+            Node<V> c = node.child;
+            for (int i = node.rank; i > 0; i--) {
+                Node<V> next = c.next;
+                if (c.item.key < x.key) {
+                    if (c.mark != 0) {
+                        this.totalMarks--; // cut clears the mark of the new root
+                    }
+                    cut(c, node);
+                    lost++;
+                }
+                c = next;
+            }
+            Node<V> parent = node.parent;
+            if (lost > 0 && parent != null) {
+                if (node.mark == 0 && lost == 1) {
+                    node.mark++;
+                    this.totalMarks++;
+                } else {
+                    if (node.mark != 0) {
+                        this.totalMarks--;
+                    }
+                    cascadingCut(node, parent);
+                }
+            }
+        }
+        if (wasMin) {
+            this.min = scanMin();
+        }
+    }
+
+    /**
+     *
+     * Link the root list into at most one tree per rank now, as the next
+     * deleteMin would, so that a long run of increaseKeys on the minimum
+     * scans a short root list.
+     *
+     */
+    public void consolidate() {
+        if (this.size == 0) {
+            return;
+        }
+        this.first = consolidate(this.first);
+        this.min = this.first.item;
+    }
+
+    /**
+     *
+     * Delete x from the heap. As in Heap, x is cut out (or swapped up to its
+     * root) and only deleting the minimum consolidates.
+     *
+     */
+    public void delete(Item<V> x) {
+        if (x == null || x.node == null) {
+            return;
+        }
+        if (x == this.min) {
+            deleteMin();
+            return;
+        }
+        Node<V> node = x.node;
+        if (node.mark != 0) {
+            this.totalMarks--;
+            node.mark = 0;
+        }
+        if (node.parent != null) {
+            if (this.lazyDecreaseKeys) {
+                cascadingCut(node, node.parent);
+            } else {
+                while (node.parent != null) {
+                    this.totalHeapifyOps++;
+                    Item<V> parentItem = node.parent.item;
+                    node.parent.item = x;
+                    x.node = node.parent;
+                    node.item = parentItem;
+                    parentItem.node = node;
+                    node = node.parent;
+                }
+            }
+        }
+        removeRoot(node);
+    }
+
+    /**
+     *
+     * Meld the heap with heap2
+     * pre: heap2.lazyMelds = this.lazyMelds AND heap2.lazyDecreaseKeys =
+     * this.lazyDecreaseKeys
+     *
+     */
+    public void meld(LongHeap<V> heap2) {
+        if (heap2 == null || heap2 == this || heap2.size == 0) {
+            return;
+        }
+        if (!(heap2.lazyMelds == this.lazyMelds && heap2.lazyDecreaseKeys == this.lazyDecreaseKeys)) {
+            return;
+        }
+        if (this.size == 0) {
+            this.first = heap2.first;
+            this.min = heap2.min;
+        } else {
+            Node<V> aLast = this.first.prev;
+            Node<V> bLast = heap2.first.prev;
+            aLast.next = heap2.first;
+            heap2.first.prev = aLast;
+            bLast.next = this.first;
+            this.first.prev = bLast;
+            if (heap2.min.key < this.min.key) {
+                this.min = heap2.min;
+            }
+        }
+        this.size += heap2.size;
+        this.numRoots += heap2.numRoots;
+        this.totalMarks += heap2.totalMarks;
+        heap2.first = null;
+        heap2.min = null;
+        heap2.size = 0;
+        heap2.numRoots = 0;
+        heap2.totalMarks = 0;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     *
+     * Return the number of trees in the heap.
+     *
+     */
+    public int numTrees() {
+        return this.numRoots;
+    }
+
+    /**
+     *
+     * Return the number of marked nodes in the heap.
+     *
+     */
+    public int numMarkedNodes() {
+        return this.lazyDecreaseKeys ? this.totalMarks : 0;
+    }
+
+    /**
+     *
+     * Return the total number of links.
+     *
+     */
+    public int totalLinks() {
+        return this.totalLinks;
+    }
+
+    /**
+     *
+     * Return the total number of cuts.
+     *
+     */
+    public int totalCuts() {
+        return this.totalCuts;
+    }
+
+    /**
+     *
+     * Return the total heapify costs.
+     *
+     */
+    public int totalHeapifyCosts() {
+        return this.totalHeapifyOps;
+    }
+
+    private void heapifyUp(Node<V> x) {
+        while (x.parent != null && x.item.key < x.parent.item.key) {
+            this.totalHeapifyOps++;
+            Item<V> parentItem = x.parent.item;
+            x.parent.item = x.item;
+            x.parent.item.node = x.parent;
+            x.item = parentItem;
+            x.item.node = x;
+            x = x.parent;
+        }
+    }
+
+    // Swap items down towards the smallest child while it is smaller, as Heap.HeapifyDown
+    private void heapifyDown(Node<V> x) {
+        while (x.child != null) {
+            Node<V> smallest = x.child;
+            for (Node<V> c = x.child.next; c != x.child; c = c.next) {
+                if (c.item.key < smallest.item.key) {
+                    smallest = c;
+                }
+            }
+            if (smallest.item.key >= x.item.key) {
+                return;
+            }
+            this.totalHeapifyOps++;
+            Item<V> childItem = smallest.item;
+            smallest.item = x.item;
+            smallest.item.node = smallest;
+            x.item = childItem;
+            childItem.node = x;
+            x = smallest;
+        }
+    }
+
+    // Replace the root x by its children in the root list, first moves to the root after x
+    private void removeRoot(Node<V> x) {
+        Node<V> child = x.child;
+        if (child != null) {
+            Node<V> c = child;
+            do {
+                c.parent = null;
+                c = c.next;
+            } while (c != child);
+        }
+
+        if (x.next == x) {
+            this.first = child;
+        } else if (child == null) {
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+            this.first = x.next;
+        } else {
+            Node<V> childLast = child.prev;
+            x.prev.next = child;
+            child.prev = x.prev;
+            childLast.next = x.next;
+            x.next.prev = childLast;
+            this.first = x.next;
+        }
+
+        if (x.mark != 0) {
+            this.totalMarks--;
+        }
+        this.size--;
+        this.numRoots += x.rank - 1;
+    }
+
+    private void cut(Node<V> x, Node<V> y) {
+        this.totalCuts++;
+        this.numRoots++;
+        x.parent = null;
+        x.mark = 0;
+        y.rank--;
+        if (x.next == x) {
+            y.child = null;
+        } else {
+            y.child = x.next;
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+        }
+        insertAfter(this.first.prev, x);
+    }
+
+    private void cascadingCut(Node<V> x, Node<V> y) {
+        cut(x, y);
+        while (y.parent != null) {
+            if (y.mark == 0) {
+                y.mark++;
+                this.totalMarks++;
+                return;
+            }
+            this.totalMarks--;
+            x = y;
+            y = y.parent;
+            cut(x, y);
+        }
+    }
+
+    // Successive linking by rank, returns the minimal root
+    private Node<V> consolidate(Node<V> x) {
+        int needed = Heap.maxRank(this.size) + 1;
+        if (this.buckets.length < needed) {
+            this.buckets = newNodes(needed);
+        }
+        Node<V>[] buckets = this.buckets;
+        x.prev.next = null;
+        while (x != null) {
+            Node<V> y = x;
+            x = x.next;
+            while (buckets[y.rank] != null) {
+                y = link(y, buckets[y.rank]);
+                buckets[y.rank - 1] = null;
+            }
+            buckets[y.rank] = y;
+        }
+
+        Node<V> root = null;
+        for (int i = 0; i < buckets.length; i++) {
+            Node<V> b = buckets[i];
+            if (b != null) {
+                buckets[i] = null;
+                insertAfter(root, b);
+                if (root == null || b.item.key < root.item.key) {
+                    root = b;
+                }
+            }
+        }
+        return root;
+    }
+
+    private Node<V> link(Node<V> x, Node<V> y) {
+        this.totalLinks++;
+        this.numRoots--;
+        if (!(x.item.key < y.item.key)) {
+            Node<V> t = x;
+            x = y;
+            y = t;
+        }
+        if (x.child == null) {
+            x.child = y;
+            y.next = y;
+            y.prev = y;
+        } else {
+            insertAfter(x.child.prev, y);
+        }
+        y.parent = x;
+        x.rank++;
+        return x;
+    }
+
+    private Item<V> scanMin() {
+        Item<V> newMin = this.first.item;
+        for (Node<V> current = this.first.next; current != this.first; current = current.next) {
+            if (current.item.key < newMin.key) {
+                newMin = current.item;
+            }
+        }
+        return newMin;
+    }
+
+    private static <V> void insertAfter(Node<V> x, Node<V> y) {
+        if (x == null) {
+            y.next = y;
+            y.prev = y;
+        } else {
+            y.next = x.next;
+            x.next.prev = y;
+            x.next = y;
+            y.prev = x;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> Node<V>[] newNodes(int n) {
+        return new Node[n];
+    }
+
+    /**
+     * Class implementing a node in a LongHeap.
+     *
+     */
+    public static class Node<V> {
+        private Item<V> item;
+        private Node<V> child;
+        private Node<V> next;
+        private Node<V> prev;
+        private Node<V> parent;
+        private int rank;
+        private int mark;
+    }
+
+    /**
+     * Class implementing an item in a LongHeap.
+     *
+     */
+    public static class Item<V> {
+        private Node<V> node;
+        public long key;
+        public V info;
+    }
+}
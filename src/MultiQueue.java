@@ -0,0 +1,232 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MultiQueue
+ *
+ * A relaxed concurrent priority queue made of several Heap shards, each
+ * guarded by its own lock. Inserts go to a random shard; deleteMin looks
+ * at the cached minima of a few random shards ("power of choices") and
+ * pops from the best one. deleteMin therefore returns one of the smallest
+ * items rather than the smallest: the expected rank error grows with the
+ * number of shards and shrinks with the number of choices.
+ *
+ */
+public class MultiQueue {
+    private static final long EMPTY = Long.MAX_VALUE; // above every int key, so Integer.MAX_VALUE stays a key
+    private static final int PAD = 8; // longs per cached min, keeps each on its own cache line
+
+    private final Heap[] shards;
+    private final ReentrantLock[] locks;
+    private final AtomicLongArray minKeys; // cached shard minima, EMPTY when the shard is empty
+    private final LongAdder size = new LongAdder();
+    private final int choices;
+    private final int rebalanceInterval;
+
+    /**
+     *
+     * Constructor to initialize an empty queue of the given number of shards,
+     * using two choices and occasional rebalancing melds.
+     *
+     */
+    public MultiQueue(int shards) {
+        this(shards, 2, 1024, false, false);
+    }
+
+    /**
+     *
+     * pre: shards >= 1, 1 <= choices <= shards, rebalanceInterval >= 0
+     *
+     * Constructor to initialize an empty queue. deleteMin compares the minima
+     * of choices random shards, and roughly one in rebalanceInterval deleteMins
+     * tries to meld a nearly drained shard into another one (0 disables it).
+     *
+     */
+    public MultiQueue(int shards, int choices, int rebalanceInterval, boolean lazyMelds, boolean lazyDecreaseKeys) {
+        if (shards < 1 || choices < 1 || choices > shards || rebalanceInterval < 0) {
+            throw new IllegalArgumentException("shards=" + shards + ", choices=" + choices
+                    + ", rebalanceInterval=" + rebalanceInterval);
+        }
+        this.shards = new Heap[shards];
+        this.locks = new ReentrantLock[shards];
+        this.minKeys = new AtomicLongArray(shards * PAD);
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Heap(lazyMelds, lazyDecreaseKeys);
+            this.locks[i] = new ReentrantLock();
+            this.minKeys.set(i * PAD, EMPTY);
+        }
+        this.choices = choices;
+        this.rebalanceInterval = rebalanceInterval;
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into a random shard and return its HeapItem.
+     * The item belongs to that shard, so it is only valid for reading.
+     *
+     */
+    public Heap.HeapItem insert(int key, String info) {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        while (true) {
+            int i = rand.nextInt(this.shards.length);
+            ReentrantLock lock = this.locks[i];
+            if (lock.tryLock()) {
+                try {
+                    Heap.HeapItem item = this.shards[i].insert(key, info);
+                    publishMin(i);
+                    this.size.increment();
+                    return item;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * Remove and return one of the smallest items, null if the queue is empty.
+     *
+     */
+    public Heap.HeapItem deleteMin() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        while (true) {
+            int best = -1;
+            long bestKey = EMPTY;
+            for (int c = 0; c < this.choices; c++) {
+                int i = rand.nextInt(this.shards.length);
+                long k = this.minKeys.get(i * PAD);
+                if (best < 0 || k < bestKey) {
+                    best = i;
+                    bestKey = k;
+                }
+            }
+            if (bestKey == EMPTY) {
+                // the sampled shards look empty, fall back to the best of all shards
+                best = scanBest();
+                if (best < 0) {
+                    return null;
+                }
+            }
+
+            ReentrantLock lock = this.locks[best];
+            if (!lock.tryLock()) {
+                continue;
+            }
+            Heap.HeapItem item;
+            try {
+                Heap shard = this.shards[best];
+                item = shard.findMin();
+                if (item == null) {
+                    continue; // drained since we looked
+                }
+                shard.deleteMin();
+                publishMin(best);
+                this.size.decrement();
+            } finally {
+                lock.unlock();
+            }
+            if (this.rebalanceInterval > 0 && rand.nextInt(this.rebalanceInterval) == 0) {
+                rebalance(rand);
+            }
+            return item;
+        }
+    }
+
+    /**
+     *
+     * Return the number of items. Exact only when no operation is in flight.
+     *
+     */
+    public long size() {
+        return this.size.sum();
+    }
+
+    /**
+     *
+     * Return the number of shards.
+     *
+     */
+    public int numShards() {
+        return this.shards.length;
+    }
+
+    /**
+     *
+     * Return the number of shards compared by each deleteMin.
+     *
+     */
+    public int choices() {
+        return this.choices;
+    }
+
+    // Must be called with the lock of shard i held
+    private void publishMin(int i) {
+        Heap.HeapItem min = this.shards[i].findMin();
+        this.minKeys.set(i * PAD, min == null ? EMPTY : min.key);
+    }
+
+    private int scanBest() {
+        int best = -1;
+        long bestKey = EMPTY;
+        for (int i = 0; i < this.shards.length; i++) {
+            long k = this.minKeys.get(i * PAD);
+            if (k < bestKey) {
+                best = i;
+                bestKey = k;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Meld a nearly drained shard into a larger one. Its few remaining items
+     * then compete with the larger shard's minimum instead of lingering, and the
+     * emptied shard refills from fresh inserts. Busy shards are skipped rather
+     * than waited for.
+     */
+    private void rebalance(ThreadLocalRandom rand) {
+        int n = this.shards.length;
+        if (n < 2) {
+            return;
+        }
+        int a = rand.nextInt(n);
+        int b = rand.nextInt(n - 1);
+        if (b >= a) {
+            b++;
+        }
+        // lock in index order so two rebalancing threads cannot deadlock
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        if (!this.locks[lo].tryLock()) {
+            return;
+        }
+        try {
+            if (!this.locks[hi].tryLock()) {
+                return;
+            }
+            try {
+                Heap small = this.shards[lo];
+                Heap large = this.shards[hi];
+                if (small.size() > large.size()) {
+                    Heap t = small;
+                    small = large;
+                    large = t;
+                }
+                if (small.size() > 0 && small.size() * 4 < large.size()) {
+                    large.meld(small);
+                    publishMin(lo);
+                    publishMin(hi);
+                }
+            } finally {
+                this.locks[hi].unlock();
+            }
+        } finally {
+            this.locks[lo].unlock();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.*;
+
+/**
+ * MultiQueueTest - Checks that MultiQueue hands out every inserted item
+ * exactly once, single-threaded and under concurrent inserts and
+ * deleteMins, including items whose key is Integer.MAX_VALUE.
+ */
+public class MultiQueueTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws InterruptedException {
+        // Integer.MAX_VALUE is a valid key, not an empty shard
+        MultiQueue single = new MultiQueue(1, 1, 0, false, false);
+        single.insert(Integer.MAX_VALUE, "max");
+        Heap.HeapItem max = single.deleteMin();
+        check("max key on one shard", max != null && max.key == Integer.MAX_VALUE && single.deleteMin() == null);
+
+        MultiQueue sharded = new MultiQueue(8, 2, 16, false, true);
+        List<Integer> expected = new ArrayList<>();
+        Random rand = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            int key = i % 10 == 0 ? Integer.MAX_VALUE : rand.nextInt(1000000) + 1;
+            sharded.insert(key, null);
+            expected.add(key);
+        }
+        check("size after inserts", sharded.size() == expected.size());
+        List<Integer> popped = new ArrayList<>();
+        for (Heap.HeapItem x = sharded.deleteMin(); x != null; x = sharded.deleteMin()) {
+            popped.add(x.key);
+        }
+        Collections.sort(expected);
+        Collections.sort(popped);
+        check("every item popped once", popped.equals(expected) && sharded.size() == 0);
+
+        // concurrent producers and consumers
+        MultiQueue shared = new MultiQueue(4);
+        int threads = 4;
+        int perThread = 5000;
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    shared.insert(i % 7 == 0 ? Integer.MAX_VALUE : id * perThread + i + 1, null);
+                    if (i % 2 == 1) {
+                        Heap.HeapItem x = shared.deleteMin();
+                        if (x != null) {
+                            seen.add(x.key);
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        for (Heap.HeapItem x = shared.deleteMin(); x != null; x = shared.deleteMin()) {
+            seen.add(x.key);
+        }
+        List<Integer> inserted = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                inserted.add(i % 7 == 0 ? Integer.MAX_VALUE : t * perThread + i + 1);
+            }
+        }
+        Collections.sort(inserted);
+        Collections.sort(seen);
+        check("concurrent items popped once", seen.equals(inserted) && shared.size() == 0);
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
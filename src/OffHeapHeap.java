@@ -0,0 +1,703 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * OffHeapHeap
+ *
+ * A Fibonacci heap over positive integers whose node table lives outside
+ * the Java heap, in a MemorySegment allocated from an Arena (or mapped from
+ * a file, so the table may be larger than RAM).
+ * It follows the same algorithm as ArrayHeap and Heap, with int handles
+ * and no info strings. The memory is released when the heap is closed;
+ * tables outgrown before that stay allocated until then.
+ *
+ */
+public class OffHeapHeap implements AutoCloseable {
+    public static final int NIL = -1;
+    private static final int MAX_RANK = 64;
+    private static final long DEFAULT_CAPACITY = 1024;
+
+    // record layout, one record of ints per slot
+    private static final long KEY = 0;
+    private static final long PARENT = 4;
+    private static final long CHILD = 8;
+    private static final long NEXT = 12;
+    private static final long PREV = 16;
+    private static final long RANK = 20;
+    private static final long MARK = 24;
+    private static final long ITEM = 28; // handle currently stored in the node
+    private static final long NODE = 32; // node slot holding the handle with this index
+    private static final long RECORD = 36;
+
+    public final boolean lazyMelds;
+    public final boolean lazyDecreaseKeys;
+
+    private final FileChannel channel; // null unless the table is mapped from a file
+    private Arena arena;
+    private MemorySegment table;
+    private int capacity;
+
+    private final int[] buckets = new int[MAX_RANK];
+    private int used;
+    private int freeNodes = NIL; // chained through NEXT
+    private int freeHandles = NIL; // chained through NODE as -2 - next
+
+    private int min = NIL;
+    private int first = NIL;
+    private int size;
+    private int totalMarks = 0;
+    private int totalLinks = 0;
+    private int totalCuts = 0;
+    private int totalHeapifyOps = 0;
+
+    /**
+     *
+     * Constructor to initialize an empty heap in native memory.
+     *
+     */
+    public OffHeapHeap(boolean lazyMelds, boolean lazyDecreaseKeys) {
+        this(lazyMelds, lazyDecreaseKeys, DEFAULT_CAPACITY);
+    }
+
+    /**
+     *
+     * Constructor to initialize an empty heap in native memory with room for
+     * capacity items before the table has to grow.
+     *
+     */
+    public OffHeapHeap(boolean lazyMelds, boolean lazyDecreaseKeys, long capacity) {
+        this.lazyMelds = lazyMelds;
+        this.lazyDecreaseKeys = lazyDecreaseKeys;
+        this.channel = null;
+        this.capacity = checkedCapacity(capacity);
+        this.arena = Arena.ofShared();
+        this.table = this.arena.allocate(this.capacity * RECORD, 8);
+        Arrays.fill(this.buckets, NIL);
+    }
+
+    /**
+     *
+     * Constructor to initialize an empty heap whose table is mapped from file.
+     * The file is created or truncated, and grows together with the table.
+     *
+     */
+    public OffHeapHeap(boolean lazyMelds, boolean lazyDecreaseKeys, Path file, long capacity) throws IOException {
+        this.lazyMelds = lazyMelds;
+        this.lazyDecreaseKeys = lazyDecreaseKeys;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.capacity = checkedCapacity(capacity);
+        this.arena = Arena.ofShared();
+        this.table = map(this.arena, this.capacity);
+        Arrays.fill(this.buckets, NIL);
+    }
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert key into the heap and return the handle of the new item.
+     *
+     */
+    public int insert(int key) {
+        int x = newNode();
+        int h = newHandle();
+        set(x, KEY, key);
+        set(x, ITEM, h);
+        set(h, NODE, x);
+
+        if (this.size == 0) {
+            this.min = h;
+            this.first = x;
+            set(x, NEXT, x);
+            set(x, PREV, x);
+        } else {
+            // add to the root list (circular) before first
+            int last = get(this.first, PREV);
+            set(last, NEXT, x);
+            set(x, PREV, last);
+            set(x, NEXT, this.first);
+            set(this.first, PREV, x);
+            if (key < key(this.min)) {
+                this.min = h;
+            }
+        }
+
+        this.size++;
+        return h;
+    }
+
+    /**
+     *
+     * Return the handle of the minimal item, NIL if empty.
+     *
+     */
+    public int findMin() {
+        return this.min;
+    }
+
+    /**
+     *
+     * Return the key of the item with handle h.
+     *
+     */
+    public int key(int h) {
+        return get(get(h, NODE), KEY);
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        if (this.min == NIL) {
+            return;
+        }
+
+        removeRoot(get(this.min, NODE));
+
+        if (this.size == 0) {
+            this.min = NIL;
+        } else {
+            if (!this.lazyMelds) {
+                this.first = consolidate(this.first);
+            }
+
+            // Find minimum in root list
+            int current = this.first;
+            int newMin = current;
+            int minKey = get(current, KEY);
+            current = get(current, NEXT);
+            while (current != this.first) {
+                int k = get(current, KEY);
+                if (k < minKey) {
+                    newMin = current;
+                    minKey = k;
+                }
+                current = get(current, NEXT);
+            }
+            this.min = get(newMin, ITEM);
+        }
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=key(h)
+     *
+     * Decrease the key of h by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(int h, int diff) {
+        if (h == NIL) {
+            return;
+        }
+
+        int x = get(h, NODE);
+        int k = get(x, KEY) - diff;
+        set(x, KEY, k);
+        if (k < key(this.min)) {
+            this.min = h;
+        }
+
+        if (!this.lazyDecreaseKeys) {
+            heapifyUp(x);
+        } else {
+            int p = get(x, PARENT);
+            if (p != NIL && k < get(p, KEY)) {
+                if (get(x, MARK) != 0) {
+                    this.totalMarks--; // cut clears the mark of the new root
+                }
+                cascadingCut(x, p);
+            }
+        }
+    }
+
+    /**
+     *
+     * Delete the item h from the heap. As in Heap, h is cut out (or swapped
+     * up to its root) and only deleting the minimum consolidates.
+     *
+     */
+    public void delete(int h) {
+        if (h == NIL) {
+            return;
+        }
+        if (h == this.min) {
+            deleteMin();
+            return;
+        }
+
+        int x = get(h, NODE);
+        if (get(x, MARK) != 0) {
+            this.totalMarks--;
+            set(x, MARK, 0);
+        }
+        int p = get(x, PARENT);
+        if (p != NIL) {
+            if (this.lazyDecreaseKeys) {
+                cascadingCut(x, p);
+            } else {
+                // the swaps a decrease to -1 would make, without touching min
+                do {
+                    this.totalHeapifyOps++;
+                    int ph = get(p, ITEM);
+                    set(x, KEY, get(p, KEY));
+                    set(x, ITEM, ph);
+                    set(ph, NODE, x);
+                    x = p;
+                } while ((p = get(x, PARENT)) != NIL);
+                set(x, ITEM, h);
+                set(h, NODE, x);
+            }
+        }
+        removeRoot(x);
+    }
+
+    /**
+     *
+     * Meld the heap with heap2 and return the offset to add to every handle
+     * of heap2 to obtain its handle in this heap.
+     * The table of heap2 is copied, so this costs O(heap2 capacity).
+     * heap2 stays open and empty.
+     * pre: heap2.lazyMelds = this.lazyMelds AND heap2.lazyDecreaseKeys =
+     * this.lazyDecreaseKeys
+     *
+     */
+    public int meld(OffHeapHeap heap2) {
+        if (heap2 == null || heap2 == this) {
+            return 0;
+        }
+        if (!(heap2.lazyMelds == this.lazyMelds && heap2.lazyDecreaseKeys == this.lazyDecreaseKeys)) {
+            return 0;
+        }
+        if (heap2.size == 0) {
+            return 0;
+        }
+
+        int offset = this.used;
+        copyFrom(heap2, offset);
+        int first2 = heap2.first + offset;
+        int min2 = heap2.min + offset;
+
+        if (this.size == 0) {
+            this.first = first2;
+            this.min = min2;
+        } else {
+            // concatenate root lists (both circular)
+            int aLast = get(this.first, PREV);
+            int bLast = get(first2, PREV);
+
+            set(aLast, NEXT, first2);
+            set(first2, PREV, aLast);
+
+            set(bLast, NEXT, this.first);
+            set(this.first, PREV, bLast);
+
+            if (key(min2) < key(this.min)) {
+                this.min = min2;
+            }
+        }
+        this.size += heap2.size;
+        this.totalMarks += heap2.totalMarks;
+
+        heap2.clear();
+        return offset;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     *
+     * Return the number of trees in the heap.
+     *
+     */
+    public int numTrees() // O(number of trees)
+    {
+        if (this.first == NIL) {
+            return 0;
+        }
+        int count = 1;
+        for (int x = get(this.first, NEXT); x != this.first; x = get(x, NEXT)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     *
+     * Return the number of marked nodes in the heap.
+     *
+     */
+    public int numMarkedNodes() {
+        if (this.lazyDecreaseKeys)
+            return this.totalMarks;
+        return 0;
+    }
+
+    /**
+     *
+     * Return the total number of links.
+     *
+     */
+    public int totalLinks() {
+        return this.totalLinks;
+    }
+
+    /**
+     *
+     * Return the total number of cuts.
+     *
+     */
+    public int totalCuts() {
+        return this.totalCuts;
+    }
+
+    /**
+     *
+     * Return the total heapify costs.
+     *
+     */
+    public int totalHeapifyCosts() {
+        return this.totalHeapifyOps;
+    }
+
+    /**
+     *
+     * Release the native memory (and unmap the file, if any).
+     * The heap cannot be used afterwards.
+     *
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.arena == null) {
+            return;
+        }
+        this.arena.close();
+        this.arena = null;
+        this.table = null;
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+
+    private void heapifyUp(int x) {
+        int p;
+        while ((p = get(x, PARENT)) != NIL && get(x, KEY) < get(p, KEY)) {
+            this.totalHeapifyOps++;
+            // swap only the items (key and handle) between the nodes
+            int k = get(p, KEY);
+            int h = get(p, ITEM);
+            int xh = get(x, ITEM);
+            set(p, KEY, get(x, KEY));
+            set(p, ITEM, xh);
+            set(xh, NODE, p);
+            set(x, KEY, k);
+            set(x, ITEM, h);
+            set(h, NODE, x);
+            if (this.min == NIL || get(p, KEY) < key(this.min)) {
+                this.min = xh;
+            }
+            x = p;
+        }
+    }
+
+    // Replace the root x by its children in the root list and free x, first moves to the root after x
+    private void removeRoot(int x) {
+        int c = get(x, CHILD);
+        if (c != NIL) {
+            int y = c;
+            do {
+                set(y, PARENT, NIL);
+                y = get(y, NEXT);
+            } while (y != c);
+        }
+
+        int xNext = get(x, NEXT);
+        int xPrev = get(x, PREV);
+        if (xNext == x) {
+            this.first = c;
+        } else if (c == NIL) {
+            set(xPrev, NEXT, xNext);
+            set(xNext, PREV, xPrev);
+            this.first = xNext;
+        } else {
+            int childLast = get(c, PREV);
+            set(xPrev, NEXT, c);
+            set(c, PREV, xPrev);
+            set(childLast, NEXT, xNext);
+            set(xNext, PREV, childLast);
+            this.first = xNext;
+        }
+
+        if (get(x, MARK) != 0) {
+            this.totalMarks--;
+        }
+        free(x, get(x, ITEM));
+        this.size--;
+    }
+
+    private void cut(int x, int y) {
+        this.totalCuts++;
+        set(x, PARENT, NIL);
+        set(x, MARK, 0);
+        set(y, RANK, get(y, RANK) - 1);
+        int xn = get(x, NEXT);
+        if (xn == x) {
+            set(y, CHILD, NIL);
+        } else {
+            int xp = get(x, PREV);
+            set(y, CHILD, xn);
+            set(xp, NEXT, xn);
+            set(xn, PREV, xp);
+        }
+
+        // Add to root list
+        int last = get(this.first, PREV);
+        set(last, NEXT, x);
+        set(x, PREV, last);
+        set(x, NEXT, this.first);
+        set(this.first, PREV, x);
+    }
+
+    private void cascadingCut(int x, int y) {
+        cut(x, y);
+        while (get(y, PARENT) != NIL) {
+            if (get(y, MARK) == 0) {
+                set(y, MARK, 1);
+                this.totalMarks++;
+                return;
+            }
+            this.totalMarks--;
+            x = y;
+            y = get(y, PARENT);
+            cut(x, y);
+        }
+    }
+
+    // Successive linking of the root list starting at x, returns the new min root
+    private int consolidate(int x) {
+        int[] buckets = this.buckets;
+        int maxRank = 0;
+        set(get(x, PREV), NEXT, NIL); // break circularity
+        int current = x;
+        while (current != NIL) {
+            int y = current;
+            current = get(current, NEXT);
+            int r = get(y, RANK);
+            while (buckets[r] != NIL) {
+                y = link(y, buckets[r]);
+                buckets[r] = NIL;
+                r++;
+            }
+            buckets[r] = y;
+            if (r > maxRank) {
+                maxRank = r;
+            }
+        }
+
+        // rebuild the root list in rank order, inserting after the running min
+        int m = NIL;
+        int minKey = 0;
+        for (int i = 0; i <= maxRank; i++) {
+            int b = buckets[i];
+            if (b == NIL) {
+                continue;
+            }
+            buckets[i] = NIL;
+            if (m == NIL) {
+                m = b;
+                minKey = get(b, KEY);
+                set(b, NEXT, b);
+                set(b, PREV, b);
+            } else {
+                insertAfter(m, b);
+                int k = get(b, KEY);
+                if (k < minKey) {
+                    m = b;
+                    minKey = k;
+                }
+            }
+        }
+        return m;
+    }
+
+    private int link(int x, int y) {
+        this.totalLinks++;
+        if (get(x, KEY) < get(y, KEY)) {
+            addChild(x, y);
+            return x;
+        } else {
+            addChild(y, x);
+            return y;
+        }
+    }
+
+    // Make c the last child of p
+    private void addChild(int p, int c) {
+        int pc = get(p, CHILD);
+        if (pc == NIL) {
+            set(p, CHILD, c);
+            set(c, NEXT, c);
+            set(c, PREV, c);
+        } else {
+            insertAfter(get(pc, PREV), c);
+        }
+        set(c, PARENT, p);
+        set(p, RANK, get(p, RANK) + 1);
+    }
+
+    private void insertAfter(int x, int y) {
+        int xn = get(x, NEXT);
+        set(y, NEXT, xn);
+        set(xn, PREV, y);
+        set(x, NEXT, y);
+        set(y, PREV, x);
+    }
+
+    private int newNode() {
+        int x = this.freeNodes;
+        if (x != NIL) {
+            this.freeNodes = get(x, NEXT);
+        } else {
+            if (this.used == this.capacity) {
+                grow(checkedCapacity(2L * this.capacity));
+            }
+            x = this.used++;
+        }
+        set(x, PARENT, NIL);
+        set(x, CHILD, NIL);
+        set(x, RANK, 0);
+        set(x, MARK, 0);
+        return x;
+    }
+
+    // Every live handle owns exactly one node, so handle slots are recycled alongside node slots
+    private int newHandle() {
+        int h = this.freeHandles;
+        if (h != NIL) {
+            this.freeHandles = -2 - get(h, NODE);
+            return h;
+        }
+        return this.used - 1;
+    }
+
+    private void free(int x, int h) {
+        set(x, NEXT, this.freeNodes);
+        this.freeNodes = x;
+        set(h, NODE, -2 - this.freeHandles);
+        this.freeHandles = h;
+    }
+
+    private int get(int slot, long field) {
+        return this.table.get(ValueLayout.JAVA_INT, slot * RECORD + field);
+    }
+
+    private void set(int slot, long field, int value) {
+        this.table.set(ValueLayout.JAVA_INT, slot * RECORD + field, value);
+    }
+
+    private static int checkedCapacity(long capacity) {
+        if (capacity > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("capacity " + capacity + " exceeds the int handle range");
+        }
+        return (int) Math.max(capacity, 1);
+    }
+
+    private MemorySegment map(Arena arena, int capacity) {
+        try {
+            return this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity * RECORD, arena);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Move the table to a larger region of the same arena. The old region is only released by close():
+    // freeing it now would mean closing a shared arena, a handshake with every thread of the VM, on each
+    // doubling. The regions left behind add up to less than the current table
+    private void grow(int capacity) {
+        MemorySegment newTable;
+        if (this.channel != null) {
+            // the file already holds the records, mapping a larger region keeps them
+            newTable = map(this.arena, capacity);
+        } else {
+            newTable = this.arena.allocate(capacity * RECORD, 8);
+            MemorySegment.copy(this.table, 0, newTable, 0, this.used * RECORD);
+        }
+        this.table = newTable;
+        this.capacity = capacity;
+    }
+
+    // Append the table of heap2 at slot offset, shifting every link by offset
+    private void copyFrom(OffHeapHeap heap2, int offset) {
+        int n = heap2.used;
+        if ((long) offset + n > this.capacity) {
+            grow(checkedCapacity(Math.max(2L * this.capacity, (long) offset + n)));
+        }
+        MemorySegment.copy(heap2.table, 0, this.table, offset * RECORD, n * RECORD);
+        for (int i = offset; i < offset + n; i++) {
+            shift(i, PARENT, offset);
+            shift(i, CHILD, offset);
+            shift(i, NEXT, offset);
+            shift(i, PREV, offset);
+            shift(i, ITEM, offset);
+            int x = get(i, NODE);
+            // free-list links are stored as -2 - next, so shift them the other way
+            if (x >= 0) {
+                set(i, NODE, x + offset);
+            } else if (x != NIL) {
+                set(i, NODE, x - offset);
+            }
+        }
+        this.used = offset + n;
+
+        // splice the free lists of heap2 in front of ours
+        if (heap2.freeNodes != NIL) {
+            int x = heap2.freeNodes + offset;
+            while (get(x, NEXT) != NIL) {
+                x = get(x, NEXT);
+            }
+            set(x, NEXT, this.freeNodes);
+            this.freeNodes = heap2.freeNodes + offset;
+        }
+        if (heap2.freeHandles != NIL) {
+            int h = heap2.freeHandles + offset;
+            while (get(h, NODE) != NIL) {
+                h = -2 - get(h, NODE);
+            }
+            set(h, NODE, -2 - this.freeHandles);
+            this.freeHandles = heap2.freeHandles + offset;
+        }
+    }
+
+    private void shift(int slot, long field, int offset) {
+        int v = get(slot, field);
+        if (v != NIL) {
+            set(slot, field, v + offset);
+        }
+    }
+
+    private void clear() {
+        this.used = 0;
+        this.freeNodes = NIL;
+        this.freeHandles = NIL;
+        this.first = NIL;
+        this.min = NIL;
+        this.size = 0;
+        this.totalMarks = 0;
+    }
+}
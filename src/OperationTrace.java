@@ -0,0 +1,636 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * OperationTrace
+ *
+ * A reproducible sequence of heap operations that can be replayed against
+ * any AddressableHeap engine, so that engines are compared on exactly the
+ * same work. Items are named by the order of their insertion. Keys are
+ * distinct at all times, so every engine removes the same item on deleteMin,
+ * and the trace records the expected minimum after every operation.
+ *
+ * A trace can also be written to a file, or recorded there from a live heap
+ * with a Recorder, and replayed straight from the mapped file, so a trace
+ * captured elsewhere costs nothing to generate: java OperationTrace file
+ * replays it on every engine and prints the time each took.
+ *
+ */
+public class OperationTrace {
+    public static final byte INSERT = 0; // arg = key
+    public static final byte INSERT_ASIDE = 1; // arg = key, into the heap melded by the next MELD
+    public static final byte MELD = 2;
+    public static final byte DELETE_MIN = 3;
+    public static final byte DECREASE_KEY = 4; // id, arg = diff
+    public static final byte DELETE = 5; // id
+
+    private static final int FILE_MAGIC = 0x46485431; // "FHT1"
+    private static final int FILE_HEADER = 16; // magic, number of items, number of operations
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private static final int KEY_RANGE = 1 << 30;
+    private static final int MONOTONE_SPAN = 1 << 24; // how far above the last minimum a monotone insert may land
+
+    private final byte[] ops;
+    private final int[] ids;
+    private final int[] args;
+    private final int[] expectedMins; // 0 when the heap is empty
+    private final int numItems;
+
+    private OperationTrace(byte[] ops, int[] ids, int[] args, int[] expectedMins, int numItems) {
+        this.ops = ops;
+        this.ids = ids;
+        this.args = args;
+        this.expectedMins = expectedMins;
+        this.numItems = numItems;
+    }
+
+    /**
+     *
+     * pre: length >= prefill >= 0
+     *
+     * Return a trace of length operations: prefill inserts followed by a mix of
+     * 35% inserts, 25% deleteMins, 25% decreaseKeys, 10% deletes and 5% melds
+     * of up to 32 freshly inserted items.
+     *
+     */
+    public static OperationTrace random(long seed, int length, int prefill) {
+        return generate(seed, length, prefill, false);
+    }
+
+    /**
+     *
+     * pre: length >= prefill >= 0
+     *
+     * Return a trace with the same mix as random, but monotone as in Dijkstra:
+     * no insert or decreaseKey goes below the key of the last deleteMin.
+     * Inserted keys land up to 2^24 above it. Such traces also replay on RadixHeap.
+     *
+     */
+    public static OperationTrace monotone(long seed, int length, int prefill) {
+        return generate(seed, length, prefill, true);
+    }
+
+    private static OperationTrace generate(long seed, int length, int prefill, boolean monotone) {
+        Random rand = new Random(seed);
+        byte[] ops = new byte[length];
+        int[] ids = new int[length];
+        int[] args = new int[length];
+        int[] mins = new int[length];
+        Shadow shadow = new Shadow(length);
+
+        int i = 0;
+        while (i < length) {
+            int roll = i < prefill ? 0 : rand.nextInt(100);
+            int lo = monotone ? Math.max(1, shadow.lastMin) : 1;
+            int hi = monotone ? lo + MONOTONE_SPAN : KEY_RANGE;
+            if (roll >= 95 && length - i >= 2) {
+                int m = 1 + rand.nextInt(Math.min(32, length - i - 1));
+                int firstId = shadow.numItems;
+                for (int j = 0; j < m; j++, i++) {
+                    ops[i] = INSERT_ASIDE;
+                    args[i] = shadow.freshKey(rand, lo, hi);
+                    ids[i] = shadow.add(args[i], false);
+                    mins[i] = shadow.min();
+                }
+                for (int id = firstId; id < shadow.numItems; id++) {
+                    shadow.live(id);
+                }
+                ops[i] = MELD;
+            } else if (roll >= 85 && shadow.size > 0) {
+                int id = shadow.randomLive(rand);
+                ops[i] = DELETE;
+                ids[i] = id;
+                shadow.remove(id);
+            } else if (roll >= 60 && shadow.size > 0) {
+                int id = shadow.randomLive(rand);
+                int key = shadow.keys[id];
+                int newKey = key <= lo ? 0 : shadow.freshKey(rand, lo, key);
+                if (newKey == 0) {
+                    continue; // no free key below it, draw again
+                }
+                ops[i] = DECREASE_KEY;
+                ids[i] = id;
+                args[i] = key - newKey;
+                shadow.rekey(id, newKey);
+            } else if (roll >= 35 && shadow.size > 0) {
+                ops[i] = DELETE_MIN;
+                int id = shadow.minId();
+                shadow.lastMin = shadow.keys[id];
+                shadow.remove(id);
+            } else {
+                ops[i] = INSERT;
+                args[i] = shadow.freshKey(rand, lo, hi);
+                ids[i] = shadow.add(args[i], true);
+            }
+            mins[i] = shadow.min();
+            i++;
+        }
+        return new OperationTrace(ops, ids, args, mins, shadow.numItems);
+    }
+
+    /**
+     *
+     * Return the number of operations in the trace.
+     *
+     */
+    public int length() {
+        return this.ops.length;
+    }
+
+    /**
+     *
+     * Return the number of items the trace inserts.
+     *
+     */
+    public int numItems() {
+        return this.numItems;
+    }
+
+    /**
+     *
+     * Replay the trace on a fresh heap of the given engine and return the sum
+     * of the minima removed by deleteMin. With verify, check findMin after
+     * every operation and throw IllegalStateException on the first mismatch.
+     *
+     */
+    public long replay(AddressableHeap.Engine engine, boolean verify) {
+        return replay(engine.create(), engine, verify);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <H> long replay(AddressableHeap<H> heap, AddressableHeap.Engine engine, boolean verify) {
+        Object[] handles = new Object[this.numItems];
+        AddressableHeap<H> aside = null;
+        int next = 0;
+        long sum = 0;
+        for (int i = 0; i < this.ops.length; i++) {
+            switch (this.ops[i]) {
+            case INSERT:
+                handles[next++] = heap.insert(this.args[i], null);
+                break;
+            case INSERT_ASIDE:
+                if (aside == null) {
+                    aside = (AddressableHeap<H>) engine.create();
+                }
+                handles[next++] = aside.insert(this.args[i], null);
+                break;
+            case MELD:
+                heap.meld(aside);
+                aside = null;
+                break;
+            case DELETE_MIN:
+                sum += heap.key(heap.findMin());
+                heap.deleteMin();
+                break;
+            case DECREASE_KEY:
+                heap.decreaseKey((H) handles[this.ids[i]], this.args[i]);
+                break;
+            default:
+                heap.delete((H) handles[this.ids[i]]);
+                handles[this.ids[i]] = null;
+                break;
+            }
+            if (verify) {
+                H min = heap.findMin();
+                int key = min == null ? 0 : heap.key(min);
+                if (key != this.expectedMins[i]) {
+                    throw new IllegalStateException(engine + ": operation " + i + " (" + this.ops[i]
+                            + ") left min " + key + ", expected " + this.expectedMins[i]);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     *
+     * Write the trace to file, replacing its contents. Each operation takes
+     * one record: the op code, its id and argument where it has them, and
+     * the expected minimum.
+     *
+     */
+    public void write(Path file) throws IOException {
+        try (TraceWriter out = new TraceWriter(file)) {
+            for (int i = 0; i < this.ops.length; i++) {
+                out.append(this.ops[i], this.ids[i], this.args[i], this.expectedMins[i]);
+            }
+            out.numItems = this.numItems;
+        }
+    }
+
+    /**
+     *
+     * Replay the trace in file, written by write or a Recorder, on a fresh
+     * heap of the given engine, reading it from a memory mapping of the file.
+     * Return the sum of the minima removed by deleteMin, and with verify check
+     * findMin after every operation as replay(engine, verify) does.
+     *
+     */
+    public static long replay(Path file, AddressableHeap.Engine engine, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ); Arena arena = Arena.ofConfined()) {
+            MemorySegment trace = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (trace.byteSize() < FILE_HEADER || trace.get(INT, 0) != FILE_MAGIC) {
+                throw new IOException("Not an operation trace: " + file);
+            }
+            return replay(trace, engine.create(), engine, verify);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <H> long replay(MemorySegment trace, AddressableHeap<H> heap, AddressableHeap.Engine engine,
+            boolean verify) {
+        Object[] handles = new Object[trace.get(INT, 4)];
+        long length = trace.get(ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN), 8);
+        AddressableHeap<H> aside = null;
+        int next = 0;
+        long sum = 0;
+        long pos = FILE_HEADER;
+        for (long i = 0; i < length; i++) {
+            byte op = trace.get(ValueLayout.JAVA_BYTE, pos++);
+            switch (op) {
+            case INSERT:
+                handles[next++] = heap.insert(trace.get(INT, pos), null);
+                pos += 4;
+                break;
+            case INSERT_ASIDE:
+                if (aside == null) {
+                    aside = (AddressableHeap<H>) engine.create();
+                }
+                handles[next++] = aside.insert(trace.get(INT, pos), null);
+                pos += 4;
+                break;
+            case MELD:
+                heap.meld(aside);
+                aside = null;
+                break;
+            case DELETE_MIN:
+                sum += heap.key(heap.findMin());
+                heap.deleteMin();
+                break;
+            case DECREASE_KEY:
+                heap.decreaseKey((H) handles[trace.get(INT, pos)], trace.get(INT, pos + 4));
+                pos += 8;
+                break;
+            default:
+                heap.delete((H) handles[trace.get(INT, pos)]);
+                handles[trace.get(INT, pos)] = null;
+                pos += 4;
+                break;
+            }
+            int expected = trace.get(INT, pos);
+            pos += 4;
+            if (verify) {
+                H min = heap.findMin();
+                int key = min == null ? 0 : heap.key(min);
+                if (key != expected) {
+                    throw new IllegalStateException(engine + ": operation " + i + " (" + op + ") left min " + key
+                            + ", expected " + expected);
+                }
+            }
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("usage: java OperationTrace trace");
+            return;
+        }
+        Path file = Path.of(args[0]);
+        System.out.printf("%-38s %10s %16s%n", "engine", "ms", "sum of minima");
+        for (AddressableHeap.Engine engine : AddressableHeap.Engine.values()) {
+            long start = 0;
+            String sum;
+            try {
+                replay(file, engine, false); // warm-up
+                start = System.nanoTime();
+                sum = Long.toString(replay(file, engine, false));
+            } catch (IllegalArgumentException e) {
+                sum = "rejected"; // a monotone engine given a trace that is not
+            }
+            System.out.printf("%-38s %10d %16s%n", engine, start == 0 ? 0 : (System.nanoTime() - start) / 1000000, sum);
+        }
+    }
+
+    /**
+     * Passes every operation to a heap and appends it to a trace file, so a
+     * real workload can be replayed later with OperationTrace.replay. Items
+     * are numbered in the order of their insertion, including the ones
+     * inserted into an aside heap that is melded in later. Replays on other
+     * engines only match when keys are distinct, as in generated traces,
+     * since engines break ties between equal keys differently.
+     *
+     */
+    public static class Recorder<H> implements AddressableHeap<H>, Closeable {
+        private final AddressableHeap<H> heap;
+        private final TraceWriter out;
+        private final Map<H, Integer> ids = new HashMap<>();
+        private Aside<H> aside;
+
+        /**
+         *
+         * pre: heap is empty
+         *
+         * Record the operations on heap to file, replacing its contents.
+         *
+         */
+        public Recorder(AddressableHeap<H> heap, Path file) throws IOException {
+            this.heap = heap;
+            this.out = new TraceWriter(file);
+        }
+
+        /**
+         *
+         * pre: heap is empty and of the same engine as the recorded one
+         *
+         * Return heap wrapped so that its inserts are recorded, to be melded
+         * into the recorded heap with meld. Only insert is supported on it.
+         *
+         */
+        public AddressableHeap<H> aside(AddressableHeap<H> heap) {
+            if (this.aside != null) {
+                throw new IllegalStateException("The last aside heap has not been melded yet");
+            }
+            this.aside = new Aside<>(this, heap);
+            return this.aside;
+        }
+
+        public H insert(int key, String info) {
+            H x = this.heap.insert(key, info);
+            this.ids.put(x, this.out.numItems);
+            record(INSERT, this.out.numItems++, key);
+            return x;
+        }
+
+        public H findMin() {
+            return this.heap.findMin();
+        }
+
+        public void deleteMin() {
+            H min = this.heap.findMin();
+            if (min == null) {
+                return;
+            }
+            this.ids.remove(min);
+            this.heap.deleteMin();
+            record(DELETE_MIN, 0, 0);
+        }
+
+        public void decreaseKey(H x, int diff) {
+            int id = id(x);
+            this.heap.decreaseKey(x, diff);
+            record(DECREASE_KEY, id, diff);
+        }
+
+        public void delete(H x) {
+            int id = id(x);
+            this.ids.remove(x);
+            this.heap.delete(x);
+            record(DELETE, id, 0);
+        }
+
+        public void meld(AddressableHeap<H> heap2) {
+            if (heap2 == null || heap2 != this.aside) {
+                throw new IllegalArgumentException("Only the current aside heap can be melded into a recorder");
+            }
+            this.heap.meld(this.aside.heap);
+            this.aside = null;
+            record(MELD, 0, 0);
+        }
+
+        public int size() {
+            return this.heap.size();
+        }
+
+        public int key(H x) {
+            return this.heap.key(x);
+        }
+
+        public String info(H x) {
+            return this.heap.info(x);
+        }
+
+        /**
+         *
+         * Complete the trace file and close it.
+         *
+         */
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+
+        private int id(H x) {
+            Integer id = this.ids.get(x);
+            if (id == null) {
+                throw new IllegalArgumentException("Item is not in the recorded heap");
+            }
+            return id;
+        }
+
+        private void record(byte op, int id, int arg) {
+            H min = this.heap.findMin();
+            try {
+                this.out.append(op, id, arg, min == null ? 0 : this.heap.key(min));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // The heap a Recorder melds in next, whose inserts are recorded as INSERT_ASIDE
+    private static class Aside<H> implements AddressableHeap<H> {
+        final Recorder<H> recorder;
+        final AddressableHeap<H> heap;
+
+        Aside(Recorder<H> recorder, AddressableHeap<H> heap) {
+            this.recorder = recorder;
+            this.heap = heap;
+        }
+
+        public H insert(int key, String info) {
+            H x = this.heap.insert(key, info);
+            this.recorder.ids.put(x, this.recorder.out.numItems);
+            this.recorder.record(INSERT_ASIDE, this.recorder.out.numItems++, key);
+            return x;
+        }
+
+        public H findMin() {
+            return this.heap.findMin();
+        }
+
+        public void deleteMin() {
+            throw new UnsupportedOperationException("An aside heap can only be inserted into");
+        }
+
+        public void decreaseKey(H x, int diff) {
+            throw new UnsupportedOperationException("An aside heap can only be inserted into");
+        }
+
+        public void delete(H x) {
+            throw new UnsupportedOperationException("An aside heap can only be inserted into");
+        }
+
+        public void meld(AddressableHeap<H> heap2) {
+            throw new UnsupportedOperationException("An aside heap can only be inserted into");
+        }
+
+        public int size() {
+            return this.heap.size();
+        }
+
+        public int key(H x) {
+            return this.heap.key(x);
+        }
+
+        public String info(H x) {
+            return this.heap.info(x);
+        }
+    }
+
+    // Appends records to a trace file through a buffer, and writes the header on close
+    private static class TraceWriter implements Closeable {
+        final FileChannel channel;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        int numItems;
+        long length;
+
+        TraceWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.buf.position(FILE_HEADER); // written on close, once the counts are known
+        }
+
+        void append(byte op, int id, int arg, int min) throws IOException {
+            if (this.buf.remaining() < 13) {
+                flush();
+            }
+            this.buf.put(op);
+            if (op == INSERT || op == INSERT_ASIDE) {
+                this.buf.putInt(arg);
+            } else if (op == DECREASE_KEY) {
+                this.buf.putInt(id).putInt(arg);
+            } else if (op == DELETE) {
+                this.buf.putInt(id);
+            }
+            this.buf.putInt(min);
+            this.length++;
+        }
+
+        private void flush() throws IOException {
+            this.buf.flip();
+            while (this.buf.hasRemaining()) {
+                this.channel.write(this.buf);
+            }
+            this.buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(FILE_MAGIC).putInt(this.numItems).putLong(this.length);
+                header.flip();
+                while (header.hasRemaining()) {
+                    this.channel.write(header, header.position());
+                }
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    // The reference model the trace is generated against: live items by id, in a set ordered by key
+    private static class Shadow {
+        int[] keys;
+        int[] pos; // index of a live id in liveIds, -1 once removed
+        int[] liveIds;
+        int size;
+        int numItems;
+        int lastMin; // key of the last deleteMin
+        final Set<Integer> used = new HashSet<>();
+        final TreeMap<Integer, Integer> byKey = new TreeMap<>();
+
+        Shadow(int capacity) {
+            this.keys = new int[capacity];
+            this.pos = new int[capacity];
+            this.liveIds = new int[capacity];
+            Arrays.fill(this.pos, -1);
+        }
+
+        // A key in [lo, hi) that no live item holds, 0 if none was found
+        int freshKey(Random rand, int lo, int hi) {
+            for (int attempt = 0; attempt < 64; attempt++) {
+                int key = lo + rand.nextInt(hi - lo);
+                if (!this.used.contains(key)) {
+                    return key;
+                }
+            }
+            return 0;
+        }
+
+        int add(int key, boolean live) {
+            int id = this.numItems++;
+            this.keys[id] = key;
+            this.used.add(key);
+            if (live) {
+                live(id);
+            }
+            return id;
+        }
+
+        void live(int id) {
+            this.pos[id] = this.size;
+            this.liveIds[this.size++] = id;
+            this.byKey.put(this.keys[id], id);
+        }
+
+        void remove(int id) {
+            int p = this.pos[id];
+            int last = this.liveIds[--this.size];
+            this.liveIds[p] = last;
+            this.pos[last] = p;
+            this.pos[id] = -1;
+            this.byKey.remove(this.keys[id]);
+            this.used.remove(this.keys[id]);
+        }
+
+        void rekey(int id, int key) {
+            this.byKey.remove(this.keys[id]);
+            this.used.remove(this.keys[id]);
+            this.keys[id] = key;
+            this.byKey.put(key, id);
+            this.used.add(key);
+        }
+
+        int randomLive(Random rand) {
+            return this.liveIds[rand.nextInt(this.size)];
+        }
+
+        int minId() {
+            return this.byKey.firstEntry().getValue();
+        }
+
+        int min() {
+            return this.size == 0 ? 0 : this.byKey.firstKey();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * OperationTraceTest - Writes a random trace to a file, and records another
+ * from a live heap, melds of aside heaps included, then checks that both
+ * replay from the file mapping to the same result on every engine that
+ * accepts non-monotone keys.
+ */
+public class OperationTraceTest {
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        Random rand = new Random(2019);
+        Path file = Files.createTempFile("heap", ".trace");
+        try {
+            OperationTrace trace = OperationTrace.random(rand.nextLong(), 20000, 2000);
+            trace.write(file);
+            for (AddressableHeap.Engine engine : AddressableHeap.Engine.values()) {
+                if (!engine.monotone()) {
+                    check("written trace on " + engine,
+                            OperationTrace.replay(file, engine, true) == trace.replay(engine, false));
+                }
+            }
+
+            long popped = record(file, rand);
+            for (AddressableHeap.Engine engine : AddressableHeap.Engine.values()) {
+                if (!engine.monotone()) {
+                    check("recorded trace on " + engine, OperationTrace.replay(file, engine, true) == popped);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    // Record random operations on a live heap to file, keys kept distinct, and return the sum of the popped keys
+    private static long record(Path file, Random rand) throws IOException {
+        long popped = 0;
+        Set<Integer> used = new HashSet<>();
+        List<Heap.HeapItem> live = new ArrayList<>();
+        try (OperationTrace.Recorder<Heap.HeapItem> recorder = new OperationTrace.Recorder<>(new Heap(false, true),
+                file)) {
+            for (int i = 0; i < 20000; i++) {
+                int op = rand.nextInt(100);
+                int key = rand.nextInt(KEY_RANGE) + 2;
+                if (op < 40 || live.isEmpty()) {
+                    if (used.add(key)) {
+                        live.add(recorder.insert(key, null));
+                    }
+                } else if (op < 60) {
+                    Heap.HeapItem min = recorder.findMin();
+                    popped += min.key;
+                    used.remove(min.key);
+                    live.remove(min);
+                    recorder.deleteMin();
+                } else if (op < 85) {
+                    Heap.HeapItem x = live.get(rand.nextInt(live.size()));
+                    int newKey = 1 + rand.nextInt(x.key);
+                    if (used.add(newKey)) {
+                        used.remove(x.key);
+                        recorder.decreaseKey(x, x.key - newKey);
+                    }
+                } else if (op < 95) {
+                    Heap.HeapItem x = live.remove(rand.nextInt(live.size()));
+                    used.remove(x.key);
+                    recorder.delete(x);
+                } else {
+                    AddressableHeap<Heap.HeapItem> aside = recorder.aside(new Heap(false, true));
+                    for (int j = 0; j < 8; j++) {
+                        int asideKey = rand.nextInt(KEY_RANGE) + 2;
+                        if (used.add(asideKey)) {
+                            live.add(aside.insert(asideKey, null));
+                        }
+                    }
+                    recorder.meld(aside);
+                }
+            }
+        }
+        return popped;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
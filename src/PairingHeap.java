@@ -0,0 +1,208 @@
+/**
+ * PairingHeap
+ *
+ * A pairing heap over positive integers: a single heap-ordered tree whose
+ * children are kept in a doubly linked sibling list. deleteMin combines the
+ * children of the root with the two-pass pairing method, done iteratively.
+ *
+ */
+public class PairingHeap implements AddressableHeap<PairingHeap.Node> {
+    private Node root;
+    private int size;
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return the new Node.
+     *
+     */
+    public Node insert(int key, String info) {
+        Node node = new Node();
+        node.key = key;
+        node.info = info;
+        this.root = link(this.root, node);
+        this.size++;
+        return node;
+    }
+
+    /**
+     *
+     * Return the minimal Node, null if empty.
+     *
+     */
+    public Node findMin() {
+        return this.root;
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        if (this.root == null) {
+            return;
+        }
+        Node old = this.root;
+        this.root = combine(old.child);
+        old.child = null;
+        this.size--;
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Node x, int diff) {
+        if (x == null) {
+            return;
+        }
+        x.key -= diff;
+        if (x != this.root) {
+            detach(x);
+            this.root = link(this.root, x);
+        }
+    }
+
+    /**
+     *
+     * Delete x from the heap.
+     *
+     */
+    public void delete(Node x) {
+        if (x == null) {
+            return;
+        }
+        if (x == this.root) {
+            deleteMin();
+            return;
+        }
+        detach(x);
+        Node rest = combine(x.child);
+        x.child = null;
+        this.root = link(this.root, rest);
+        this.size--;
+    }
+
+    /**
+     *
+     * Meld the heap with heap2
+     *
+     */
+    public void meld(AddressableHeap<Node> heap2) {
+        if (heap2 == null || heap2 == this) {
+            return;
+        }
+        if (!(heap2 instanceof PairingHeap)) {
+            throw new IllegalArgumentException("Cannot meld a " + heap2.getClass().getSimpleName() + " into a PairingHeap");
+        }
+        PairingHeap other = (PairingHeap) heap2;
+        this.root = link(this.root, other.root);
+        this.size += other.size;
+        other.root = null;
+        other.size = 0;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int key(Node x) {
+        return x.key;
+    }
+
+    public String info(Node x) {
+        return x.info;
+    }
+
+    // Link two detached trees, the one with the larger root becomes the first child of the other
+    private static Node link(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (b.key < a.key) {
+            Node t = a;
+            a = b;
+            b = t;
+        }
+        b.next = a.child;
+        if (a.child != null) {
+            a.child.prev = b;
+        }
+        b.prev = a;
+        a.child = b;
+        return a;
+    }
+
+    // Remove the subtree of x from its parent's child list
+    private static void detach(Node x) {
+        if (x.prev.child == x) {
+            x.prev.child = x.next;
+        } else {
+            x.prev.next = x.next;
+        }
+        if (x.next != null) {
+            x.next.prev = x.prev;
+        }
+        x.next = null;
+        x.prev = null;
+    }
+
+    // Two-pass pairing of a sibling list: link pairs left to right, then fold the pairs right to left
+    private static Node combine(Node first) {
+        if (first == null) {
+            return null;
+        }
+        Node pairs = null; // linked pairs, last pair first
+        Node a = first;
+        while (a != null) {
+            Node b = a.next;
+            Node rest = b == null ? null : b.next;
+            a.next = null;
+            a.prev = null;
+            if (b != null) {
+                b.next = null;
+                b.prev = null;
+            }
+            Node w = link(a, b);
+            w.next = pairs;
+            pairs = w;
+            a = rest;
+        }
+
+        Node result = pairs;
+        pairs = pairs.next;
+        result.next = null;
+        while (pairs != null) {
+            Node following = pairs.next;
+            pairs.next = null;
+            result = link(result, pairs);
+            pairs = following;
+        }
+        return result;
+    }
+
+    /**
+     * Class implementing a node in a PairingHeap.
+     *
+     */
+    public static class Node {
+        public int key;
+        public String info;
+        private Node child;
+        private Node next;
+        private Node prev; // previous sibling, or the parent for a first child
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ParallelConsolidationTest - Checks, in all 4 configurations, that a
+ * parallel consolidation of a long root list makes as many links and
+ * leaves as many trees as the serial one, and that afterwards every
+ * deleteMin returns the right key and keeps numTrees and totalLinks
+ * consistent with the root list.
+ */
+public class ParallelConsolidationTest {
+    private static final int SIZE = 100000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2020);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean[] cfg : configs) {
+                run(cfg[0], cfg[1], pool, rand);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, ForkJoinPool pool, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys;
+        Heap serial = new Heap(lazyMelds, lazyDecreaseKeys, Heap.ConsolidationTrigger.ratioToLogSize(2));
+        Heap parallel = new Heap(lazyMelds, lazyDecreaseKeys, Heap.ConsolidationTrigger.ratioToLogSize(2));
+        parallel.parallelConsolidation(pool, 2);
+        Set<Integer> used = new HashSet<>();
+        List<Heap.HeapItem> live = new ArrayList<>(); // parallel items, distinct keys
+        for (int i = 0; i < SIZE; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 2;
+            if (used.add(key)) {
+                serial.insert(key, null);
+                live.add(parallel.insert(key, null));
+            }
+        }
+        // the same root list takes the same number of links and leaves the same number of trees
+        used.remove(parallel.findMin().key);
+        live.remove(parallel.findMin());
+        serial.deleteMin();
+        parallel.deleteMin();
+        check(name + " same links and trees", serial.totalLinks() == parallel.totalLinks()
+                && serial.numTrees() == parallel.numTrees());
+
+        // afterwards the trees differ, so every deleteMin is checked against the tree count instead
+        PriorityQueue<Integer> expected = new PriorityQueue<>(used);
+        boolean ok = true;
+        for (int i = 0; i < 6000 && ok; i++) {
+            if (i % 3 == 0) {
+                int key = rand.nextInt(KEY_RANGE) + 2;
+                if (used.add(key)) {
+                    expected.add(key);
+                    live.add(parallel.insert(key, null));
+                }
+            } else if (i % 3 == 1) {
+                Heap.HeapItem x = live.get(rand.nextInt(live.size()));
+                int newKey = 1 + rand.nextInt(x.key);
+                if (x.node != null && used.add(newKey)) {
+                    used.remove(x.key);
+                    expected.remove(x.key);
+                    expected.add(newKey);
+                    parallel.decreaseKey(x, x.key - newKey);
+                }
+            } else {
+                Heap.HeapItem min = parallel.findMin();
+                int trees = parallel.numTrees() + min.node.rank - 1;
+                int links = parallel.totalLinks();
+                ok = min.key == expected.poll();
+                used.remove(min.key);
+                live.remove(min);
+                parallel.deleteMin();
+                ok = ok && parallel.numTrees() == countRoots(parallel)
+                        && parallel.totalLinks() - links == trees - parallel.numTrees();
+            }
+        }
+        check(name + " order, trees and links after the parallel consolidation", ok);
+    }
+
+    private static int countRoots(Heap heap) {
+        if (heap.findMin() == null) {
+            return 0;
+        }
+        Heap.HeapNode start = heap.findMin().node;
+        int count = 1;
+        for (Heap.HeapNode x = start.next; x != start; x = x.next) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.Arrays;
+
+/**
+ * RadixHeap
+ *
+ * A monotone radix heap over non-negative integers, for workloads such as
+ * Dijkstra where no key below the last deleted minimum is ever inserted.
+ * Items live in 33 array buckets chosen by the highest bit in which their
+ * key differs from the last minimum, so bucket 0 holds the items equal to
+ * it. When bucket 0 runs dry, the lowest non-empty bucket is redistributed
+ * around its minimum. An item only ever moves to a lower bucket, which
+ * gives O(log C) amortized operations for keys spanning a range of C.
+ *
+ * insert and decreaseKey below the last minimum throw IllegalArgumentException.
+ *
+ */
+public class RadixHeap implements AddressableHeap<RadixHeap.Item> {
+    private static final int BUCKETS = 33;
+
+    private final Item[][] buckets = new Item[BUCKETS][];
+    private final int[] counts = new int[BUCKETS];
+    private int last; // the last minimum, a lower bound for every key in the heap
+    private int size;
+    private Item min; // the last findMin scan, null once a mutation may have changed it
+
+    public RadixHeap() {
+        for (int b = 0; b < BUCKETS; b++) {
+            this.buckets[b] = new Item[4];
+        }
+    }
+
+    /**
+     *
+     * pre: key >= lastMin()
+     *
+     * Insert (key,info) into the heap and return the new Item.
+     *
+     */
+    public Item insert(int key, String info) {
+        checkMonotone(key);
+        Item item = new Item();
+        item.key = key;
+        item.info = info;
+        push(item);
+        this.size++;
+        if (this.min != null && key < this.min.key) {
+            this.min = item;
+        }
+        return item;
+    }
+
+    /**
+     *
+     * Return the minimal Item, null if empty. This only looks: the last minimum
+     * moves on at the next deleteMin, so keys between it and the current
+     * minimum are still accepted. The scan of the lowest bucket is kept until
+     * the heap changes, so repeated calls and the deleteMin after them are O(1).
+     *
+     */
+    public Item findMin() {
+        if (this.size == 0) {
+            return null;
+        }
+        if (this.counts[0] > 0) {
+            return this.buckets[0][this.counts[0] - 1];
+        }
+        if (this.min != null) {
+            return this.min;
+        }
+        int b = 1;
+        while (this.counts[b] == 0) {
+            b++;
+        }
+        Item[] bucket = this.buckets[b];
+        Item min = bucket[0];
+        for (int i = 1; i < this.counts[b]; i++) {
+            if (bucket[i].key < min.key) {
+                min = bucket[i];
+            }
+        }
+        this.min = min;
+        return min;
+    }
+
+    /**
+     *
+     * Delete the minimal item, the one findMin returns.
+     *
+     */
+    public void deleteMin() {
+        Item x = findMin();
+        if (x == null) {
+            return;
+        }
+        if (x.bucket != 0) {
+            redistribute(x.bucket, x.key);
+        }
+        this.min = null;
+        remove(x);
+        x.bucket = -1;
+        this.size--;
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key-lastMin()
+     *
+     * Decrease the key of x by diff and move it to its new bucket.
+     *
+     */
+    public void decreaseKey(Item x, int diff) {
+        if (x == null) {
+            return;
+        }
+        checkMonotone(x.key - diff);
+        remove(x);
+        x.key -= diff;
+        push(x);
+        if (this.min != null && x.key < this.min.key) {
+            this.min = x;
+        }
+    }
+
+    /**
+     *
+     * Delete x from the heap.
+     *
+     */
+    public void delete(Item x) {
+        if (x == null) {
+            return;
+        }
+        if (x == this.min) {
+            this.min = null;
+        }
+        remove(x);
+        x.bucket = -1;
+        this.size--;
+    }
+
+    /**
+     *
+     * Meld the heap with heap2 by moving its items into this heap's buckets.
+     * pre: every key of heap2 is >= lastMin()
+     *
+     */
+    public void meld(AddressableHeap<Item> heap2) {
+        if (heap2 == null || heap2 == this) {
+            return;
+        }
+        if (!(heap2 instanceof RadixHeap)) {
+            throw new IllegalArgumentException("Cannot meld a " + heap2.getClass().getSimpleName() + " into a RadixHeap");
+        }
+        RadixHeap other = (RadixHeap) heap2;
+        if (other.size == 0) {
+            return;
+        }
+        checkMonotone(other.findMin().key);
+        for (int b = 0; b < BUCKETS; b++) {
+            Item[] bucket = other.buckets[b];
+            for (int i = 0; i < other.counts[b]; i++) {
+                push(bucket[i]);
+                bucket[i] = null;
+            }
+            other.counts[b] = 0;
+        }
+        this.size += other.size;
+        other.size = 0;
+        this.min = null;
+        other.min = null;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int key(Item x) {
+        return x.key;
+    }
+
+    public String info(Item x) {
+        return x.info;
+    }
+
+    /**
+     *
+     * Return the last minimum found, the smallest key the heap still accepts.
+     *
+     */
+    public int lastMin() {
+        return this.last;
+    }
+
+    private void checkMonotone(int key) {
+        if (key < this.last) {
+            throw new IllegalArgumentException("key " + key + " is below the last minimum " + this.last);
+        }
+    }
+
+    private int bucketOf(int key) {
+        return key == this.last ? 0 : 32 - Integer.numberOfLeadingZeros(key ^ this.last);
+    }
+
+    private void push(Item x) {
+        int b = bucketOf(x.key);
+        int n = this.counts[b];
+        if (n == this.buckets[b].length) {
+            this.buckets[b] = Arrays.copyOf(this.buckets[b], 2 * n);
+        }
+        this.buckets[b][n] = x;
+        this.counts[b] = n + 1;
+        x.bucket = b;
+        x.index = n;
+    }
+
+    // Swap x with the last item of its bucket and drop it
+    private void remove(Item x) {
+        Item[] bucket = this.buckets[x.bucket];
+        int n = --this.counts[x.bucket];
+        Item moved = bucket[n];
+        bucket[x.index] = moved;
+        moved.index = x.index;
+        bucket[n] = null;
+    }
+
+    // Move the last minimum up to min, the smallest key of bucket b, and spread bucket b below it
+    private void redistribute(int b, int min) {
+        Item[] bucket = this.buckets[b];
+        int n = this.counts[b];
+        this.last = min;
+        this.counts[b] = 0;
+        for (int i = 0; i < n; i++) {
+            Item x = bucket[i];
+            bucket[i] = null;
+            push(x); // lands in a bucket below b
+        }
+    }
+
+    /**
+     * Class implementing an item in a RadixHeap.
+     *
+     */
+    public static class Item {
+        public int key;
+        public String info;
+        private int bucket;
+        private int index;
+    }
+}
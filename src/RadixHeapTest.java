@@ -0,0 +1,54 @@
+/**
+ * RadixHeapTest - Checks that RadixHeap rejects keys below its last
+ * minimum, on insert and on decreaseKey, and that deleteMin removes the
+ * very item findMin returned, also among equal keys.
+ */
+public class RadixHeapTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        RadixHeap radix = new RadixHeap();
+        radix.insert(10, "A");
+        RadixHeap.Item twenty = radix.insert(20, "B");
+        radix.deleteMin();
+        boolean insertRejected = false;
+        boolean decreaseRejected = false;
+        try {
+            radix.insert(5, "C");
+        } catch (IllegalArgumentException e) {
+            insertRejected = true;
+        }
+        try {
+            radix.decreaseKey(twenty, 15);
+        } catch (IllegalArgumentException e) {
+            decreaseRejected = true;
+        }
+        check("non-monotone key rejected", insertRejected && decreaseRejected && radix.size() == 1
+                && radix.findMin() == twenty);
+
+        RadixHeap dup = new RadixHeap();
+        dup.insert(10, "A");
+        dup.insert(20, "B");
+        dup.insert(20, "C");
+        dup.insert(30, "D");
+        dup.deleteMin();
+        RadixHeap.Item first = dup.findMin();
+        dup.deleteMin();
+        RadixHeap.Item second = dup.findMin();
+        check("deleteMin removes the item findMin returned", first != null && second != null && first != second
+                && first.key == 20 && second.key == 20 && dup.findMin() == second && dup.size() == 2);
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.Arrays;
+
+/**
+ * RankPairingHeap
+ *
+ * A type-1 rank-pairing heap (Haeupler, Sen and Tarjan) over positive
+ * integers. The heap is a list of half-ordered half trees: every node is
+ * smaller than the nodes in its left subtree and a root has no right child.
+ * deleteMin does one pass of linking by rank, and decreaseKey cuts a
+ * subtree to the root list and lowers ranks along the path above it, so
+ * decreaseKey is O(1) amortized and deleteMin O(log n) amortized.
+ *
+ */
+public class RankPairingHeap implements AddressableHeap<RankPairingHeap.Node> {
+    private Node first; // root list, chained through right
+    private Node last;
+    private Node min;
+    private int size;
+    private Node[] buckets = new Node[64];
+
+    /**
+     *
+     * pre: key > 0
+     *
+     * Insert (key,info) into the heap and return the new Node.
+     *
+     */
+    public Node insert(int key, String info) {
+        Node node = new Node();
+        node.key = key;
+        node.info = info;
+        addRoot(node);
+        this.size++;
+        return node;
+    }
+
+    /**
+     *
+     * Return the minimal Node, null if empty.
+     *
+     */
+    public Node findMin() {
+        return this.min;
+    }
+
+    /**
+     *
+     * Delete the minimal item.
+     *
+     */
+    public void deleteMin() {
+        Node m = this.min;
+        if (m == null) {
+            return;
+        }
+        Node roots = this.first;
+        this.first = null;
+        this.last = null;
+        this.min = null;
+        int maxRank = -1;
+
+        // the right spine of the minimum's left child falls apart into half trees
+        Node x = m.left;
+        while (x != null) {
+            Node next = x.right;
+            x.right = null;
+            x.parent = null;
+            x.rank = rank(x.left) + 1;
+            maxRank = bucket(x, maxRank);
+            x = next;
+        }
+        for (x = roots; x != null;) {
+            Node next = x.right;
+            x.right = null;
+            if (x != m) {
+                maxRank = bucket(x, maxRank);
+            }
+            x = next;
+        }
+        for (int r = 0; r <= maxRank; r++) {
+            if (this.buckets[r] != null) {
+                addRoot(this.buckets[r]);
+                this.buckets[r] = null;
+            }
+        }
+
+        m.left = null;
+        this.size--;
+    }
+
+    /**
+     *
+     * pre: 0<=diff<=x.key
+     *
+     * Decrease the key of x by diff and fix the heap.
+     *
+     */
+    public void decreaseKey(Node x, int diff) {
+        if (x == null) {
+            return;
+        }
+        x.key -= diff;
+        if (x.parent != null) {
+            cutToRoot(x);
+        } else if (x.key < this.min.key) {
+            this.min = x;
+        }
+    }
+
+    /**
+     *
+     * Delete x from the heap.
+     *
+     */
+    public void delete(Node x) {
+        if (x == null) {
+            return;
+        }
+        if (x.parent != null) {
+            cutToRoot(x);
+        }
+        this.min = x; // deleteMin removes whatever min points at
+        deleteMin();
+    }
+
+    /**
+     *
+     * Meld the heap with heap2
+     *
+     */
+    public void meld(AddressableHeap<Node> heap2) {
+        if (heap2 == null || heap2 == this) {
+            return;
+        }
+        if (!(heap2 instanceof RankPairingHeap)) {
+            throw new IllegalArgumentException("Cannot meld a " + heap2.getClass().getSimpleName() + " into a RankPairingHeap");
+        }
+        RankPairingHeap other = (RankPairingHeap) heap2;
+        if (other.first == null) {
+            return;
+        }
+        if (this.first == null) {
+            this.first = other.first;
+            this.min = other.min;
+        } else {
+            this.last.right = other.first;
+            if (other.min.key < this.min.key) {
+                this.min = other.min;
+            }
+        }
+        this.last = other.last;
+        this.size += other.size;
+        other.first = null;
+        other.last = null;
+        other.min = null;
+        other.size = 0;
+    }
+
+    /**
+     *
+     * Return the number of elements in the heap
+     *
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int key(Node x) {
+        return x.key;
+    }
+
+    public String info(Node x) {
+        return x.info;
+    }
+
+    private void addRoot(Node x) {
+        x.right = null;
+        if (this.first == null) {
+            this.first = x;
+        } else {
+            this.last.right = x;
+        }
+        this.last = x;
+        if (this.min == null || x.key < this.min.key) {
+            this.min = x;
+        }
+    }
+
+    // One-pass linking: a root meeting another of the same rank is linked with it and set aside
+    private int bucket(Node x, int maxRank) {
+        int r = x.rank;
+        if (r >= this.buckets.length) {
+            this.buckets = Arrays.copyOf(this.buckets, 2 * r);
+        }
+        Node other = this.buckets[r];
+        if (other == null) {
+            this.buckets[r] = x;
+            return Math.max(maxRank, r);
+        }
+        this.buckets[r] = null;
+        addRoot(link(x, other));
+        return maxRank;
+    }
+
+    // Link two half trees of equal rank: the loser becomes the left child of the winner
+    private static Node link(Node x, Node y) {
+        if (y.key < x.key) {
+            Node t = x;
+            x = y;
+            y = t;
+        }
+        y.right = x.left;
+        if (x.left != null) {
+            x.left.parent = y;
+        }
+        x.left = y;
+        y.parent = x;
+        x.rank++;
+        return x;
+    }
+
+    // Move x and its left subtree to the root list, then repair the ranks above it
+    private void cutToRoot(Node x) {
+        Node y = x.parent;
+        Node z = x.right;
+        if (y.left == x) {
+            y.left = z;
+        } else {
+            y.right = z;
+        }
+        if (z != null) {
+            z.parent = y;
+        }
+        x.parent = null;
+        x.rank = rank(x.left) + 1;
+        addRoot(x);
+
+        // type-1 rank rule: equal child ranks give rank + 1, otherwise the larger child rank
+        while (true) {
+            if (y.parent == null) {
+                y.rank = rank(y.left) + 1;
+                return;
+            }
+            int u = rank(y.left);
+            int v = rank(y.right);
+            int k = u == v ? u + 1 : Math.max(u, v);
+            if (k >= y.rank) {
+                return;
+            }
+            y.rank = k;
+            y = y.parent;
+        }
+    }
+
+    private static int rank(Node x) {
+        return x == null ? -1 : x.rank;
+    }
+
+    /**
+     * Class implementing a node in a RankPairingHeap.
+     *
+     */
+    public static class Node {
+        public int key;
+        public String info;
+        private Node left;
+        private Node right; // right child, or the next root for a root
+        private Node parent;
+        private int rank;
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * SnapshotTest - Writes snapshots of heaps after random inserts, deleteMins,
+ * deletes and decreaseKeys, in all 4 configurations and with lazy deletes,
+ * and checks that the restored heap holds the same items and goes on
+ * exactly like the original: same minima, tree counts and counters after
+ * every deleteMin.
+ */
+public class SnapshotTest {
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2017);
+        Path file = Files.createTempFile("heap", ".snapshot");
+        try {
+            for (int c = 0; c < configs.length + 1; c++) {
+                boolean[] cfg = configs[c % configs.length];
+                run(new Heap(cfg[0], cfg[1], Heap.ConsolidationTrigger.NEVER, c < configs.length ? 0 : 0.5), file,
+                        rand);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(Heap original, Path file, Random rand) throws IOException {
+        String name = "LM=" + original.lazyMelds + "_LD=" + original.lazyDecreaseKeys + "_purge="
+                + original.purgeFraction();
+        List<Heap.HeapItem> handles = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            handles.add(original.insert(key, i % 7 == 0 ? null : "S" + key + "é"));
+        }
+        for (int i = 0; i < 1500; i++) {
+            Heap.HeapItem x = handles.get(rand.nextInt(handles.size()));
+            if (i % 5 == 0) {
+                handles.remove(original.findMin());
+                original.deleteMin();
+            } else if (i % 3 == 0) {
+                handles.remove(x);
+                original.delete(x);
+            } else if (x.key > 1) {
+                original.decreaseKey(x, rand.nextInt(x.key - 1));
+            }
+        }
+
+        List<Heap.HeapItem> written = new ArrayList<>();
+        List<Heap.HeapItem> read = new ArrayList<>();
+        original.writeSnapshot(file, written);
+        Heap restored = Heap.readSnapshot(file, Heap.ConsolidationTrigger.NEVER, read);
+        boolean itemsOk = written.size() == read.size() && restored.numDeadItems() == original.numDeadItems();
+        for (int i = 0; i < written.size() && itemsOk; i++) {
+            itemsOk = written.get(i).key == read.get(i).key && Objects.equals(written.get(i).info, read.get(i).info);
+        }
+        check(name + " items", itemsOk);
+
+        boolean sameOk = true;
+        while (sameOk) {
+            sameOk = restored.size() == original.size() && restored.numTrees() == original.numTrees()
+                    && restored.numMarkedNodes() == original.numMarkedNodes()
+                    && restored.totalLinks() == original.totalLinks() && restored.totalCuts() == original.totalCuts()
+                    && restored.totalHeapifyCosts() == original.totalHeapifyCosts();
+            if (original.size() == 0) {
+                sameOk = sameOk && restored.findMin() == null;
+                break;
+            }
+            sameOk = sameOk && restored.findMin().key == original.findMin().key
+                    && Objects.equals(restored.findMin().info, original.findMin().info);
+            original.deleteMin();
+            restored.deleteMin();
+        }
+        check(name + " restored heap goes on like the original", sameOk);
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
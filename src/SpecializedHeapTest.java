@@ -0,0 +1,270 @@
+import java.util.*;
+
+/**
+ * SpecializedHeapTest - Runs identical random operation sequences on Heap
+ * and the four generated specializations (IntHeap, LongHeap, IntKeyHeap,
+ * LongKeyHeap) in all 4 configurations, increaseKey, consolidate and melds
+ * of heaps with marked nodes included. Checks the minimum after every
+ * operation, and at the end the size, tree count, every counter and the key
+ * held by every handle on all four variants. Also runs every variant over
+ * the whole range of its key type, with differences that wrap around.
+ */
+public class SpecializedHeapTest {
+    private static final int OPS = 4000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2012);
+        for (boolean[] cfg : configs) {
+            run(cfg[0], cfg[1], rand);
+            signedIntKeys(cfg[0], cfg[1], rand);
+            signedLongKeys(cfg[0], cfg[1], rand);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys;
+        Heap reference = new Heap(lazyMelds, lazyDecreaseKeys);
+        IntHeap<Integer> ints = new IntHeap<>(lazyMelds, lazyDecreaseKeys);
+        LongHeap<Integer> longs = new LongHeap<>(lazyMelds, lazyDecreaseKeys);
+        IntKeyHeap intKeys = new IntKeyHeap(lazyMelds, lazyDecreaseKeys);
+        LongKeyHeap longKeys = new LongKeyHeap(lazyMelds, lazyDecreaseKeys);
+        List<Heap.HeapItem> refItems = new ArrayList<>();
+        List<IntHeap.Item<Integer>> intItems = new ArrayList<>();
+        List<LongHeap.Item<Integer>> longItems = new ArrayList<>();
+        List<IntKeyHeap.Node> intKeyItems = new ArrayList<>();
+        List<LongKeyHeap.Node> longKeyItems = new ArrayList<>();
+        Set<Heap.HeapItem> removed = new HashSet<>();
+        boolean ok = true;
+        for (int op = 0; op < OPS && ok; op++) {
+            int roll = rand.nextInt(10);
+            if (roll < 5 || reference.size() == 0) {
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                refItems.add(reference.insert(key, null));
+                intItems.add(ints.insert(key, refItems.size() - 1));
+                longItems.add(longs.insert(key, refItems.size() - 1));
+                intKeyItems.add(intKeys.insert(key));
+                longKeyItems.add(longKeys.insert(key));
+            } else if (roll < 7) {
+                removed.add(reference.findMin());
+                reference.deleteMin();
+                ints.deleteMin();
+                longs.deleteMin();
+                intKeys.deleteMin();
+                longKeys.deleteMin();
+            } else if (roll == 9) {
+                int i = rand.nextInt(refItems.size());
+                Heap.HeapItem x = rand.nextBoolean() ? reference.findMin() : refItems.get(i);
+                i = refItems.indexOf(x);
+                if (removed.contains(x)) {
+                    continue;
+                }
+                int diff = rand.nextInt(KEY_RANGE);
+                reference.increaseKey(x, diff);
+                ints.increaseKey(intItems.get(i), diff);
+                longs.increaseKey(longItems.get(i), diff);
+                intKeys.increaseKey(intKeyItems.get(i), diff);
+                longKeys.increaseKey(longKeyItems.get(i), diff);
+                if (op % 50 == 9) {
+                    reference.consolidate();
+                    ints.consolidate();
+                    longs.consolidate();
+                    intKeys.consolidate();
+                    longKeys.consolidate();
+                }
+            } else {
+                int i = rand.nextInt(refItems.size());
+                Heap.HeapItem x = refItems.get(i);
+                if (removed.contains(x) || x.key < 2) {
+                    continue;
+                }
+                int diff = rand.nextInt(x.key - 1);
+                reference.decreaseKey(x, diff);
+                ints.decreaseKey(intItems.get(i), diff);
+                longs.decreaseKey(longItems.get(i), diff);
+                intKeys.decreaseKey(intKeyItems.get(i), diff);
+                longKeys.decreaseKey(longKeyItems.get(i), diff);
+            }
+            if (op % 200 == 199) {
+                // meld in heaps whose decreased items left marked nodes
+                Heap refAside = new Heap(lazyMelds, lazyDecreaseKeys);
+                IntHeap<Integer> intAside = new IntHeap<>(lazyMelds, lazyDecreaseKeys);
+                LongHeap<Integer> longAside = new LongHeap<>(lazyMelds, lazyDecreaseKeys);
+                IntKeyHeap intKeyAside = new IntKeyHeap(lazyMelds, lazyDecreaseKeys);
+                LongKeyHeap longKeyAside = new LongKeyHeap(lazyMelds, lazyDecreaseKeys);
+                int base = refItems.size();
+                for (int j = 0; j < 40; j++) {
+                    int key = rand.nextInt(KEY_RANGE) + 1;
+                    refItems.add(refAside.insert(key, null));
+                    intItems.add(intAside.insert(key, refItems.size() - 1));
+                    longItems.add(longAside.insert(key, refItems.size() - 1));
+                    intKeyItems.add(intKeyAside.insert(key));
+                    longKeyItems.add(longKeyAside.insert(key));
+                }
+                removed.add(refAside.findMin());
+                refAside.deleteMin();
+                intAside.deleteMin();
+                longAside.deleteMin();
+                intKeyAside.deleteMin();
+                longKeyAside.deleteMin();
+                refAside.consolidate();
+                intAside.consolidate();
+                longAside.consolidate();
+                intKeyAside.consolidate();
+                longKeyAside.consolidate();
+                for (int j = 0; j < 20; j++) {
+                    int i = base + rand.nextInt(40);
+                    Heap.HeapItem x = refItems.get(i);
+                    if (removed.contains(x) || x.key < 2) {
+                        continue;
+                    }
+                    int diff = rand.nextInt(x.key - 1);
+                    refAside.decreaseKey(x, diff);
+                    intAside.decreaseKey(intItems.get(i), diff);
+                    longAside.decreaseKey(longItems.get(i), diff);
+                    intKeyAside.decreaseKey(intKeyItems.get(i), diff);
+                    longKeyAside.decreaseKey(longKeyItems.get(i), diff);
+                }
+                reference.meld(refAside);
+                ints.meld(intAside);
+                longs.meld(longAside);
+                intKeys.meld(intKeyAside);
+                longKeys.meld(longKeyAside);
+            }
+            if (reference.size() > 0) {
+                int min = reference.findMin().key;
+                ok = ints.findMin().key == min && longs.findMin().key == min && intKeys.findMin().key == min
+                        && longKeys.findMin().key == min && refItems.get(ints.findMin().info) == reference.findMin();
+            }
+        }
+        check(name + " same minima", ok);
+
+        int[] expected = { reference.size(), reference.numTrees(), reference.numMarkedNodes(),
+                reference.totalLinks(), reference.totalCuts(), reference.totalHeapifyCosts() };
+        check(name + " IntHeap counters", Arrays.equals(expected, new int[] { ints.size(), ints.numTrees(),
+                ints.numMarkedNodes(), ints.totalLinks(), ints.totalCuts(), ints.totalHeapifyCosts() }));
+        check(name + " LongHeap counters", Arrays.equals(expected, new int[] { longs.size(), longs.numTrees(),
+                longs.numMarkedNodes(), longs.totalLinks(), longs.totalCuts(), longs.totalHeapifyCosts() }));
+        check(name + " IntKeyHeap counters", Arrays.equals(expected, new int[] { intKeys.size(), intKeys.numTrees(),
+                intKeys.numMarkedNodes(), intKeys.totalLinks(), intKeys.totalCuts(), intKeys.totalHeapifyCosts() }));
+        check(name + " LongKeyHeap counters", Arrays.equals(expected, new int[] { longKeys.size(),
+                longKeys.numTrees(), longKeys.numMarkedNodes(), longKeys.totalLinks(), longKeys.totalCuts(),
+                longKeys.totalHeapifyCosts() }));
+
+        boolean keysOk = true;
+        for (int i = 0; i < refItems.size() && keysOk; i++) {
+            // every handle still holds the key of its element
+            int key = refItems.get(i).key;
+            keysOk = removed.contains(refItems.get(i)) || intItems.get(i).key == key && longItems.get(i).key == key
+                    && intKeyItems.get(i).key == key && longKeyItems.get(i).key == key;
+        }
+        check(name + " handle keys", keysOk);
+    }
+
+    // Keys are only compared, so the whole int range is valid, and a difference may wrap around
+    private static void signedIntKeys(boolean lazyMelds, boolean lazyDecreaseKeys, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys + " int keys";
+        IntHeap<Integer> ints = new IntHeap<>(lazyMelds, lazyDecreaseKeys);
+        IntKeyHeap intKeys = new IntKeyHeap(lazyMelds, lazyDecreaseKeys);
+        List<IntHeap.Item<Integer>> items = new ArrayList<>();
+        List<IntKeyHeap.Node> nodes = new ArrayList<>();
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        for (int i = 0; i < 2000; i++) {
+            int key = i < 4 ? new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1 }[i] : rand.nextInt();
+            items.add(ints.insert(key, i));
+            nodes.add(intKeys.insert(key));
+            expected.add(key);
+        }
+        int first = items.indexOf(ints.findMin());
+        items.remove(first);
+        nodes.remove(first);
+        ints.deleteMin();
+        intKeys.deleteMin();
+        expected.poll();
+        boolean ok = true;
+        for (int op = 0; op < 2000 && ok; op++) {
+            int i = rand.nextInt(items.size());
+            IntHeap.Item<Integer> x = items.get(i);
+            int key = rand.nextInt();
+            expected.remove(x.key);
+            expected.add(key);
+            if (key < x.key) {
+                intKeys.decreaseKey(nodes.get(i), x.key - key);
+                ints.decreaseKey(x, x.key - key);
+            } else {
+                intKeys.increaseKey(nodes.get(i), key - x.key);
+                ints.increaseKey(x, key - x.key);
+            }
+            ok = x.key == key && nodes.get(i).key == key && ints.findMin().key == expected.peek()
+                    && intKeys.findMin().key == expected.peek();
+        }
+        while (ok && !expected.isEmpty()) {
+            int min = expected.poll();
+            ok = ints.findMin().key == min && intKeys.findMin().key == min;
+            ints.deleteMin();
+            intKeys.deleteMin();
+        }
+        check(name, ok && ints.size() == 0 && intKeys.size() == 0);
+    }
+
+    private static void signedLongKeys(boolean lazyMelds, boolean lazyDecreaseKeys, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys + " long keys";
+        LongHeap<Integer> longs = new LongHeap<>(lazyMelds, lazyDecreaseKeys);
+        LongKeyHeap longKeys = new LongKeyHeap(lazyMelds, lazyDecreaseKeys);
+        List<LongHeap.Item<Integer>> items = new ArrayList<>();
+        List<LongKeyHeap.Node> nodes = new ArrayList<>();
+        PriorityQueue<Long> expected = new PriorityQueue<>();
+        for (int i = 0; i < 2000; i++) {
+            long key = i < 4 ? new long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0, -1 }[i] : rand.nextLong();
+            items.add(longs.insert(key, i));
+            nodes.add(longKeys.insert(key));
+            expected.add(key);
+        }
+        int first = items.indexOf(longs.findMin());
+        items.remove(first);
+        nodes.remove(first);
+        longs.deleteMin();
+        longKeys.deleteMin();
+        expected.poll();
+        boolean ok = true;
+        for (int op = 0; op < 2000 && ok; op++) {
+            int i = rand.nextInt(items.size());
+            LongHeap.Item<Integer> x = items.get(i);
+            long key = rand.nextLong();
+            expected.remove(x.key);
+            expected.add(key);
+            if (key < x.key) {
+                longKeys.decreaseKey(nodes.get(i), x.key - key);
+                longs.decreaseKey(x, x.key - key);
+            } else {
+                longKeys.increaseKey(nodes.get(i), key - x.key);
+                longs.increaseKey(x, key - x.key);
+            }
+            ok = x.key == key && nodes.get(i).key == key && longs.findMin().key == expected.peek()
+                    && longKeys.findMin().key == expected.peek();
+        }
+        while (ok && !expected.isEmpty()) {
+            long min = expected.poll();
+            ok = longs.findMin().key == min && longKeys.findMin().key == min;
+            longs.deleteMin();
+            longKeys.deleteMin();
+        }
+        check(name, ok && longs.size() == 0 && longKeys.size() == 0);
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.PrimitiveIterator;
+
+/**
+ * TopK
+ *
+ * A bounded streaming operator that keeps the k largest of the keys offered
+ * to it. The kept keys sit in an IntKeyHeap, a min-heap, so its minimum is
+ * the boundary: the key a candidate must beat to get in. The boundary is
+ * cached in a field, so a candidate that cannot enter costs one comparison
+ * and never touches the heap. One that can evicts the boundary by a
+ * deleteMin and an insert, amortized O(log k).
+ *
+ * IntKeyHeap accepts any int key, so TopK does too. Of equal keys the
+ * earlier one is kept.
+ *
+ */
+public class TopK {
+    private final int k;
+    private final IntKeyHeap heap = new IntKeyHeap(false, false);
+    private long boundary; // a candidate must be larger to enter; below every int while filling
+
+    /**
+     *
+     * pre: k >= 0
+     *
+     * Constructor to keep the k largest keys.
+     *
+     */
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        this.boundary = k == 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    /**
+     *
+     * Offer key, return true if it entered the top k.
+     *
+     */
+    public boolean offer(int key) {
+        if (key <= this.boundary) {
+            return false;
+        }
+        enter(key);
+        return true;
+    }
+
+    /**
+     *
+     * pre: 0 <= from <= to <= keys.length
+     *
+     * Offer keys[from..to) in order, return how many entered the top k.
+     *
+     */
+    public int offerAll(int[] keys, int from, int to) {
+        int entered = 0;
+        long boundary = this.boundary; // kept in a register, re-read only after an entry
+        for (int i = from; i < to; i++) {
+            int key = keys[i];
+            if (key > boundary) {
+                enter(key);
+                boundary = this.boundary;
+                entered++;
+            }
+        }
+        return entered;
+    }
+
+    /**
+     *
+     * Offer all of keys in order, return how many entered the top k.
+     *
+     */
+    public int offerAll(int[] keys) {
+        return offerAll(keys, 0, keys.length);
+    }
+
+    /**
+     *
+     * Offer the remaining keys of the iterator in order, return how many
+     * entered the top k.
+     *
+     */
+    public int offerAll(PrimitiveIterator.OfInt keys) {
+        int entered = 0;
+        long boundary = this.boundary;
+        while (keys.hasNext()) {
+            int key = keys.nextInt();
+            if (key > boundary) {
+                enter(key);
+                boundary = this.boundary;
+                entered++;
+            }
+        }
+        return entered;
+    }
+
+    /**
+     *
+     * Return the kept keys, largest first. The operator keeps them, so the
+     * stream can go on afterwards.
+     *
+     */
+    public int[] sorted() {
+        int n = this.heap.size();
+        int[] keys = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            keys[i] = this.heap.findMin().key;
+            this.heap.deleteMin();
+        }
+        // back in as singletons, the next eviction links them once
+        for (int i = n - 1; i >= 0; i--) {
+            this.heap.insert(keys[i]);
+        }
+        return keys;
+    }
+
+    /**
+     *
+     * Return the smallest kept key, the one the next entry evicts. Only
+     * meaningful once size() == k().
+     *
+     */
+    public int boundary() {
+        return this.heap.size() == 0 ? Integer.MIN_VALUE : this.heap.findMin().key;
+    }
+
+    /**
+     *
+     * Return the number of kept keys, at most k.
+     *
+     */
+    public int size() {
+        return this.heap.size();
+    }
+
+    /**
+     *
+     * Return the bound k.
+     *
+     */
+    public int k() {
+        return this.k;
+    }
+
+    // Admit a key larger than the boundary, evicting the boundary once k keys are kept
+    private void enter(int key) {
+        if (this.heap.size() == this.k) {
+            this.heap.deleteMin();
+        }
+        this.heap.insert(key);
+        if (this.heap.size() == this.k) {
+            this.boundary = this.heap.findMin().key;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.*;
+
+/**
+ * TopKTest - Checks that TopK keeps exactly the k largest keys of a stream
+ * with many ties and negative keys, for k from 0 to beyond the stream
+ * length, fed as an array range and as an iterator, and that sorted leaves
+ * the kept keys in place.
+ */
+public class TopKTest {
+    private static final int STREAM = 200000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        Random rand = new Random(26);
+        int[] stream = new int[STREAM];
+        for (int i = 0; i < stream.length; i++) {
+            stream[i] = i % 3 == 0 ? rand.nextInt() : rand.nextInt(1000) - 500; // many ties and negatives
+        }
+        int[] reference = stream.clone();
+        Arrays.sort(reference);
+        for (int k : new int[] { 0, 1, 7, 1000, 150000, 250000 }) {
+            TopK top = new TopK(k);
+            int entered = top.offerAll(stream, 0, 1000);
+            entered += top.offerAll(Arrays.stream(stream, 1000, stream.length).iterator()); // the rest as an iterator
+            int[] before = top.sorted();
+            int[] kept = top.sorted(); // sorted leaves the kept keys in place
+            int n = Math.min(k, stream.length);
+            check("k=" + k + " entered", entered >= n);
+            check("k=" + k + " size", kept.length == n && top.size() == n && Arrays.equals(before, kept));
+            boolean largest = true;
+            for (int i = 0; i < kept.length && largest; i++) {
+                largest = kept[i] == reference[reference.length - 1 - i];
+            }
+            check("k=" + k + " keeps the largest keys", largest);
+            if (n == k && n > 0) {
+                check("k=" + k + " boundary", top.boundary() == kept[n - 1] && !top.offer(kept[n - 1])
+                        && top.offer(Integer.MAX_VALUE) && top.sorted()[0] == Integer.MAX_VALUE);
+            }
+        }
+
+        TopK extremes = new TopK(2);
+        check("extreme keys", extremes.offer(Integer.MIN_VALUE) && extremes.offer(Integer.MIN_VALUE)
+                && !extremes.offer(Integer.MIN_VALUE) && extremes.offer(0)
+                && Arrays.equals(extremes.sorted(), new int[] { 0, Integer.MIN_VALUE }));
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.*;
+
+/**
+ * UpdateKeyTest - Moves random items up and down with updateKey among
+ * inserts and deleteMins, in all 4 configurations, and checks after every
+ * operation the key of the moved item, the minimum and the tree count, and
+ * at the end that every handle still points at its node and that the heap
+ * drains in order. Lazy decrease keys must never heapify, eager ones never
+ * cut.
+ */
+public class UpdateKeyTest {
+    private static final int SIZE = 3000;
+    private static final int OPS = 6000;
+    private static final int KEY_RANGE = 1000000;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        boolean[][] configs = { { false, false }, { false, true }, { true, false }, { true, true } };
+        Random rand = new Random(2014);
+        for (boolean[] cfg : configs) {
+            run(cfg[0], cfg[1], rand);
+        }
+
+        if (failures == 0) {
+            System.out.println("All tests passed!");
+        } else {
+            System.out.println("Failed checks: " + failures);
+        }
+    }
+
+    private static void run(boolean lazyMelds, boolean lazyDecreaseKeys, Random rand) {
+        String name = "LM=" + lazyMelds + "_LD=" + lazyDecreaseKeys;
+        Heap updated = new Heap(lazyMelds, lazyDecreaseKeys);
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        List<Heap.HeapItem> live = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            int key = rand.nextInt(KEY_RANGE) + 1;
+            live.add(updated.insert(key, "U"));
+            expected.add(key);
+        }
+        boolean ok = true;
+        for (int op = 0; op < OPS && ok; op++) {
+            int roll = rand.nextInt(10);
+            if (roll < 5) {
+                Heap.HeapItem x = live.get(rand.nextInt(live.size()));
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                expected.remove(x.key);
+                expected.add(key);
+                updated.updateKey(x, key);
+                ok = x.key == key && x.node.item == x;
+            } else if (roll < 7 && live.size() > 1) {
+                Heap.HeapItem x = updated.findMin();
+                updated.deleteMin();
+                expected.poll();
+                live.remove(x);
+            } else {
+                int key = rand.nextInt(KEY_RANGE) + 1;
+                live.add(updated.insert(key, "U"));
+                expected.add(key);
+            }
+            ok = ok && updated.findMin().key == expected.peek() && updated.numTrees() == countRoots(updated);
+        }
+        check(name + " order and trees while updating", ok);
+
+        boolean handlesOk = true;
+        for (Heap.HeapItem x : live) {
+            handlesOk = handlesOk && x.node.item == x;
+        }
+        check(name + " handles", handlesOk);
+
+        boolean drainOk = true;
+        while (drainOk && !expected.isEmpty()) {
+            drainOk = updated.findMin().key == expected.poll();
+            updated.deleteMin();
+        }
+        check(name + " drains in order", drainOk && updated.size() == 0);
+        check(name + " restructures only one way",
+                lazyDecreaseKeys ? updated.totalHeapifyCosts() == 0 : updated.totalCuts() == 0);
+    }
+
+    // Walk the root list from the minimum, which is always a root
+    private static int countRoots(Heap heap) {
+        if (heap.findMin() == null) {
+            return 0;
+        }
+        Heap.HeapNode start = heap.findMin().node;
+        int count = 1;
+        for (Heap.HeapNode x = start.next; x != start; x = x.next) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void check(String name, boolean ok) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}